@@ -0,0 +1,125 @@
+package com.example.availability.simulator.availability;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of {@link AvailabilityCache}: hits and misses through the cache, and the same
+ * lookups straight against its {@link AvailabilityStore}, for both store implementations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityCacheBenchmark {
+
+    static final int KEYS = 100_000;
+    private static final int MASK = 1023;
+
+    @Param({"heap", "off-heap"})
+    public String store;
+
+    private AvailabilityStore availabilityStore;
+    private AvailabilityCache cache;
+    private long[] hitHigh;
+    private long[] hitLow;
+    private long[] missHigh;
+    private long[] missLow;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & MASK;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        availabilityStore = "heap".equals(store)
+                ? new HeapAvailabilityStore(KEYS * 2, Long.MAX_VALUE)
+                : new OffHeapAvailabilityStore(KEYS * 2, Long.MAX_VALUE);
+        cache = new AvailabilityCache(availabilityStore, 100_000, Duration.ofMinutes(5));
+        FlightDateKey[] keys = keys(KEYS);
+        for (FlightDateKey key : keys) {
+            cache.putFromDatabase(new Availability(key, "F9 J9 Y9"), 1L);
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        hitHigh = new long[MASK + 1];
+        hitLow = new long[MASK + 1];
+        missHigh = new long[MASK + 1];
+        missLow = new long[MASK + 1];
+        for (int i = 0; i <= MASK; i++) {
+            FlightDateKey key = keys[random.nextInt(KEYS)];
+            hitHigh[i] = FlightDateKeyCodec.high(key);
+            hitLow[i] = FlightDateKeyCodec.low(key);
+            missHigh[i] = hitHigh[i];
+            missLow[i] = FlightDateKeyCodec.low(key.departureDateTime(), key.arrivalDateTime().plusMinutes(1));
+        }
+    }
+
+    @Benchmark
+    public Object cacheHit(Cursor cursor) {
+        int i = cursor.next();
+        return cache.getAvailability(hitHigh[i], hitLow[i]);
+    }
+
+    @Benchmark
+    public Object cacheMiss(Cursor cursor) {
+        int i = cursor.next();
+        return cache.getAvailability(missHigh[i], missLow[i]);
+    }
+
+    @Benchmark
+    public Object cacheHitVersioned(Cursor cursor) {
+        int i = cursor.next();
+        return cache.getVersionedAvailability(hitHigh[i], hitLow[i]);
+    }
+
+    @Benchmark
+    public Object storeHit(Cursor cursor) {
+        int i = cursor.next();
+        return availabilityStore.get(hitHigh[i], hitLow[i]);
+    }
+
+    @Benchmark
+    public Object storeMiss(Cursor cursor) {
+        int i = cursor.next();
+        return availabilityStore.get(missHigh[i], missLow[i]);
+    }
+
+    static FlightDateKey[] keys(int count) {
+        String[] airports = {"JFK", "LAX", "LHR", "CDG", "FRA", "AMS", "DXB", "SIN"};
+        LocalDateTime first = LocalDateTime.of(2026, 11, 1, 0, 0);
+        FlightDateKey[] keys = new FlightDateKey[count];
+        for (int i = 0; i < count; i++) {
+            String origin = airports[i % airports.length];
+            String destination = airports[(i / airports.length + 1 + i) % airports.length];
+            if (destination.equals(origin)) {
+                destination = airports[(i + 1) % airports.length];
+            }
+            LocalDateTime departure = first.plusMinutes((long) (i / 9_000) * 5);
+            keys[i] = new FlightDateKey(i % 9_000 + 1, origin, destination, departure, departure.plusMinutes(60 + i % 600));
+        }
+        return keys;
+    }
+}
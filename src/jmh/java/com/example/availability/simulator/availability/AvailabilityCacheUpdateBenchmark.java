@@ -0,0 +1,66 @@
+package com.example.availability.simulator.availability;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contended {@link AvailabilityCache#updateAvailability} from many threads. With
+ * {@code hotKeys} small, every thread keeps hitting the same few entries, as during a
+ * sale on a popular flight; each update carries a fresh sequence so none is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AvailabilityCacheUpdateBenchmark {
+
+    @Param({"heap", "off-heap"})
+    public String store;
+
+    @Param({"4", "10000"})
+    public int hotKeys;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private AvailabilityCache cache;
+    private FlightDateKey[] keys;
+    private final Instant timestamp = Instant.parse("2026-11-01T00:00:00Z");
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AvailabilityStore availabilityStore = "heap".equals(store)
+                ? new HeapAvailabilityStore(1 << 16, Long.MAX_VALUE)
+                : new OffHeapAvailabilityStore(1 << 16, Long.MAX_VALUE);
+        cache = new AvailabilityCache(availabilityStore, 100_000, Duration.ofMinutes(5));
+        keys = AvailabilityCacheBenchmark.keys(hotKeys);
+    }
+
+    @Benchmark
+    public void update(Cursor cursor) {
+        FlightDateKey key = keys[cursor.next++ % keys.length];
+        cache.updateAvailability(new AvailabilityEvent(key, sequence.incrementAndGet(), "F8 J9 Y9", timestamp));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.availability.simulator.availability;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the instrumentation on the read path, with the meters bound to a Prometheus
+ * registry as in production. {@code storeHit} is the uninstrumented baseline for
+ * {@code cacheHit}; {@code timedLookup} adds the {@code System.nanoTime} pair and
+ * histogram update paid around each repository read. Run on several threads so the
+ * counters are contended.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AvailabilityMetricsOverheadBenchmark {
+
+    private static final int MASK = 1023;
+
+    private AvailabilityStore store;
+    private AvailabilityCache cache;
+    private Timer timer;
+    private long[] high;
+    private long[] low;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & MASK;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        store = new HeapAvailabilityStore(1 << 12, Long.MAX_VALUE);
+        cache = new AvailabilityCache(store, 1_000, Duration.ofMinutes(5));
+        cache.bindTo(registry);
+        timer = Timer.builder("availability.db.lookup").tag("query", "point").publishPercentileHistogram().register(registry);
+
+        FlightDateKey[] keys = AvailabilityCacheBenchmark.keys(MASK + 1);
+        high = new long[keys.length];
+        low = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            cache.putFromDatabase(new Availability(keys[i], "F9 J9 Y9"), 1L);
+            high[i] = FlightDateKeyCodec.high(keys[i]);
+            low[i] = FlightDateKeyCodec.low(keys[i]);
+        }
+    }
+
+    @Benchmark
+    public Object storeHit(Cursor cursor) {
+        int i = cursor.next();
+        // Same Optional as the cache returns, so only the counting differs
+        return Optional.ofNullable(store.get(high[i], low[i]));
+    }
+
+    @Benchmark
+    public Object cacheHit(Cursor cursor) {
+        int i = cursor.next();
+        return cache.getAvailability(high[i], low[i]);
+    }
+
+    @Benchmark
+    public Object timedLookup(Cursor cursor) {
+        int i = cursor.next();
+        long start = System.nanoTime();
+        Object found = store.get(high[i], low[i]);
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return found;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.availability.simulator.availability;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building, hashing and encoding a {@link FlightDateKey} from request parameters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlightDateKeyBenchmark {
+
+    public int flightNumber = 123;
+    public String origin = "JFK";
+    public String destination = "LHR";
+    public LocalDateTime departure = LocalDateTime.of(2026, 11, 3, 10, 0);
+    public LocalDateTime arrival = departure.plusHours(7);
+
+    private final FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", departure, arrival);
+    private final long high = FlightDateKeyCodec.high(key);
+    private final long low = FlightDateKeyCodec.low(key);
+
+    @Benchmark
+    public FlightDateKey construct() {
+        return new FlightDateKey(flightNumber, origin, destination, departure, arrival);
+    }
+
+    @Benchmark
+    public int recordHashCode() {
+        return key.hashCode();
+    }
+
+    @Benchmark
+    public long encode() {
+        return FlightDateKeyCodec.high(flightNumber, origin, destination) ^ FlightDateKeyCodec.low(departure, arrival);
+    }
+
+    @Benchmark
+    public long encodedHash() {
+        return FlightDateKeyCodec.hash(high, low);
+    }
+
+    @Benchmark
+    public FlightDateKey decode() {
+        return FlightDateKeyCodec.decode(high, low);
+    }
+}
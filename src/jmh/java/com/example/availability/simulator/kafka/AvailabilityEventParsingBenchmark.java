@@ -0,0 +1,78 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserializing an {@link AvailabilityEvent} as the consumer receives it: JSON from a
+ * String value and from raw bytes, through the shared mapper and a pre-built reader, and
+ * both formats through {@link AvailabilityEventDeserializer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityEventParsingBenchmark {
+
+    private static final String PAYLOAD = """
+            {"key":{"flightNumber":123,"origin":"JFK","destination":"LHR",\
+            "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"2026-11-03T17:00:00"},\
+            "sequenceNumber":1761000000000042,"availabilityString":"F8 J9 Y9","timestamp":"2026-10-18T09:30:00.123Z"}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ObjectReader reader = objectMapper.readerFor(AvailabilityEvent.class);
+    private final byte[] payloadBytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+    private final AvailabilityEventDeserializer deserializer = new AvailabilityEventDeserializer(objectMapper);
+    private final RecordHeaders jsonHeaders = new RecordHeaders();
+    private final RecordHeaders binaryHeaders = new RecordHeaders();
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() throws Exception {
+        binaryHeaders.add(AvailabilityEventFormat.binaryHeader());
+        binaryPayload = AvailabilityEventFormat.encode(reader.readValue(payloadBytes));
+    }
+
+    @Benchmark
+    public AvailabilityEvent mapperFromString() throws Exception {
+        return objectMapper.readValue(PAYLOAD, AvailabilityEvent.class);
+    }
+
+    @Benchmark
+    public AvailabilityEvent readerFromString() throws Exception {
+        return reader.readValue(PAYLOAD);
+    }
+
+    @Benchmark
+    public AvailabilityEvent readerFromBytes() throws Exception {
+        return reader.readValue(payloadBytes);
+    }
+
+    @Benchmark
+    public AvailabilityEvent deserializerJson() {
+        return deserializer.deserialize("availability-updates", jsonHeaders, payloadBytes);
+    }
+
+    @Benchmark
+    public AvailabilityEvent deserializerBinary() {
+        return deserializer.deserialize("availability-updates", binaryHeaders, binaryPayload);
+    }
+}
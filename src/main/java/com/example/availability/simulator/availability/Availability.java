@@ -1,12 +1,29 @@
 package com.example.availability.simulator.availability;
 
-public record Availability(FlightDateKey key, String availabilityString) {
+/**
+ * Seat availability for a flight-date, held in the {@link PackedAvailability} encoding.
+ * The textual form is only rendered when asked for.
+ */
+public record Availability(FlightDateKey key, long packedSeats) {
     public Availability {
         if (key == null) {
             throw new IllegalArgumentException("Key cannot be null");
         }
-        if (availabilityString == null) {
-            throw new IllegalArgumentException("Availability string cannot be null");
-        }
+    }
+
+    public Availability(FlightDateKey key, String availabilityString) {
+        this(key, PackedAvailability.parse(availabilityString));
+    }
+
+    public String availabilityString() {
+        return PackedAvailability.format(packedSeats);
+    }
+
+    public int seats(char bookingClass) {
+        return PackedAvailability.seats(packedSeats, bookingClass);
+    }
+
+    public int totalSeats() {
+        return PackedAvailability.totalSeats(packedSeats);
     }
 }
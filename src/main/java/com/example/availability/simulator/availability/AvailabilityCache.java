@@ -2,70 +2,420 @@ package com.example.availability.simulator.availability;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Single-tier, memory-bounded cache over an {@link AvailabilityStore}. Misses are resolved
+ * by the caller against the database and loaded back with {@link #putFromDatabase}.
+ * <p>
+ * Keys the database does not know are remembered in a bounded negative cache, so repeated
+ * lookups of unknown flight-dates stop reaching the database. Any write for a key clears
+ * its negative entry; the TTL bounds staleness for rows inserted behind the cache's back.
+ * <p>
+ * Every key in the store is also indexed by route and departure day, kept in step by the
+ * store's {@link AvailabilityStore.KeyListener} as keys enter and leave, so updates to
+ * cached keys never touch the index. Once a whole route-day has been loaded
+ * ({@link #markRouteDayLoaded}, or {@link #markDayLoaded} for all routes) it is answered
+ * from memory by {@link #findByRouteAndDay}, until an eviction takes one of its flights
+ * out of the store.
+ * <p>
+ * Route-days are also bucketed by departure day, so {@link #expireDepartedBefore} drops
+ * whole past days without scanning the store. Entries not yet persisted are kept until a
+ * later pass finds them clean.
+ * <p>
+ * Events that change an entry are passed on to the registered {@link AvailabilityListener}s.
+ * <p>
+ * Lookups and events are counted in {@link LongAdder}s, read by the registry only when it
+ * is scraped, so the hot paths neither allocate nor contend on a shared counter.
+ */
 @Component
-public class AvailabilityCache {
+public class AvailabilityCache implements MeterBinder {
 
-    private record CachedState(Availability availability, long lastSequence) {}
+    private record EncodedKey(long high, long low) {}
 
-    private final Map<FlightDateKey, CachedState> store = new ConcurrentHashMap<>();
+    // Authoritative store, keyed by the FlightDateKeyCodec encoding
+    private final AvailabilityStore store;
 
-    private final Cache<FlightDateKey, Availability> readCache;
+    private final Cache<EncodedKey, Boolean> knownAbsent;
+
+    // Secondary index: FlightDateKeyCodec.routeDay -> keys in the store for that route and day
+    private final ConcurrentHashMap<Long, Set<EncodedKey>> routeDayIndex = new ConcurrentHashMap<>();
+    private final Set<Long> loadedRouteDays = ConcurrentHashMap.newKeySet();
+    // Route-days that lost a key since findByRouteAndDay last looked, even if marked loaded after
+    private final Set<Long> evictedRouteDays = ConcurrentHashMap.newKeySet();
+    private final Set<Long> loadedDays = ConcurrentHashMap.newKeySet();
+    // Departure epoch day -> route-days in routeDayIndex departing that day
+    private final ConcurrentSkipListMap<Long, Set<Long>> departureDays = new ConcurrentSkipListMap<>();
+
+    private final List<AvailabilityListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder appliedEvents = new LongAdder();
+    private final LongAdder staleEvents = new LongAdder();
+    private final LongAdder duplicateEvents = new LongAdder();
+    private final LongAdder expiredEntries = new LongAdder();
+    private final LongAdder expiredBytes = new LongAdder();
 
     public AvailabilityCache() {
-        this.readCache = Caffeine.newBuilder()
-                .maximumSize(10_000)
-                .expireAfterWrite(Duration.ofMinutes(10))
+        this(new HeapAvailabilityStore(1 << 16, Long.MAX_VALUE), 100_000, Duration.ofMinutes(5));
+    }
+
+    @Autowired
+    public AvailabilityCache(AvailabilityStore store,
+                             @Value("${availability.cache.negative.max-entries:100000}") long negativeMaxEntries,
+                             @Value("${availability.cache.negative.ttl:PT5M}") Duration negativeTtl) {
+        this.store = store;
+        this.knownAbsent = Caffeine.newBuilder()
+                .maximumSize(negativeMaxEntries)
+                .expireAfterWrite(negativeTtl)
                 .build();
+        store.setKeyListener(new AvailabilityStore.KeyListener() {
+            @Override
+            public void added(long high, long low) {
+                index(high, low);
+            }
+
+            @Override
+            public void removed(long high, long low) {
+                unindex(high, low);
+            }
+        });
     }
 
     public Optional<Availability> getAvailability(FlightDateKey key) {
-        // Try read cache first
-        Availability cached = readCache.getIfPresent(key);
-        if (cached != null) {
-            return Optional.of(cached);
+        return getAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+    }
+
+    /**
+     * Looks up the store by an already encoded key, without building a {@link FlightDateKey}.
+     */
+    public Optional<Availability> getAvailability(long high, long low) {
+        return Optional.ofNullable(counted(store.get(high, low)));
+    }
+
+    /**
+     * Like {@link #getAvailability(long, long)}, with the entry's sequence and pre-encoded
+     * response payload.
+     */
+    public Optional<VersionedAvailability> getVersionedAvailability(long high, long low) {
+        return Optional.ofNullable(counted(store.getVersioned(high, low)));
+    }
+
+    public void updateAvailability(AvailabilityEvent event) {
+        // The store ignores older or duplicate sequences (idempotency / out of order check).
+        // The entry stays pinned in memory until markPersisted confirms the database has it.
+        long high = event.high();
+        long low = event.low();
+        if (store.update(high, low, event.sequenceNumber(), event.packedSeats())) {
+            appliedEvents.increment();
+            for (AvailabilityListener listener : listeners) {
+                listener.availabilityUpdated(high, low, event.sequenceNumber(), event.packedSeats());
+            }
+        } else {
+            rejected(high, low, event.sequenceNumber());
         }
+    }
+
+    public void addListener(AvailabilityListener listener) {
+        listeners.add(listener);
+    }
 
-        // Fallback to authoritative store
-        CachedState state = store.get(key);
-        if (state != null) {
-            readCache.put(key, state.availability());
-            return Optional.of(state.availability());
+    public void removeListener(AvailabilityListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void putFromDatabase(Availability availability) {
+        putFromDatabase(availability, 0L);
+    }
+
+    /**
+     * Loads a database row with the sequence of the last event written to it, so events
+     * replayed from before that sequence are rejected just as the database rejects them.
+     */
+    public void putFromDatabase(Availability availability, long sequence) {
+        // If it's already in store, we don't overwrite because memory might have newer events (higher sequence).
+        FlightDateKey key = availability.key();
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+        store.putIfAbsent(high, low, sequence, availability);
+    }
+
+    /**
+     * Remembers that the database has no row for the key.
+     */
+    public void markAbsent(long high, long low) {
+        EncodedKey key = new EncodedKey(high, low);
+        knownAbsent.put(key, Boolean.TRUE);
+        // A write that landed before the put has already run its invalidation; undo ours
+        if (store.get(high, low) != null) {
+            knownAbsent.invalidate(key);
         }
-        
-        return Optional.empty();
     }
 
-    public void updateAvailability(AvailabilityEvent event) {
-        store.compute(event.key(), (key, currentState) -> {
-            if (currentState != null && event.sequenceNumber() <= currentState.lastSequence()) {
-                // Idempotency / Out of order (older) check
-                // Ignore older or duplicate events
-                return currentState;
+    public boolean isKnownAbsent(long high, long low) {
+        return knownAbsent.getIfPresent(new EncodedKey(high, low)) != null;
+    }
+
+    /**
+     * Records that the database holds {@code sequence} for the key, making the cached entry
+     * evictable unless a newer event has been applied since.
+     */
+    public void markPersisted(AvailabilityEvent event) {
+        store.markPersisted(event.high(), event.low(), event.sequenceNumber());
+    }
+
+    /**
+     * Drops the entry written by an event the database rejected as stale, unless a newer
+     * event has been applied since, so the next read reloads the row instead.
+     */
+    public void discardSuperseded(AvailabilityEvent event) {
+        store.removeUnlessNewer(event.high(), event.low(), event.sequenceNumber());
+    }
+
+    /**
+     * Visits every cached entry in its encoded form, e.g. to write a snapshot.
+     */
+    public void forEachEntry(AvailabilityStore.EntryVisitor visitor) {
+        store.forEach(visitor);
+    }
+
+    /**
+     * Restores an entry from a snapshot; newer state already in the cache wins.
+     */
+    public void restoreEntry(long high, long low, long sequence, long packedSeats, boolean dirty) {
+        store.restore(high, low, sequence, packedSeats, dirty);
+    }
+
+    /**
+     * Returns every flight on the route departing on {@code day} (UTC), ordered by
+     * departure, or empty if the cache cannot vouch for the whole day and the caller has
+     * to ask the database.
+     */
+    public Optional<List<Availability>> findByRouteAndDay(String origin, String destination, LocalDate day) {
+        long routeDay = FlightDateKeyCodec.routeDay(origin, destination, day);
+        if (!loadedDays.contains(day.toEpochDay()) && !loadedRouteDays.contains(routeDay)) {
+            return Optional.empty();
+        }
+        if (evictedRouteDays.remove(routeDay)) {
+            // Let the caller reload the day; an eviction during that reload flags it again
+            loadedRouteDays.remove(routeDay);
+            loadedDays.remove(day.toEpochDay());
+            return Optional.empty();
+        }
+        Set<EncodedKey> keys = routeDayIndex.get(routeDay);
+        if (keys == null) {
+            return Optional.of(List.of());
+        }
+
+        List<Availability> flights = new ArrayList<>(keys.size());
+        boolean complete = true;
+        for (EncodedKey key : keys) {
+            Availability availability = store.get(key.high(), key.low());
+            if (availability == null) {
+                // Removed while we read; the listener has flagged the route-day
+                complete = false;
+            } else {
+                flights.add(availability);
+            }
+        }
+        if (!complete) {
+            loadedRouteDays.remove(routeDay);
+            loadedDays.remove(day.toEpochDay());
+            return Optional.empty();
+        }
+        flights.sort(Comparator.comparing((Availability a) -> a.key().departureDateTime())
+                .thenComparing(a -> a.key().flightNumber()));
+        return Optional.of(flights);
+    }
+
+    /**
+     * Records that every flight on the route departing on {@code day} has been written to
+     * the cache.
+     */
+    public void markRouteDayLoaded(String origin, String destination, LocalDate day) {
+        loadedRouteDays.add(FlightDateKeyCodec.routeDay(origin, destination, day));
+    }
+
+    /**
+     * Records that every flight departing on {@code day}, on any route, has been written to
+     * the cache.
+     */
+    public void markDayLoaded(LocalDate day) {
+        loadedDays.add(day.toEpochDay());
+    }
+
+    /**
+     * Removes every flight-date departing before {@code day} from the store, and so from
+     * the route index, one departure-day bucket at a time. Route-days left with dirty
+     * entries are re-bucketed for the next pass. Returns the number of entries removed.
+     */
+    public long expireDepartedBefore(LocalDate day) {
+        long removed = 0;
+        List<Long> pinned = new ArrayList<>();
+        Map.Entry<Long, Set<Long>> bucket;
+        while ((bucket = departureDays.headMap(day.toEpochDay()).pollFirstEntry()) != null) {
+            loadedDays.remove(bucket.getKey());
+            for (long routeDay : bucket.getValue()) {
+                loadedRouteDays.remove(routeDay);
+                Set<EncodedKey> keys = routeDayIndex.get(routeDay);
+                if (keys != null) {
+                    // The store's listener drops each removed key from this set as we go
+                    for (EncodedKey key : keys) {
+                        long freed = store.removeIfPersisted(key.high(), key.low());
+                        if (freed > 0) {
+                            removed++;
+                            expiredEntries.increment();
+                            expiredBytes.add(freed);
+                        }
+                    }
+                    if (routeDayIndex.containsKey(routeDay)) {
+                        pinned.add(routeDay);
+                    }
+                }
+                evictedRouteDays.remove(routeDay);
             }
+        }
+        // Re-bucketed only now, so this pass does not pick them up again
+        pinned.forEach(this::bucket);
+        return removed;
+    }
 
-            // Update with new state (Snapshot)
-            Availability newAvail = new Availability(key, event.availabilityString());
-            readCache.put(key, newAvail);
-            return new CachedState(newAvail, event.sequenceNumber());
+    // Keys held by the route-day index, which mirrors the store
+    long indexedKeys() {
+        return routeDayIndex.values().stream().mapToLong(Set::size).sum();
+    }
+
+    public long expiredEntries() {
+        return expiredEntries.sum();
+    }
+
+    public long expiredBytes() {
+        return expiredBytes.sum();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public long estimatedBytes() {
+        return store.estimatedBytes();
+    }
+
+    public long evictions() {
+        return store.evictions();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("availability.cache.lookups", hits, LongAdder::sum)
+                .description("Cache lookups answered from the store")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.lookups", misses, LongAdder::sum)
+                .description("Cache lookups answered from the store")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.events", appliedEvents, LongAdder::sum)
+                .description("Availability events by outcome of the sequence check")
+                .tag("outcome", "applied")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.events", staleEvents, LongAdder::sum)
+                .description("Availability events by outcome of the sequence check")
+                .tag("outcome", "stale")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.events", duplicateEvents, LongAdder::sum)
+                .description("Availability events by outcome of the sequence check")
+                .tag("outcome", "duplicate")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.evictions", store, AvailabilityStore::evictions)
+                .description("Entries evicted to stay within the memory budget")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.expired", expiredEntries, LongAdder::sum)
+                .description("Entries of departed flight-dates removed from the store")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.expired.bytes", expiredBytes, LongAdder::sum)
+                .description("Estimated memory reclaimed by removing departed flight-dates")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("availability.cache.entries", store, AvailabilityStore::size)
+                .description("Flight-dates held in the store")
+                .register(registry);
+        Gauge.builder("availability.cache.bytes", store, AvailabilityStore::estimatedBytes)
+                .description("Estimated memory held by the store's entries")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("availability.cache.dirty", store, AvailabilityStore::dirtySize)
+                .description("Entries not yet confirmed persisted, which eviction skips")
+                .register(registry);
+        Gauge.builder("availability.cache.over.budget", store, AvailabilityStore::overBudgetBytes)
+                .description("Estimated memory held beyond the budget because dirty entries could not be evicted")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private <T> T counted(T found) {
+        (found != null ? hits : misses).increment();
+        return found;
+    }
+
+    // Off the hot path: only events the store turned down pay for the second read
+    private void rejected(long high, long low, long sequence) {
+        VersionedAvailability current = store.getVersioned(high, low);
+        if (current != null && current.sequence() == sequence) {
+            duplicateEvents.increment();
+        } else {
+            staleEvents.increment();
+        }
+    }
+
+    // A key entered the store; runs under the store's write lock
+    private void index(long high, long low) {
+        EncodedKey key = new EncodedKey(high, low);
+        knownAbsent.invalidate(key);
+        routeDayIndex.compute(FlightDateKeyCodec.routeDay(high, low), (routeDay, keys) -> {
+            if (keys == null) {
+                // A new route-day, or one whose keys all left: bucket it under its departure day
+                bucket(routeDay);
+                keys = ConcurrentHashMap.newKeySet();
+            }
+            keys.add(key);
+            return keys;
         });
     }
 
-    public void putFromDatabase(Availability availability) {
-        // When loading from DB, we treat it as the initial state (sequence 0) 
-        // or just populate the read cache if we don't want to make it authoritative yet.
-        // However, if we want it to be authoritative, we should put it in the store.
-        // Let's assume DB load is sequence 0.
-        store.computeIfAbsent(availability.key(), k -> {
-            readCache.put(k, availability);
-            return new CachedState(availability, 0L);
+    // A key left the store, evicted or expired; runs under the store's write lock
+    private void unindex(long high, long low) {
+        EncodedKey key = new EncodedKey(high, low);
+        long routeDay = FlightDateKeyCodec.routeDay(high, low);
+        evictedRouteDays.add(routeDay);
+        routeDayIndex.computeIfPresent(routeDay, (rd, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
         });
-        // If it's already in store, we don't overwrite because memory might have newer events (higher sequence).
+    }
+
+    private void bucket(long routeDay) {
+        long departureDay = (int) routeDay; // the signed low 32 bits of a route-day
+        departureDays.computeIfAbsent(departureDay, d -> ConcurrentHashMap.newKeySet()).add(routeDay);
     }
 }
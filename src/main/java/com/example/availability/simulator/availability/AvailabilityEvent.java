@@ -1,22 +1,58 @@
 package com.example.availability.simulator.availability;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.time.Instant;
 
+/**
+ * An availability update, held in the encoded form the cache stores: the key in the
+ * {@link FlightDateKeyCodec} encoding and the seats in the {@link PackedAvailability} one.
+ * Both are checked once, when the event is built, and {@link #key()} and
+ * {@link #availabilityString()} are only decoded for the database and for logs. On the wire,
+ * JSON still carries the readable key and availability string.
+ */
 public record AvailabilityEvent(
-    FlightDateKey key,
+    @JsonIgnore long high,
+    @JsonIgnore long low,
     long sequenceNumber,
-    String availabilityString,
+    @JsonIgnore long packedSeats,
     Instant timestamp
 ) {
     public AvailabilityEvent {
-        if (key == null) {
-            throw new IllegalArgumentException("Key cannot be null");
-        }
-        if (availabilityString == null) {
-            throw new IllegalArgumentException("Availability string cannot be null");
+        if (high == 0L) {
+            throw new IllegalArgumentException("Key cannot be empty");
         }
         if (timestamp == null) {
             throw new IllegalArgumentException("Timestamp cannot be null");
         }
     }
+
+    @JsonCreator
+    public AvailabilityEvent(
+            @JsonProperty("key") FlightDateKey key,
+            @JsonProperty("sequenceNumber") long sequenceNumber,
+            @JsonProperty("availabilityString") String availabilityString,
+            @JsonProperty("timestamp") Instant timestamp) {
+        this(FlightDateKeyCodec.high(required(key, "Key")), FlightDateKeyCodec.low(key), sequenceNumber,
+                PackedAvailability.parse(required(availabilityString, "Availability string")), timestamp);
+    }
+
+    @JsonProperty("key")
+    public FlightDateKey key() {
+        return FlightDateKeyCodec.decode(high, low);
+    }
+
+    @JsonProperty("availabilityString")
+    public String availabilityString() {
+        return PackedAvailability.format(packedSeats);
+    }
+
+    private static <T> T required(T value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " cannot be null");
+        }
+        return value;
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.availability.simulator.availability;
+
+/**
+ * Notified by {@link AvailabilityCache} when an event with a newer sequence is applied to
+ * a flight-date. Called on the thread applying the event, so implementations must return
+ * quickly and never block.
+ */
+@FunctionalInterface
+public interface AvailabilityListener {
+
+    void availabilityUpdated(long high, long low, long sequence, long packedSeats);
+}
@@ -0,0 +1,114 @@
+package com.example.availability.simulator.availability;
+
+/**
+ * Authoritative sequence-aware storage behind {@link AvailabilityCache}, addressed by the
+ * {@link FlightDateKeyCodec} encoding. Implementations must be safe for concurrent
+ * readers alongside writers.
+ * <p>
+ * Stores are bounded by a memory budget. Entries written by {@link #update} are dirty,
+ * i.e. possibly newer than the database, and are never evicted until
+ * {@link #markPersisted} confirms the database holds that sequence. Entries loaded with
+ * {@link #putIfAbsent} come from the database and are evictable right away.
+ */
+public interface AvailabilityStore {
+
+    /**
+     * Estimated heap bytes per key in {@link AvailabilityCache}'s route-day index, which
+     * holds every stored key; counted in each store's entry size against the same budget.
+     */
+    int INDEX_ENTRY_BYTES = 80;
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long high, long low, long sequence, long packedSeats, boolean dirty);
+    }
+
+    /**
+     * Told of keys entering and leaving the store, evictions included. Called under the
+     * store's write lock, so it must be quick and must not call back into the store.
+     */
+    interface KeyListener {
+        default void added(long high, long low) {
+        }
+
+        default void removed(long high, long low) {
+        }
+    }
+
+    /**
+     * Replaces the listener told of keys entering and leaving the store.
+     */
+    void setKeyListener(KeyListener listener);
+
+    /**
+     * Returns the stored availability, or {@code null} when the key is absent.
+     */
+    Availability get(long high, long low);
+
+    /**
+     * Returns the stored availability together with its sequence and encoded payload, read
+     * consistently, or {@code null} when the key is absent.
+     */
+    VersionedAvailability getVersioned(long high, long low);
+
+    /**
+     * Stores {@code packedSeats} as dirty if the key is absent or holds an older sequence.
+     * Returns {@code false} for duplicate and out-of-order updates, which are ignored.
+     */
+    boolean update(long high, long low, long sequence, long packedSeats);
+
+    /**
+     * Stores {@code availability} as clean only if the key is absent. Returns whether it
+     * was stored.
+     */
+    boolean putIfAbsent(long high, long low, long sequence, Availability availability);
+
+    /**
+     * Marks the entry evictable if the database now holds its sequence or a newer one.
+     */
+    void markPersisted(long high, long low, long sequence);
+
+    /**
+     * Removes the entry unless it is dirty, e.g. once its flight has departed. Returns the
+     * estimated bytes freed, or {@code 0} if nothing was removed.
+     */
+    long removeIfPersisted(long high, long low);
+
+    /**
+     * Removes the entry, dirty or not, unless it holds a sequence newer than
+     * {@code sequence}: the database has superseded the event that wrote it. Returns
+     * whether it was removed.
+     */
+    boolean removeUnlessNewer(long high, long low, long sequence);
+
+    /**
+     * Restores an entry captured by {@link #forEach}, keeping its dirty flag. Like
+     * {@link #update}, it only applies over an absent key or an older sequence.
+     */
+    boolean restore(long high, long low, long sequence, long packedSeats, boolean dirty);
+
+    /**
+     * Visits a consistent view of all entries; writers are held off until it returns.
+     */
+    void forEach(EntryVisitor visitor);
+
+    int size();
+
+    /**
+     * Estimated memory held by the current entries, as counted against the budget.
+     */
+    long estimatedBytes();
+
+    /**
+     * Entries not yet confirmed persisted, which eviction has to skip.
+     */
+    int dirtySize();
+
+    /**
+     * Estimated memory held beyond the budget because too few entries were evictable,
+     * e.g. while a write-behind backlog or events for unknown flights pin them.
+     */
+    long overBudgetBytes();
+
+    long evictions();
+}
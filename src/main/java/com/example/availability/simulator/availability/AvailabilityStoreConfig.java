@@ -0,0 +1,32 @@
+package com.example.availability.simulator.availability;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Selects the {@link AvailabilityStore} implementation with {@code availability.cache.store}
+ * ({@code heap}, the default, or {@code off-heap}) and bounds it by
+ * {@code availability.cache.max-size}.
+ */
+@Configuration
+public class AvailabilityStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "availability.cache.store", havingValue = "heap", matchIfMissing = true)
+    public AvailabilityStore heapAvailabilityStore(
+            @Value("${availability.cache.initial-capacity:65536}") int initialCapacity,
+            @Value("${availability.cache.max-size:256MB}") DataSize maxSize) {
+        return new HeapAvailabilityStore(initialCapacity, maxSize.toBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "availability.cache.store", havingValue = "off-heap")
+    public AvailabilityStore offHeapAvailabilityStore(
+            @Value("${availability.cache.initial-capacity:65536}") int initialCapacity,
+            @Value("${availability.cache.max-size:256MB}") DataSize maxSize) {
+        return new OffHeapAvailabilityStore(initialCapacity, maxSize.toBytes());
+    }
+}
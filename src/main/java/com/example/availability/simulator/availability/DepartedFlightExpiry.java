@@ -0,0 +1,53 @@
+package com.example.availability.simulator.availability;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Periodically drops flight-dates whose departure day is more than {@code retain-days}
+ * behind today from {@link AvailabilityCache}, so a long-running instance does not keep
+ * every flight it has ever seen.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.cache.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class DepartedFlightExpiry {
+
+    private static final Logger log = LoggerFactory.getLogger(DepartedFlightExpiry.class);
+
+    private final AvailabilityCache availabilityCache;
+    private final int retainDays;
+
+    public DepartedFlightExpiry(AvailabilityCache availabilityCache,
+                                @Value("${availability.cache.expiry.retain-days:1}") int retainDays) {
+        if (retainDays < 0) {
+            throw new IllegalArgumentException("Retained departure days must not be negative");
+        }
+        this.availabilityCache = availabilityCache;
+        this.retainDays = retainDays;
+    }
+
+    @Scheduled(fixedDelayString = "${availability.cache.expiry.interval-ms:600000}")
+    public void scheduledExpiry() {
+        expire(LocalDate.now());
+    }
+
+    /**
+     * Removes flight-dates departing before {@code today - retainDays} and returns how
+     * many were removed.
+     */
+    public long expire(LocalDate today) {
+        long bytesBefore = availabilityCache.expiredBytes();
+        long removed = availabilityCache.expireDepartedBefore(today.minusDays(retainDays));
+        if (removed > 0) {
+            log.info("Expired {} departed flight-dates ({} bytes); {} remain cached",
+                    removed, availabilityCache.expiredBytes() - bytesBefore, availabilityCache.size());
+        }
+        return removed;
+    }
+}
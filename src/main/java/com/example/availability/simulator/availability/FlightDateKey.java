@@ -19,6 +19,9 @@ public record FlightDateKey(
         if (destination == null || destination.isBlank()) {
             throw new IllegalArgumentException("Destination cannot be null or empty");
         }
+        if (!isIataCode(origin) || !isIataCode(destination)) {
+            throw new IllegalArgumentException("Origin and destination must be three-letter IATA codes");
+        }
         if (departureDateTime == null) {
             throw new IllegalArgumentException("Departure date time cannot be null");
         }
@@ -26,4 +29,17 @@ public record FlightDateKey(
             throw new IllegalArgumentException("Arrival date time cannot be null");
         }
     }
+
+    private static boolean isIataCode(String code) {
+        if (code.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
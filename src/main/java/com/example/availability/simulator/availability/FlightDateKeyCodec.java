@@ -0,0 +1,147 @@
+package com.example.availability.simulator.availability;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Canonical two-long encoding of a {@link FlightDateKey}.
+ * <ul>
+ *     <li>high: flight number (31 bits) | origin (15 bits) | destination (15 bits),
+ *     airport codes as base-26 IATA letters.</li>
+ *     <li>low: departure in epoch minutes (signed, 40 bits) | arrival minus departure in
+ *     minutes (signed, 24 bits).</li>
+ * </ul>
+ * Flight schedules are published to the minute, so seconds and below are not part of the
+ * encoded identity. A valid key never encodes to {@code high == 0}, which lets hash tables
+ * use zero as the empty-slot marker.
+ */
+public final class FlightDateKeyCodec {
+
+    private static final int AIRPORT_BITS = 15;
+    private static final long AIRPORT_MASK = (1L << AIRPORT_BITS) - 1;
+    private static final int OFFSET_BITS = 24;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final long MIN_OFFSET = -(1L << (OFFSET_BITS - 1));
+    private static final long MAX_OFFSET = (1L << (OFFSET_BITS - 1)) - 1;
+    private static final long ROUTE_MASK = (1L << (2 * AIRPORT_BITS)) - 1;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private FlightDateKeyCodec() {
+    }
+
+    public static long high(FlightDateKey key) {
+        return high(key.flightNumber(), key.origin(), key.destination());
+    }
+
+    public static long low(FlightDateKey key) {
+        return low(key.departureDateTime(), key.arrivalDateTime());
+    }
+
+    public static long high(int flightNumber, CharSequence origin, CharSequence destination) {
+        if (flightNumber <= 0) {
+            throw new IllegalArgumentException("Flight number must be a positive integer");
+        }
+        return ((long) flightNumber << (2 * AIRPORT_BITS)) | ((long) airport(origin) << AIRPORT_BITS) | airport(destination);
+    }
+
+    public static long low(LocalDateTime departureDateTime, LocalDateTime arrivalDateTime) {
+        long departure = epochMinute(departureDateTime);
+        long offset = epochMinute(arrivalDateTime) - departure;
+        if (offset < MIN_OFFSET || offset > MAX_OFFSET) {
+            throw new IllegalArgumentException("Arrival is too far from departure to encode: " + offset + " minutes");
+        }
+        return (departure << OFFSET_BITS) | (offset & OFFSET_MASK);
+    }
+
+    public static FlightDateKey decode(long high, long low) {
+        int flightNumber = (int) (high >>> (2 * AIRPORT_BITS));
+        String origin = airportCode((int) ((high >>> AIRPORT_BITS) & AIRPORT_MASK));
+        String destination = airportCode((int) (high & AIRPORT_MASK));
+        long departure = low >> OFFSET_BITS;
+        long offset = (low << (Long.SIZE - OFFSET_BITS)) >> (Long.SIZE - OFFSET_BITS);
+        return new FlightDateKey(flightNumber, origin, destination, dateTime(departure), dateTime(departure + offset));
+    }
+
+    /**
+     * Well-mixed 64-bit hash of an encoded key, suitable for power-of-two tables.
+     */
+    public static long hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Topic partition, out of {@code partitions}, that events for an encoded key are
+     * published to. Taken from the upper half of {@link #hash}, so it stays independent of
+     * slots picked from the lower bits, such as consumer lanes.
+     */
+    public static int partition(long high, long low, int partitions) {
+        return (int) ((hash(high, low) >>> Integer.SIZE) % partitions);
+    }
+
+    /**
+     * Origin and destination of an encoded key, comparable with {@link #route(CharSequence, CharSequence)}.
+     */
+    public static long route(long high) {
+        return high & ROUTE_MASK;
+    }
+
+    public static long route(CharSequence origin, CharSequence destination) {
+        return ((long) airport(origin) << AIRPORT_BITS) | airport(destination);
+    }
+
+    /**
+     * Route and departure day of an encoded key packed into one long: origin and
+     * destination in the upper 30 bits, the UTC epoch day in the lower 32.
+     */
+    static long routeDay(long high, long low) {
+        long departureDay = Math.floorDiv(low >> OFFSET_BITS, MINUTES_PER_DAY);
+        return (route(high) << Integer.SIZE) | (departureDay & 0xFFFFFFFFL);
+    }
+
+    static long routeDay(CharSequence origin, CharSequence destination, LocalDate day) {
+        return (route(origin, destination) << Integer.SIZE) | (day.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    static int airport(CharSequence code) {
+        if (code == null || code.length() != 3) {
+            throw new IllegalArgumentException("Airport must be a three-letter IATA code: " + code);
+        }
+        int value = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Airport must be a three-letter IATA code: " + code);
+            }
+            value = value * 26 + (c - 'A');
+        }
+        return value;
+    }
+
+    static String airportCode(int value) {
+        char[] chars = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            chars[i] = (char) ('A' + value % 26);
+            value /= 26;
+        }
+        return new String(chars);
+    }
+
+    /** Keys resolve to the minute; a finer time would alias another flight-date, so it is rejected. */
+    private static long epochMinute(LocalDateTime dateTime) {
+        if (dateTime.getSecond() != 0 || dateTime.getNano() != 0) {
+            throw new IllegalArgumentException("Flight times must be whole minutes: " + dateTime);
+        }
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime dateTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.availability.simulator.availability;
+
+/**
+ * On-heap store: a {@link PackedKeyMap} holding the {@link Availability} instances as
+ * they were cached, each with its response payload encoded once when written.
+ */
+public class HeapAvailabilityStore implements AvailabilityStore {
+
+    /**
+     * Rough retained size of one entry: state, availability and key records, the boxed
+     * flight number, two airport strings, two {@code LocalDateTime}s, the encoded payload,
+     * the table slot at its load factor and the key's route-day index entry.
+     */
+    static final int ENTRY_BYTES = 416 + INDEX_ENTRY_BYTES;
+
+    private record CachedState(VersionedAvailability versioned, boolean dirty) {
+        Availability availability() {
+            return versioned.availability();
+        }
+
+        long lastSequence() {
+            return versioned.sequence();
+        }
+    }
+
+    private final PackedKeyMap<CachedState> map;
+
+    public HeapAvailabilityStore(int initialCapacity, long maxBytes) {
+        int maxEntries = (int) Math.min(Integer.MAX_VALUE, maxBytes / ENTRY_BYTES);
+        this.map = new PackedKeyMap<>(Math.min(initialCapacity, maxEntries), maxEntries, state -> !state.dirty());
+    }
+
+    @Override
+    public void setKeyListener(KeyListener listener) {
+        map.setKeyListener(listener);
+    }
+
+    @Override
+    public Availability get(long high, long low) {
+        CachedState state = map.get(high, low);
+        return state != null ? state.availability() : null;
+    }
+
+    @Override
+    public VersionedAvailability getVersioned(long high, long low) {
+        CachedState state = map.get(high, low);
+        return state != null ? state.versioned() : null;
+    }
+
+    @Override
+    public boolean update(long high, long low, long sequence, long packedSeats) {
+        CachedState[] updated = new CachedState[1];
+        map.compute(high, low, current -> {
+            if (current != null && sequence <= current.lastSequence()) {
+                return current;
+            }
+            // Reuse the cached key; decode only for a first insert
+            FlightDateKey key = current != null ? current.availability().key() : FlightDateKeyCodec.decode(high, low);
+            updated[0] = new CachedState(VersionedAvailability.of(new Availability(key, packedSeats), sequence), true);
+            return updated[0];
+        });
+        return updated[0] != null;
+    }
+
+    @Override
+    public boolean putIfAbsent(long high, long low, long sequence, Availability availability) {
+        CachedState loaded = new CachedState(VersionedAvailability.of(availability, sequence), false);
+        return map.compute(high, low, current -> current != null ? current : loaded) == loaded;
+    }
+
+    @Override
+    public void markPersisted(long high, long low, long sequence) {
+        map.compute(high, low, current -> {
+            if (current == null || !current.dirty() || current.lastSequence() > sequence) {
+                return current;
+            }
+            return new CachedState(current.versioned(), false);
+        });
+    }
+
+    @Override
+    public long removeIfPersisted(long high, long low) {
+        return map.removeIf(high, low, state -> !state.dirty()) != null ? ENTRY_BYTES : 0L;
+    }
+
+    @Override
+    public boolean removeUnlessNewer(long high, long low, long sequence) {
+        return map.removeIf(high, low, state -> state.lastSequence() <= sequence) != null;
+    }
+
+    @Override
+    public boolean restore(long high, long low, long sequence, long packedSeats, boolean dirty) {
+        CachedState restored = new CachedState(
+                VersionedAvailability.of(new Availability(FlightDateKeyCodec.decode(high, low), packedSeats), sequence), dirty);
+        return map.compute(high, low, current -> {
+            if (current != null && sequence <= current.lastSequence()) {
+                return current;
+            }
+            return restored;
+        }) == restored;
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        map.forEach((high, low, state) ->
+                visitor.visit(high, low, state.lastSequence(), state.availability().packedSeats(), state.dirty()));
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return (long) map.size() * ENTRY_BYTES;
+    }
+
+    @Override
+    public int dirtySize() {
+        return map.pinned();
+    }
+
+    @Override
+    public long overBudgetBytes() {
+        return (long) map.overBudget() * ENTRY_BYTES;
+    }
+
+    @Override
+    public long evictions() {
+        return map.evictions();
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.availability.simulator.availability;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Off-heap store in a native {@link MemorySegment}, so millions of flight-dates cost the
+ * garbage collector nothing to trace.
+ * <p>
+ * The segment is an open-addressing table of fixed 40-byte slots
+ * {@code [high, low, sequence, packedSeats, dirty:int, referenced:byte]}, probed linearly;
+ * {@code high == 0} marks an empty slot. Reads use an optimistic {@link StampedLock} stamp
+ * and fall back to the read lock; writes, growth and eviction are serialized. Eviction is
+ * CLOCK over the slots, skipping dirty entries, with backward-shift deletion; dirty entries
+ * are counted so that when they are all that is left, inserts skip the sweep and the table
+ * grows past its budget, as {@link #overBudgetBytes} reports. Superseded
+ * segments belong to automatic arenas and are freed once no reader can still reach them.
+ * <p>
+ * Only the encoded key and packed seats are stored, so {@link #get} rebuilds the
+ * {@link Availability} from them on every hit.
+ */
+public class OffHeapAvailabilityStore implements AvailabilityStore {
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long SLOT_BYTES = 5L * Long.BYTES;
+    private static final long HIGH = 0L;
+    private static final long LOW = Long.BYTES;
+    private static final long SEQUENCE = 2L * Long.BYTES;
+    private static final long SEATS = 3L * Long.BYTES;
+    // Written only under the write lock
+    private static final long DIRTY = 4L * Long.BYTES;
+    // Set by readers without the lock; kept apart from DIRTY so a racy write cannot unpin an entry
+    private static final long REFERENCED = DIRTY + Integer.BYTES;
+
+    /** Slot bytes at the table's load factor plus the key's on-heap index entry, as counted against the budget. */
+    static final int ENTRY_BYTES = (int) Math.ceil(SLOT_BYTES / LOAD_FACTOR) + INDEX_ENTRY_BYTES;
+
+    private record Table(MemorySegment slots, int mask) {}
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxEntries;
+    private volatile KeyListener keyListener = new KeyListener() {};
+    private volatile Table table;
+    private int size;
+    private int dirtySize;
+    private int resizeThreshold;
+    private int clockHand;
+    private long evictions;
+
+    public OffHeapAvailabilityStore(int initialCapacity, long maxBytes) {
+        this.maxEntries = (int) Math.min(Integer.MAX_VALUE, maxBytes / ENTRY_BYTES);
+        int capacity = 16;
+        while (capacity < Math.min(initialCapacity, maxEntries)) {
+            capacity <<= 1;
+        }
+        this.table = allocate(capacity);
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @Override
+    public void setKeyListener(KeyListener listener) {
+        this.keyListener = listener;
+    }
+
+    @Override
+    public Availability get(long high, long low) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Table t = table;
+            long slot = find(t, high, low);
+            long seats = slot >= 0 ? t.slots().get(ValueLayout.JAVA_LONG, slot + SEATS) : 0L;
+            if (lock.validate(stamp)) {
+                return slot >= 0 ? new Availability(FlightDateKeyCodec.decode(high, low), seats) : null;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            Table t = table;
+            long slot = find(t, high, low);
+            return slot >= 0
+                    ? new Availability(FlightDateKeyCodec.decode(high, low), t.slots().get(ValueLayout.JAVA_LONG, slot + SEATS))
+                    : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads the sequence and seats in one consistent view. The payload is encoded on each
+     * read, as slots hold no references.
+     */
+    @Override
+    public VersionedAvailability getVersioned(long high, long low) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Table t = table;
+            long slot = find(t, high, low);
+            long sequence = slot >= 0 ? t.slots().get(ValueLayout.JAVA_LONG, slot + SEQUENCE) : 0L;
+            long seats = slot >= 0 ? t.slots().get(ValueLayout.JAVA_LONG, slot + SEATS) : 0L;
+            if (lock.validate(stamp)) {
+                return slot >= 0 ? VersionedAvailability.of(new Availability(FlightDateKeyCodec.decode(high, low), seats), sequence) : null;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            Table t = table;
+            long slot = find(t, high, low);
+            return slot >= 0
+                    ? VersionedAvailability.of(new Availability(FlightDateKeyCodec.decode(high, low),
+                            t.slots().get(ValueLayout.JAVA_LONG, slot + SEATS)), t.slots().get(ValueLayout.JAVA_LONG, slot + SEQUENCE))
+                    : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean update(long high, long low, long sequence, long packedSeats) {
+        long stamp = lock.writeLock();
+        try {
+            MemorySegment slots = table.slots();
+            long slot = insertionSlot(table, high, low);
+            boolean present = slots.get(ValueLayout.JAVA_LONG, slot + HIGH) != 0L;
+            if (present && sequence <= slots.get(ValueLayout.JAVA_LONG, slot + SEQUENCE)) {
+                return false;
+            }
+            write(slot, present, high, low, sequence, packedSeats, true);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(long high, long low, long sequence, Availability availability) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = insertionSlot(table, high, low);
+            if (table.slots().get(ValueLayout.JAVA_LONG, slot + HIGH) != 0L) {
+                return false;
+            }
+            write(slot, false, high, low, sequence, availability.packedSeats(), false);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean restore(long high, long low, long sequence, long packedSeats, boolean dirty) {
+        long stamp = lock.writeLock();
+        try {
+            MemorySegment slots = table.slots();
+            long slot = insertionSlot(table, high, low);
+            boolean present = slots.get(ValueLayout.JAVA_LONG, slot + HIGH) != 0L;
+            if (present && sequence <= slots.get(ValueLayout.JAVA_LONG, slot + SEQUENCE)) {
+                return false;
+            }
+            write(slot, present, high, low, sequence, packedSeats, dirty);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void forEach(EntryVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            MemorySegment slots = table.slots();
+            for (long offset = 0; offset < slots.byteSize(); offset += SLOT_BYTES) {
+                long high = slots.get(ValueLayout.JAVA_LONG, offset + HIGH);
+                if (high != 0L) {
+                    visitor.visit(high,
+                            slots.get(ValueLayout.JAVA_LONG, offset + LOW),
+                            slots.get(ValueLayout.JAVA_LONG, offset + SEQUENCE),
+                            slots.get(ValueLayout.JAVA_LONG, offset + SEATS),
+                            slots.get(ValueLayout.JAVA_INT, offset + DIRTY) != 0);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void markPersisted(long high, long low, long sequence) {
+        long stamp = lock.writeLock();
+        try {
+            MemorySegment slots = table.slots();
+            long slot = find(table, high, low);
+            if (slot >= 0 && slots.get(ValueLayout.JAVA_INT, slot + DIRTY) != 0
+                    && slots.get(ValueLayout.JAVA_LONG, slot + SEQUENCE) <= sequence) {
+                slots.set(ValueLayout.JAVA_INT, slot + DIRTY, 0);
+                dirtySize--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long removeIfPersisted(long high, long low) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            long slot = find(t, high, low);
+            if (slot < 0 || t.slots().get(ValueLayout.JAVA_INT, slot + DIRTY) != 0) {
+                return 0L;
+            }
+            removeAt(t, slot);
+            return ENTRY_BYTES;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean removeUnlessNewer(long high, long low, long sequence) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            long slot = find(t, high, low);
+            if (slot < 0 || t.slots().get(ValueLayout.JAVA_LONG, slot + SEQUENCE) > sequence) {
+                return false;
+            }
+            removeAt(t, slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return (long) size() * ENTRY_BYTES;
+    }
+
+    @Override
+    public int dirtySize() {
+        long stamp = lock.readLock();
+        try {
+            return dirtySize;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long overBudgetBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) Math.max(0, size - maxEntries) * ENTRY_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long evictions() {
+        long stamp = lock.readLock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void write(long slot, boolean present, long high, long low, long sequence, long packedSeats, boolean dirty) {
+        MemorySegment slots = table.slots();
+        dirtySize += (dirty ? 1 : 0) - (present && slots.get(ValueLayout.JAVA_INT, slot + DIRTY) != 0 ? 1 : 0);
+        slots.set(ValueLayout.JAVA_LONG, slot + SEQUENCE, sequence);
+        slots.set(ValueLayout.JAVA_LONG, slot + SEATS, packedSeats);
+        slots.set(ValueLayout.JAVA_INT, slot + DIRTY, dirty ? 1 : 0);
+        if (!present) {
+            slots.set(ValueLayout.JAVA_BYTE, slot + REFERENCED, (byte) 0);
+            slots.set(ValueLayout.JAVA_LONG, slot + LOW, low);
+            slots.set(ValueLayout.JAVA_LONG, slot + HIGH, high);
+            size++;
+            keyListener.added(high, low);
+            if (size > maxEntries) {
+                evictOne(slot, dirty);
+            }
+            if (size > resizeThreshold) {
+                resize();
+            }
+        }
+    }
+
+    /** Byte offset of the key's slot, or -1 when absent. Bounded so torn optimistic reads terminate. */
+    private static long find(Table t, long high, long low) {
+        MemorySegment slots = t.slots();
+        int mask = t.mask();
+        int index = (int) FlightDateKeyCodec.hash(high, low) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long offset = index * SLOT_BYTES;
+            long h = slots.get(ValueLayout.JAVA_LONG, offset + HIGH);
+            if (h == 0L) {
+                return -1L;
+            }
+            if (h == high && slots.get(ValueLayout.JAVA_LONG, offset + LOW) == low) {
+                if (slots.get(ValueLayout.JAVA_BYTE, offset + REFERENCED) == 0) {
+                    slots.set(ValueLayout.JAVA_BYTE, offset + REFERENCED, (byte) 1);
+                }
+                return offset;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1L;
+    }
+
+    /** Byte offset of the key's slot, or of the empty slot where it would be inserted. */
+    private static long insertionSlot(Table t, long high, long low) {
+        MemorySegment slots = t.slots();
+        int index = (int) FlightDateKeyCodec.hash(high, low) & t.mask();
+        while (true) {
+            long offset = index * SLOT_BYTES;
+            long h = slots.get(ValueLayout.JAVA_LONG, offset + HIGH);
+            if (h == 0L || (h == high && slots.get(ValueLayout.JAVA_LONG, offset + LOW) == low)) {
+                return offset;
+            }
+            index = (index + 1) & t.mask();
+        }
+    }
+
+    /**
+     * One CLOCK sweep of at most two revolutions; never evicts the slot just written. Skipped
+     * when every other entry is dirty, so a write-behind backlog does not cost a full sweep per insert.
+     */
+    private void evictOne(long insertedSlot, boolean insertedDirty) {
+        if (size - dirtySize - (insertedDirty ? 0 : 1) <= 0) {
+            return;
+        }
+        Table t = table;
+        MemorySegment slots = t.slots();
+        int capacity = t.mask() + 1;
+        for (int steps = 0; steps < 2 * capacity; steps++) {
+            long offset = clockHand * SLOT_BYTES;
+            clockHand = (clockHand + 1) & t.mask();
+            if (offset == insertedSlot || slots.get(ValueLayout.JAVA_LONG, offset + HIGH) == 0L) {
+                continue;
+            }
+            if (slots.get(ValueLayout.JAVA_BYTE, offset + REFERENCED) != 0) {
+                slots.set(ValueLayout.JAVA_BYTE, offset + REFERENCED, (byte) 0);
+                continue;
+            }
+            if (slots.get(ValueLayout.JAVA_INT, offset + DIRTY) == 0) {
+                removeAt(t, offset);
+                evictions++;
+                return;
+            }
+        }
+    }
+
+    /** Backward-shift deletion, keeping every probe chain contiguous without tombstones. */
+    private void removeAt(Table t, long offset) {
+        MemorySegment slots = t.slots();
+        if (slots.get(ValueLayout.JAVA_INT, offset + DIRTY) != 0) {
+            dirtySize--;
+        }
+        long removedHigh = slots.get(ValueLayout.JAVA_LONG, offset + HIGH);
+        long removedLow = slots.get(ValueLayout.JAVA_LONG, offset + LOW);
+        int mask = t.mask();
+        int hole = (int) (offset / SLOT_BYTES);
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            long h = slots.get(ValueLayout.JAVA_LONG, next * SLOT_BYTES + HIGH);
+            if (h == 0L) {
+                break;
+            }
+            int ideal = (int) FlightDateKeyCodec.hash(h, slots.get(ValueLayout.JAVA_LONG, next * SLOT_BYTES + LOW)) & mask;
+            boolean reachable = hole <= next ? (hole < ideal && ideal <= next) : (hole < ideal || ideal <= next);
+            if (!reachable) {
+                MemorySegment.copy(slots, next * SLOT_BYTES, slots, hole * SLOT_BYTES, SLOT_BYTES);
+                hole = next;
+            }
+        }
+        slots.asSlice(hole * SLOT_BYTES, SLOT_BYTES).fill((byte) 0);
+        size--;
+        keyListener.removed(removedHigh, removedLow);
+    }
+
+    private void resize() {
+        Table old = table;
+        Table grown = allocate((old.mask() + 1) * 2);
+        MemorySegment from = old.slots();
+        for (long offset = 0; offset < from.byteSize(); offset += SLOT_BYTES) {
+            long high = from.get(ValueLayout.JAVA_LONG, offset + HIGH);
+            if (high != 0L) {
+                long low = from.get(ValueLayout.JAVA_LONG, offset + LOW);
+                long slot = insertionSlot(grown, high, low);
+                MemorySegment.copy(from, offset, grown.slots(), slot, SLOT_BYTES);
+            }
+        }
+        resizeThreshold = (int) ((grown.mask() + 1) * LOAD_FACTOR);
+        clockHand = 0;
+        table = grown;
+    }
+
+    private static Table allocate(int capacity) {
+        MemorySegment slots = Arena.ofAuto().allocate(capacity * SLOT_BYTES, Long.BYTES);
+        slots.fill((byte) 0);
+        return new Table(slots, capacity - 1);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.availability.simulator.availability;
+
+/**
+ * Packs a GDS availability line such as {@code "F9 J9 Y9"} into a single {@code long}.
+ * <p>
+ * Each booking class occupies a 9-bit slot: 5 bits for the class letter (1 = A .. 26 = Z)
+ * and 4 bits for the seat count (0..15). Up to seven classes fit; slots are filled from
+ * the least significant bits in the order they appear, so formatting reproduces the
+ * canonical input. A zero letter marks the end of the line.
+ */
+public final class PackedAvailability {
+
+    public static final int MAX_CLASSES = 7;
+    public static final int MAX_SEATS = 15;
+
+    private static final int SLOT_BITS = 9;
+    private static final int COUNT_BITS = 4;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+
+    private PackedAvailability() {
+    }
+
+    public static long parse(String availabilityString) {
+        if (availabilityString == null) {
+            throw new IllegalArgumentException("Availability string cannot be null");
+        }
+        long packed = 0L;
+        int slot = 0;
+        int length = availabilityString.length();
+        int i = 0;
+        while (i < length) {
+            char c = availabilityString.charAt(i);
+            if (c == ' ') {
+                i++;
+                continue;
+            }
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Invalid booking class in availability: " + availabilityString);
+            }
+            if (slot == MAX_CLASSES) {
+                throw new IllegalArgumentException("More than " + MAX_CLASSES + " booking classes in availability: " + availabilityString);
+            }
+            int seats = 0;
+            int digits = 0;
+            i++;
+            while (i < length && availabilityString.charAt(i) >= '0' && availabilityString.charAt(i) <= '9') {
+                seats = seats * 10 + (availabilityString.charAt(i) - '0');
+                digits++;
+                i++;
+                if (seats > MAX_SEATS) {
+                    throw new IllegalArgumentException("Seat count above " + MAX_SEATS + " in availability: " + availabilityString);
+                }
+            }
+            if (digits == 0) {
+                throw new IllegalArgumentException("Missing seat count in availability: " + availabilityString);
+            }
+            long letter = c - 'A' + 1;
+            packed |= ((letter << COUNT_BITS) | seats) << (slot * SLOT_BITS);
+            slot++;
+        }
+        return packed;
+    }
+
+    public static String format(long packed) {
+        StringBuilder sb = new StringBuilder(MAX_CLASSES * 3);
+        for (int slot = 0; slot < MAX_CLASSES; slot++) {
+            long bits = (packed >>> (slot * SLOT_BITS)) & SLOT_MASK;
+            if (bits == 0) {
+                break;
+            }
+            if (slot > 0) {
+                sb.append(' ');
+            }
+            sb.append((char) ('A' + (bits >>> COUNT_BITS) - 1)).append(bits & COUNT_MASK);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The {@link #format} line as UTF-8 bytes, written directly without an intermediate
+     * {@code String}.
+     */
+    public static byte[] encode(long packed) {
+        int classes = 0;
+        int length = 0;
+        while (classes < MAX_CLASSES) {
+            long bits = (packed >>> (classes * SLOT_BITS)) & SLOT_MASK;
+            if (bits == 0) {
+                break;
+            }
+            length += (classes > 0 ? 1 : 0) + 1 + ((bits & COUNT_MASK) >= 10 ? 2 : 1);
+            classes++;
+        }
+        byte[] bytes = new byte[length];
+        int i = 0;
+        for (int slot = 0; slot < classes; slot++) {
+            long bits = (packed >>> (slot * SLOT_BITS)) & SLOT_MASK;
+            if (slot > 0) {
+                bytes[i++] = ' ';
+            }
+            bytes[i++] = (byte) ('A' + (bits >>> COUNT_BITS) - 1);
+            int seats = (int) (bits & COUNT_MASK);
+            if (seats >= 10) {
+                bytes[i++] = (byte) ('0' + seats / 10);
+            }
+            bytes[i++] = (byte) ('0' + seats % 10);
+        }
+        return bytes;
+    }
+
+    /**
+     * Seats left in the given booking class, or 0 when the class is not offered.
+     */
+    public static int seats(long packed, char bookingClass) {
+        long letter = bookingClass - 'A' + 1;
+        for (int slot = 0; slot < MAX_CLASSES; slot++) {
+            long bits = (packed >>> (slot * SLOT_BITS)) & SLOT_MASK;
+            if (bits == 0) {
+                break;
+            }
+            if ((bits >>> COUNT_BITS) == letter) {
+                return (int) (bits & COUNT_MASK);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces the seat count of a booking class already in the line, leaving the order
+     * of classes unchanged.
+     */
+    public static long withSeats(long packed, char bookingClass, int seats) {
+        if (seats < 0 || seats > MAX_SEATS) {
+            throw new IllegalArgumentException("Seat count must be between 0 and " + MAX_SEATS + ": " + seats);
+        }
+        long letter = bookingClass - 'A' + 1;
+        for (int slot = 0; slot < MAX_CLASSES; slot++) {
+            int shift = slot * SLOT_BITS;
+            long bits = (packed >>> shift) & SLOT_MASK;
+            if (bits == 0) {
+                break;
+            }
+            if ((bits >>> COUNT_BITS) == letter) {
+                return (packed & ~(COUNT_MASK << shift)) | ((long) seats << shift);
+            }
+        }
+        throw new IllegalArgumentException("Booking class " + bookingClass + " is not offered");
+    }
+
+    public static int totalSeats(long packed) {
+        int total = 0;
+        for (int slot = 0; slot < MAX_CLASSES; slot++) {
+            long bits = (packed >>> (slot * SLOT_BITS)) & SLOT_MASK;
+            if (bits == 0) {
+                break;
+            }
+            total += (int) (bits & COUNT_MASK);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.availability.simulator.availability;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Open-addressing hash map keyed by the {@link FlightDateKeyCodec} two-long encoding.
+ * <p>
+ * Keys live interleaved in a {@code long[]} and are probed linearly, so a lookup hashes
+ * two longs and compares primitives instead of hashing a record of boxed and string
+ * fields. Reads are lock-free in the common case (optimistic {@link StampedLock} stamp,
+ * retried under the read lock if a writer intervened); writes are serialized.
+ * <p>
+ * The map can be bounded: once it holds more than {@code maxSize} entries, inserts evict
+ * with CLOCK (second chance on a per-slot reference bit set by reads), skipping values the
+ * {@code evictable} predicate rejects. Pinned entries are counted, so an insert skips the
+ * sweep outright when nothing else is evictable; the map then exceeds its bound rather than
+ * drop a pinned entry, by {@link #overBudget()} entries.
+ */
+final class PackedKeyMap<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    @FunctionalInterface
+    interface EntryConsumer<V> {
+        void accept(long high, long low, V value);
+    }
+
+    private record Table(long[] keys, Object[] values, byte[] referenced, int mask) {
+        Table(int capacity) {
+            this(new long[capacity * 2], new Object[capacity], new byte[capacity], capacity - 1);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxSize;
+    private final Predicate<V> evictable;
+    private volatile AvailabilityStore.KeyListener keyListener = new AvailabilityStore.KeyListener() {};
+    private volatile Table table;
+    private int size;
+    // Entries the evictable predicate rejects
+    private int pinned;
+    private int resizeThreshold;
+    private int clockHand;
+    private long evictions;
+
+    PackedKeyMap(int initialCapacity) {
+        this(initialCapacity, Integer.MAX_VALUE, value -> false);
+    }
+
+    PackedKeyMap(int initialCapacity, int maxSize, Predicate<V> evictable) {
+        int capacity = 16;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        this.table = new Table(capacity);
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        this.maxSize = maxSize;
+        this.evictable = evictable;
+    }
+
+    /**
+     * Replaces the listener told of keys inserted and removed, evictions included; it runs
+     * under the write lock.
+     */
+    void setKeyListener(AvailabilityStore.KeyListener listener) {
+        this.keyListener = listener;
+    }
+
+    V get(long high, long low) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            V value = find(table, high, low);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, high, low);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Replaces the mapping with {@code remapping.apply(current)}, where {@code current} is
+     * {@code null} when absent. A {@code null} result leaves the map unchanged; use
+     * {@link #remove} to delete. Returns the value now mapped.
+     */
+    V compute(long high, long low, UnaryOperator<V> remapping) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slot(t, high, low);
+            @SuppressWarnings("unchecked")
+            V current = (V) t.values[slot];
+            V updated = remapping.apply(current);
+            if (updated == null) {
+                return current;
+            }
+            t.values[slot] = updated;
+            pinned += (evictable.test(updated) ? 0 : 1) - (current == null || evictable.test(current) ? 0 : 1);
+            if (current == null) {
+                t.keys[slot * 2] = high;
+                t.keys[slot * 2 + 1] = low;
+                // A fresh entry starts unreferenced so it is the first candidate if never read
+                t.referenced[slot] = 0;
+                size++;
+                keyListener.added(high, low);
+                if (size > maxSize) {
+                    evictOne(high, low, updated);
+                }
+                if (size > resizeThreshold) {
+                    resize();
+                }
+            }
+            return updated;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    V remove(long high, long low) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slot(t, high, low);
+            @SuppressWarnings("unchecked")
+            V current = (V) t.values[slot];
+            if (current != null) {
+                removeAt(t, slot);
+            }
+            return current;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the mapping if {@code condition} accepts its value. Returns the removed value,
+     * or {@code null} when absent or kept.
+     */
+    V removeIf(long high, long low, Predicate<V> condition) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slot(t, high, low);
+            @SuppressWarnings("unchecked")
+            V current = (V) t.values[slot];
+            if (current == null || !condition.test(current)) {
+                return null;
+            }
+            removeAt(t, slot);
+            return current;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Visits every entry under the read lock, so writers wait until the pass completes.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(EntryConsumer<V> action) {
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            for (int i = 0; i <= t.mask; i++) {
+                long high = t.keys[i * 2];
+                if (high != 0L) {
+                    action.accept(high, t.keys[i * 2 + 1], (V) t.values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Entries the {@code evictable} predicate currently rejects.
+     */
+    int pinned() {
+        long stamp = lock.readLock();
+        try {
+            return pinned;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Entries held beyond {@code maxSize} because too few were evictable.
+     */
+    int overBudget() {
+        long stamp = lock.readLock();
+        try {
+            return Math.max(0, size - maxSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    long evictions() {
+        long stamp = lock.readLock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V find(Table t, long high, long low) {
+        long[] keys = t.keys;
+        int mask = t.mask;
+        int index = (int) FlightDateKeyCodec.hash(high, low) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long h = keys[index * 2];
+            if (h == 0L) {
+                return null;
+            }
+            if (h == high && keys[index * 2 + 1] == low) {
+                // Racy but benign: at worst marks whichever entry a concurrent shift moved here
+                if (t.referenced[index] == 0) {
+                    t.referenced[index] = 1;
+                }
+                return (V) t.values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /** Slot holding the key, or the empty slot where it would be inserted. */
+    private static int slot(Table t, long high, long low) {
+        long[] keys = t.keys;
+        int index = (int) FlightDateKeyCodec.hash(high, low) & t.mask;
+        while (true) {
+            long h = keys[index * 2];
+            if (h == 0L || (h == high && keys[index * 2 + 1] == low)) {
+                return index;
+            }
+            index = (index + 1) & t.mask;
+        }
+    }
+
+    /**
+     * One CLOCK sweep of at most two revolutions; never evicts the key just inserted. Skipped
+     * when every other entry is pinned, so a backlog of them does not cost a full sweep per insert.
+     */
+    @SuppressWarnings("unchecked")
+    private void evictOne(long insertedHigh, long insertedLow, V inserted) {
+        if (size - pinned - (evictable.test(inserted) ? 1 : 0) <= 0) {
+            return;
+        }
+        Table t = table;
+        int capacity = t.mask + 1;
+        for (int steps = 0; steps < 2 * capacity; steps++) {
+            int index = clockHand;
+            clockHand = (clockHand + 1) & t.mask;
+            long h = t.keys[index * 2];
+            if (h == 0L || (h == insertedHigh && t.keys[index * 2 + 1] == insertedLow)) {
+                continue;
+            }
+            if (t.referenced[index] != 0) {
+                t.referenced[index] = 0;
+                continue;
+            }
+            if (evictable.test((V) t.values[index])) {
+                removeAt(t, index);
+                evictions++;
+                return;
+            }
+        }
+    }
+
+    /** Backward-shift deletion, keeping every probe chain contiguous without tombstones. */
+    @SuppressWarnings("unchecked")
+    private void removeAt(Table t, int index) {
+        if (!evictable.test((V) t.values[index])) {
+            pinned--;
+        }
+        long[] keys = t.keys;
+        long removedHigh = keys[index * 2];
+        long removedLow = keys[index * 2 + 1];
+        int mask = t.mask;
+        int hole = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            long h = keys[next * 2];
+            if (h == 0L) {
+                break;
+            }
+            int ideal = (int) FlightDateKeyCodec.hash(h, keys[next * 2 + 1]) & mask;
+            boolean reachable = hole <= next ? (hole < ideal && ideal <= next) : (hole < ideal || ideal <= next);
+            if (!reachable) {
+                keys[hole * 2] = h;
+                keys[hole * 2 + 1] = keys[next * 2 + 1];
+                t.values[hole] = t.values[next];
+                t.referenced[hole] = t.referenced[next];
+                hole = next;
+            }
+        }
+        keys[hole * 2] = 0L;
+        keys[hole * 2 + 1] = 0L;
+        t.values[hole] = null;
+        t.referenced[hole] = 0;
+        size--;
+        keyListener.removed(removedHigh, removedLow);
+    }
+
+    private void resize() {
+        Table old = table;
+        Table grown = new Table((old.mask + 1) * 2);
+        for (int i = 0; i <= old.mask; i++) {
+            long high = old.keys[i * 2];
+            if (high != 0L) {
+                long low = old.keys[i * 2 + 1];
+                int slot = slot(grown, high, low);
+                grown.keys[slot * 2] = high;
+                grown.keys[slot * 2 + 1] = low;
+                grown.values[slot] = old.values[i];
+                grown.referenced[slot] = old.referenced[i];
+            }
+        }
+        resizeThreshold = (int) ((grown.mask + 1) * LOAD_FACTOR);
+        clockHand = 0;
+        table = grown;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.availability.simulator.availability;
+
+/**
+ * A cached {@link Availability} with the sequence of the last event applied to it and its
+ * response payload, the availability line pre-encoded as UTF-8. Callers must not modify
+ * the payload array; it is shared by every reader of the entry.
+ */
+public record VersionedAvailability(Availability availability, long sequence, byte[] payload) {
+
+    public static VersionedAvailability of(Availability availability, long sequence) {
+        return new VersionedAvailability(availability, sequence, PackedAvailability.encode(availability.packedSeats()));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.availability.simulator.cluster;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "availability.cluster.enabled", havingValue = "true")
+public class ClusterKafkaConfig {
+
+    private static final String TOPIC = "availability-updates";
+
+    /**
+     * Refuses to start a node whose configured partition count differs from the topic's.
+     */
+    @Bean
+    public SmartInitializingSingleton topicPartitionCheck(ClusterTopology topology, KafkaAdmin kafkaAdmin) {
+        return () -> topology.checkTopicPartitions(TOPIC,
+                kafkaAdmin.describeTopics(TOPIC).get(TOPIC).partitions().size());
+    }
+
+    /**
+     * Makes the availability consumers assign partitions along the cluster ring, so each
+     * node consumes the events for the flight-dates it owns.
+     */
+    @Bean
+    public DefaultKafkaConsumerFactoryCustomizer ringPartitionAssignment(ClusterTopology topology,
+            @Value("${availability.cluster.virtual-nodes:128}") int virtualNodes) {
+        return factory -> factory.updateConfigs(Map.of(
+                ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RingPartitionAssignor.class.getName(),
+                RingPartitionAssignor.NODES_CONFIG, String.join(",", topology.nodes()),
+                RingPartitionAssignor.SELF_CONFIG, topology.self(),
+                RingPartitionAssignor.VIRTUAL_NODES_CONFIG, virtualNodes));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.availability.simulator.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consistent-hash ring of cluster nodes. Each node is placed at {@code virtualNodes}
+ * pseudo-random points; a point on the ring belongs to the first node found clockwise
+ * from it. Adding or removing a node only moves the points between its own positions and
+ * their predecessors, about {@code 1/N} of the space.
+ * <p>
+ * Immutable and identical on every node given the same node list, in any order.
+ */
+public final class ClusterRing {
+
+    private final List<String> nodes;
+    // Sorted positions, with the index into nodes of the node at each position
+    private final long[] positions;
+    private final int[] owners;
+
+    public ClusterRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A cluster ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = nodes.stream().distinct().sorted().toList();
+        if (this.nodes.size() != nodes.size()) {
+            throw new IllegalArgumentException("Cluster nodes must be distinct: " + nodes);
+        }
+
+        long[] placed = new long[this.nodes.size() * virtualNodes];
+        for (int node = 0; node < this.nodes.size(); node++) {
+            long seed = fnv1a(this.nodes.get(node));
+            for (int v = 0; v < virtualNodes; v++) {
+                // Position in the upper bits, node index in the lower ones, so a plain sort keeps the pairing
+                placed[node * virtualNodes + v] = (mix(seed + v * 0x9E3779B97F4A7C15L) & ~0xFFFFL) | node;
+            }
+        }
+        Arrays.sort(placed);
+        this.positions = new long[placed.length];
+        this.owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            positions[i] = placed[i] & ~0xFFFFL;
+            owners[i] = (int) (placed[i] & 0xFFFFL);
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Node owning {@code point}, a well-mixed 64-bit hash.
+     */
+    public String owner(long point) {
+        return nodes.get(owners[first(point)]);
+    }
+
+    /**
+     * Node owning {@code point} when only {@code live} nodes are up: the first live node
+     * clockwise. Returns {@code null} if no node of the ring is live.
+     */
+    public String owner(long point, Collection<String> live) {
+        int start = first(point);
+        for (int i = 0; i < positions.length; i++) {
+            String node = nodes.get(owners[(start + i) % positions.length]);
+            if (live.contains(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ring point of a topic partition.
+     */
+    public static long point(int partition) {
+        return mix(partition * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L);
+    }
+
+    private int first(long point) {
+        long position = point & ~0xFFFFL;
+        int index = Arrays.binarySearch(positions, position);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        // Past the last position wraps around to the first
+        return index == positions.length ? 0 : index;
+    }
+
+    private static long fnv1a(String node) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
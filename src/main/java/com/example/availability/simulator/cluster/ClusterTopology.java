@@ -0,0 +1,86 @@
+package com.example.availability.simulator.cluster;
+
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which node of the cluster owns a flight-date. A key maps to its topic partition with
+ * {@link FlightDateKeyCodec#partition}, and each partition to a node on the
+ * {@link ClusterRing}. The same mapping drives {@link RingPartitionAssignor}, so a node
+ * consumes the events of exactly the keys it serves while every node is up.
+ * <p>
+ * Nodes are identified by the base URL their peers reach them at.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.cluster.enabled", havingValue = "true")
+public class ClusterTopology {
+
+    private final ClusterRing ring;
+    private final String self;
+    private final String[] partitionOwners;
+
+    public ClusterTopology(@Value("${availability.cluster.nodes}") List<String> nodes,
+                           @Value("${availability.cluster.self}") String self,
+                           @Value("${availability.cluster.partitions:12}") int partitions,
+                           @Value("${availability.cluster.virtual-nodes:128}") int virtualNodes) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive");
+        }
+        this.ring = new ClusterRing(nodes, virtualNodes);
+        if (!ring.nodes().contains(self)) {
+            throw new IllegalArgumentException("This node, " + self + ", is not one of the cluster nodes " + nodes);
+        }
+        this.self = self;
+        this.partitionOwners = new String[partitions];
+        for (int partition = 0; partition < partitions; partition++) {
+            partitionOwners[partition] = ring.owner(ClusterRing.point(partition));
+        }
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    public int partitions() {
+        return partitionOwners.length;
+    }
+
+    /**
+     * Fails unless the availability topic has the configured partition count. Otherwise
+     * producers and consumers would place keys on partitions other than the ones this
+     * topology routes them to.
+     */
+    public void checkTopicPartitions(String topic, int topicPartitions) {
+        if (topicPartitions != partitionOwners.length) {
+            throw new IllegalStateException("Topic " + topic + " has " + topicPartitions
+                    + " partitions but availability.cluster.partitions is " + partitionOwners.length);
+        }
+    }
+
+    public String owner(long high, long low) {
+        return partitionOwners[FlightDateKeyCodec.partition(high, low, partitionOwners.length)];
+    }
+
+    public boolean isLocal(long high, long low) {
+        return self.equals(owner(high, low));
+    }
+
+    public List<Integer> ownedPartitions() {
+        List<Integer> owned = new ArrayList<>();
+        for (int partition = 0; partition < partitionOwners.length; partition++) {
+            if (self.equals(partitionOwners[partition])) {
+                owned.add(partition);
+            }
+        }
+        return owned;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.availability.simulator.cluster;
+
+import com.example.availability.simulator.availability.VersionedAvailability;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Looks up flight-dates owned by other cluster nodes over their internal lookup endpoint.
+ * <p>
+ * Single lookups are queued per peer and sent by a few dispatcher threads, each taking
+ * whatever has queued up while the previous request was in flight. Batches grow with the
+ * load and no request waits on a timer. Callers with many keys send them as one batch.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.cluster.enabled", havingValue = "true")
+public class PeerAvailabilityClient implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(PeerAvailabilityClient.class);
+
+    public static final String LOOKUP_PATH = "/internal/availability/lookup";
+
+    private record PendingLookup(long high, long low, CompletableFuture<Optional<VersionedAvailability>> result) {}
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final int maxBatch;
+    private final Map<String, BlockingQueue<PendingLookup>> queues = new HashMap<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running = true;
+
+    public PeerAvailabilityClient(ClusterTopology topology,
+                                  @Value("${availability.cluster.peer.max-batch:256}") int maxBatch,
+                                  @Value("${availability.cluster.peer.connections:4}") int connections,
+                                  @Value("${availability.cluster.peer.timeout:PT1S}") Duration timeout) {
+        if (maxBatch <= 0 || connections <= 0) {
+            throw new IllegalArgumentException("Peer batch size and connections must be positive");
+        }
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.timeout = timeout;
+        this.maxBatch = maxBatch;
+        for (String peer : topology.nodes()) {
+            if (peer.equals(topology.self())) {
+                continue;
+            }
+            BlockingQueue<PendingLookup> queue = new LinkedBlockingQueue<>();
+            queues.put(peer, queue);
+            for (int i = 0; i < connections; i++) {
+                dispatchers.add(Thread.ofVirtual().name("peer-lookup-" + peer + "-" + i).start(() -> dispatch(peer, queue)));
+            }
+        }
+    }
+
+    /**
+     * Looks up one key on {@code peer}, batched with other callers' lookups.
+     */
+    public Optional<VersionedAvailability> lookup(String peer, long high, long low) {
+        BlockingQueue<PendingLookup> queue = queues.get(peer);
+        if (queue == null) {
+            throw new IllegalArgumentException("Not a peer of this node: " + peer);
+        }
+        CompletableFuture<Optional<VersionedAvailability>> result = new CompletableFuture<>();
+        queue.add(new PendingLookup(high, low, result));
+        try {
+            return result.get(2 * timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new PeerUnavailableException("Lookup on " + peer + " failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new PeerUnavailableException("Lookup on " + peer + " timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PeerUnavailableException("Interrupted while looking up on " + peer, e);
+        }
+    }
+
+    /**
+     * Looks up {@code count} keys on {@code peer} in one request. Results are in key order.
+     */
+    public List<Optional<VersionedAvailability>> lookupAll(String peer, long[] highs, long[] lows, int count) {
+        if (!queues.containsKey(peer)) {
+            throw new IllegalArgumentException("Not a peer of this node: " + peer);
+        }
+        List<Optional<VersionedAvailability>> results = new ArrayList<>(count);
+        for (int from = 0; from < count; from += maxBatch) {
+            int size = Math.min(maxBatch, count - from);
+            long[] batchHighs = Arrays.copyOfRange(highs, from, from + size);
+            long[] batchLows = Arrays.copyOfRange(lows, from, from + size);
+            try {
+                results.addAll(send(peer, batchHighs, batchLows, size));
+            } catch (IOException e) {
+                throw new PeerUnavailableException("Lookup on " + peer + " failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PeerUnavailableException("Interrupted while looking up on " + peer, e);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("availability.cluster.peer.requests", requests, LongAdder::sum)
+                .description("Lookup requests sent to other cluster nodes")
+                .register(registry);
+        FunctionCounter.builder("availability.cluster.peer.keys", keys, LongAdder::sum)
+                .description("Flight-dates looked up on other cluster nodes")
+                .register(registry);
+        FunctionCounter.builder("availability.cluster.peer.failures", failures, LongAdder::sum)
+                .description("Lookup requests to other cluster nodes that failed")
+                .register(registry);
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        dispatchers.forEach(Thread::interrupt);
+    }
+
+    private void dispatch(String peer, BlockingQueue<PendingLookup> queue) {
+        List<PendingLookup> batch = new ArrayList<>(maxBatch);
+        long[] highs = new long[maxBatch];
+        long[] lows = new long[maxBatch];
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            for (int i = 0; i < batch.size(); i++) {
+                highs[i] = batch.get(i).high();
+                lows[i] = batch.get(i).low();
+            }
+            try {
+                List<Optional<VersionedAvailability>> results = send(peer, highs, lows, batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result().complete(results.get(i));
+                }
+            } catch (IOException | RuntimeException e) {
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                break;
+            }
+            batch.clear();
+        }
+        List<PendingLookup> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.result().completeExceptionally(new IllegalStateException("Peer client shut down")));
+    }
+
+    private List<Optional<VersionedAvailability>> send(String peer, long[] highs, long[] lows, int count)
+            throws IOException, InterruptedException {
+        requests.increment();
+        keys.add(count);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(peer + LOOKUP_PATH))
+                .timeout(timeout)
+                .header("Content-Type", PeerLookupCodec.MEDIA_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(PeerLookupCodec.encodeRequest(highs, lows, count)))
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Lookup of {} keys on {} failed: {}", count, peer, e.toString());
+            throw e;
+        }
+        if (response.statusCode() != 200) {
+            failures.increment();
+            throw new IOException("Lookup on " + peer + " returned HTTP " + response.statusCode());
+        }
+        try {
+            return PeerLookupCodec.decodeResponse(response.body(), highs, lows, count);
+        } catch (IllegalArgumentException e) {
+            failures.increment();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.availability.simulator.cluster;
+
+import com.example.availability.simulator.availability.Availability;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Wire format of lookups between cluster nodes, both ways a flat big-endian array of longs.
+ * A request is the encoded keys as {@code high, low} pairs; the response holds
+ * {@code sequence, packedSeats} per key in request order, with a negative sequence for
+ * keys the owner does not know.
+ */
+public final class PeerLookupCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.availability-lookup";
+
+    private static final int KEY_BYTES = 2 * Long.BYTES;
+    private static final long ABSENT = -1L;
+
+    private PeerLookupCodec() {
+    }
+
+    public static byte[] encodeRequest(long[] highs, long[] lows, int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(count * KEY_BYTES);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(highs[i]).putLong(lows[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Returns the keys as {@code high, low} pairs.
+     */
+    public static long[] decodeRequest(byte[] body) {
+        if (body.length % KEY_BYTES != 0) {
+            throw new IllegalArgumentException("Lookup request of " + body.length + " bytes is not a whole number of keys");
+        }
+        long[] keys = new long[body.length / Long.BYTES];
+        ByteBuffer.wrap(body).asLongBuffer().get(keys);
+        return keys;
+    }
+
+    public static byte[] encodeResponse(List<Optional<VersionedAvailability>> results) {
+        ByteBuffer buffer = ByteBuffer.allocate(results.size() * KEY_BYTES);
+        for (Optional<VersionedAvailability> result : results) {
+            if (result.isPresent()) {
+                buffer.putLong(result.get().sequence()).putLong(result.get().availability().packedSeats());
+            } else {
+                buffer.putLong(ABSENT).putLong(0L);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static List<Optional<VersionedAvailability>> decodeResponse(byte[] body, long[] highs, long[] lows, int count) {
+        if (body.length != count * KEY_BYTES) {
+            throw new IllegalArgumentException("Lookup response of " + body.length + " bytes does not match " + count + " keys");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<Optional<VersionedAvailability>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long sequence = buffer.getLong();
+            long packedSeats = buffer.getLong();
+            results.add(sequence < 0 ? Optional.empty() : Optional.of(VersionedAvailability.of(
+                    new Availability(FlightDateKeyCodec.decode(highs[i], lows[i]), packedSeats), sequence)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.availability.simulator.cluster;
+
+/**
+ * A cluster node owning the requested flight-dates did not answer a lookup: it failed,
+ * timed out, or sent back something unreadable.
+ */
+public class PeerUnavailableException extends RuntimeException {
+
+    public PeerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.availability.simulator.cluster;
+
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Configurable;
+import org.apache.kafka.common.TopicPartition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consumer group assignor that hands each partition to the cluster node owning it on the
+ * {@link ClusterRing}, so the events a node consumes are those of the keys it serves.
+ * Members announce their node in their subscription. While a node is down its partitions
+ * go to the next live node clockwise, the same node the ring would pick without it, and
+ * return when it rejoins.
+ * <p>
+ * Configured from the consumer properties {@link #NODES_CONFIG}, {@link #SELF_CONFIG} and
+ * {@link #VIRTUAL_NODES_CONFIG}.
+ */
+public class RingPartitionAssignor implements ConsumerPartitionAssignor, Configurable {
+
+    public static final String NODES_CONFIG = "availability.cluster.nodes";
+    public static final String SELF_CONFIG = "availability.cluster.self";
+    public static final String VIRTUAL_NODES_CONFIG = "availability.cluster.virtual-nodes";
+
+    private ClusterRing ring;
+    private String self;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object nodes = configs.get(NODES_CONFIG);
+        Object virtualNodes = configs.get(VIRTUAL_NODES_CONFIG);
+        List<String> nodeList = nodes instanceof List<?> list
+                ? list.stream().map(String::valueOf).toList()
+                : Arrays.stream(String.valueOf(nodes).split(",")).map(String::trim).toList();
+        this.ring = new ClusterRing(nodeList, virtualNodes != null ? Integer.parseInt(String.valueOf(virtualNodes)) : 128);
+        this.self = String.valueOf(configs.get(SELF_CONFIG));
+    }
+
+    @Override
+    public String name() {
+        return "availability-ring";
+    }
+
+    @Override
+    public ByteBuffer subscriptionUserData(Set<String> topics) {
+        return ByteBuffer.wrap(self.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public GroupAssignment assign(Cluster metadata, GroupSubscription groupSubscription) {
+        Map<String, Subscription> subscriptions = groupSubscription.groupSubscription();
+        Map<String, List<TopicPartition>> assigned = new HashMap<>();
+        Map<String, String> memberNodes = new HashMap<>();
+        subscriptions.forEach((member, subscription) -> {
+            assigned.put(member, new ArrayList<>());
+            memberNodes.put(member, node(subscription));
+        });
+
+        Set<String> topics = new TreeSet<>();
+        subscriptions.values().forEach(subscription -> topics.addAll(subscription.topics()));
+        for (String topic : topics) {
+            // Members in a stable order, so repeated rebalances give the same answer
+            List<String> members = subscriptions.keySet().stream()
+                    .filter(member -> subscriptions.get(member).topics().contains(topic))
+                    .sorted()
+                    .toList();
+            Set<String> live = new HashSet<>();
+            members.forEach(member -> live.add(memberNodes.get(member)));
+            Integer partitions = metadata.partitionCountForTopic(topic);
+            if (partitions == null) {
+                continue;
+            }
+            // Members on the owning node share its partitions round-robin; without any ring node, all members do
+            Map<String, Integer> handedOut = new HashMap<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                String owner = ring.owner(ClusterRing.point(partition), live);
+                List<String> candidates = owner == null ? members
+                        : members.stream().filter(member -> owner.equals(memberNodes.get(member))).toList();
+                int turn = handedOut.merge(String.valueOf(owner), 1, Integer::sum) - 1;
+                String member = candidates.get(turn % candidates.size());
+                assigned.get(member).add(new TopicPartition(topic, partition));
+            }
+        }
+
+        Map<String, Assignment> assignments = new HashMap<>();
+        assigned.forEach((member, partitions) -> assignments.put(member, new Assignment(partitions)));
+        return new GroupAssignment(assignments);
+    }
+
+    private static String node(Subscription subscription) {
+        ByteBuffer userData = subscription.userData();
+        if (userData == null) {
+            return "";
+        }
+        byte[] bytes = new byte[userData.remaining()];
+        userData.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,37 +2,148 @@ package com.example.availability.simulator.controller;
 
 import com.example.availability.simulator.availability.Availability;
 import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.example.availability.simulator.cluster.PeerUnavailableException;
 import com.example.availability.simulator.service.AvailabilityService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 public class AvailabilityController {
 
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
     private final AvailabilityService availabilityService;
+    private final ObjectMapper objectMapper;
+    private final int batchMaxKeys;
 
-    public AvailabilityController(AvailabilityService availabilityService) {
+    public AvailabilityController(AvailabilityService availabilityService, ObjectMapper objectMapper,
+                                  @Value("${availability.batch.max-keys:1000}") int batchMaxKeys) {
         this.availabilityService = availabilityService;
+        this.objectMapper = objectMapper;
+        this.batchMaxKeys = batchMaxKeys;
     }
 
+    /**
+     * The availability line as plain text, written from the payload the cache pre-encoded
+     * for the entry. The ETag changes whenever an event is applied to the flight-date, so
+     * polling clients sending it back in {@code If-None-Match} get a bodiless 304 until then.
+     */
     @GetMapping("/availability")
-    public ResponseEntity<String> getAvailability(
-            @RequestParam Integer flightNumber,
+    public ResponseEntity<byte[]> getAvailability(
+            @RequestParam int flightNumber,
             @RequestParam String origin,
             @RequestParam String destination,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime departureDateTime,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivalDateTime
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivalDateTime,
+            WebRequest webRequest
+    ) {
+        // Encode straight from the request parameters; no FlightDateKey is built on a cache hit
+        long high;
+        long low;
+        try {
+            high = FlightDateKeyCodec.high(flightNumber, origin, destination);
+            low = FlightDateKeyCodec.low(departureDateTime, arrivalDateTime);
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e);
+        }
+
+        Optional<VersionedAvailability> found = availabilityService.getVersionedAvailability(high, low);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        VersionedAvailability versioned = found.get();
+        String etag = etag(versioned);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).contentType(TEXT_PLAIN_UTF8).body(versioned.payload());
+    }
+
+    /**
+     * Every flight on the route departing on {@code date} (UTC), ordered by departure.
+     */
+    @GetMapping("/availability/search")
+    public List<BatchAvailabilityResult> searchAvailability(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
     ) {
-        FlightDateKey key = new FlightDateKey(flightNumber, origin, destination, departureDateTime, arrivalDateTime);
+        try {
+            FlightDateKeyCodec.route(origin, destination);
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e);
+        }
+        return availabilityService.searchByRouteAndDay(origin, destination, date).stream()
+                .map(a -> BatchAvailabilityResult.of(a.key(), Optional.of(a)))
+                .toList();
+    }
+
+    /**
+     * Looks up many flight-dates in one round trip. Results come back as a JSON array in
+     * request order, one {@link BatchAvailabilityResult} per key, written to the response
+     * as they are serialized rather than buffered into a single body.
+     */
+    @PostMapping(path = "/availability/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getAvailabilities(@RequestBody List<FlightDateKey> keys) {
+        if (keys.size() > batchMaxKeys) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + batchMaxKeys + " keys per batch, got " + keys.size());
+        }
+        for (FlightDateKey key : keys) {
+            try {
+                FlightDateKeyCodec.high(key);
+                FlightDateKeyCodec.low(key);
+            } catch (IllegalArgumentException e) {
+                throw badRequest(e);
+            }
+        }
+        List<Optional<Availability>> results = availabilityService.getAvailabilities(keys);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                for (int i = 0; i < keys.size(); i++) {
+                    objectMapper.writeValue(generator, BatchAvailabilityResult.of(keys.get(i), results.get(i)));
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // The sequence alone would do for applied events; the seats cover rows loaded at sequence 0
+    private static String etag(VersionedAvailability versioned) {
+        return "\"" + versioned.sequence() + "-" + Long.toHexString(versioned.availability().packedSeats()) + "\"";
+    }
+
+    // Only the request's own keys are rejected; the same exception from deeper down is a bug
+    private static ResponseStatusException badRequest(IllegalArgumentException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
 
-        return availabilityService.getAvailability(key)
-                .map(Availability::availabilityString)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    @ExceptionHandler(PeerUnavailableException.class)
+    public ResponseEntity<String> handleUnavailable(PeerUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
     }
 }
@@ -0,0 +1,75 @@
+package com.example.availability.simulator.controller;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.subscription.AvailabilitySubscriptionRegistry;
+import com.example.availability.simulator.subscription.SubscriptionLimitException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Server-sent event streams of availability changes, as an alternative to polling
+ * {@code GET /availability}. Each change arrives as an {@code availability} event carrying
+ * an {@link com.example.availability.simulator.subscription.AvailabilityDelta}.
+ */
+@RestController
+public class AvailabilityStreamController {
+
+    private final AvailabilitySubscriptionRegistry subscriptionRegistry;
+    private final int maxKeys;
+
+    public AvailabilityStreamController(AvailabilitySubscriptionRegistry subscriptionRegistry,
+                                        @Value("${availability.batch.max-keys:1000}") int maxKeys) {
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.maxKeys = maxKeys;
+    }
+
+    @GetMapping(path = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRoute(@RequestParam String origin, @RequestParam String destination) {
+        // Validates the airport codes before a stream is opened
+        try {
+            FlightDateKeyCodec.route(origin, destination);
+        } catch (IllegalArgumentException e) {
+            throw badRequest(e);
+        }
+        return subscriptionRegistry.subscribe(origin, destination);
+    }
+
+    @PostMapping(path = "/availability/stream", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamKeys(@RequestBody List<FlightDateKey> keys) {
+        if (keys.isEmpty() || keys.size() > maxKeys) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Between 1 and " + maxKeys + " keys per stream, got " + keys.size());
+        }
+        for (FlightDateKey key : keys) {
+            try {
+                FlightDateKeyCodec.high(key);
+                FlightDateKeyCodec.low(key);
+            } catch (IllegalArgumentException e) {
+                throw badRequest(e);
+            }
+        }
+        return subscriptionRegistry.subscribe(keys);
+    }
+
+    private static ResponseStatusException badRequest(IllegalArgumentException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+
+    @ExceptionHandler(SubscriptionLimitException.class)
+    public ResponseEntity<String> handleSubscriptionLimit(SubscriptionLimitException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+    }
+}
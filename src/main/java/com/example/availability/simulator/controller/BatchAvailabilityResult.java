@@ -0,0 +1,21 @@
+package com.example.availability.simulator.controller;
+
+import com.example.availability.simulator.availability.Availability;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Optional;
+
+/**
+ * One flight-date in a multi-flight availability response; {@code availability} is
+ * omitted when the flight-date was not found.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchAvailabilityResult(FlightDateKey key, boolean found, String availability) {
+
+    static BatchAvailabilityResult of(FlightDateKey key, Optional<Availability> availability) {
+        return availability
+                .map(a -> new BatchAvailabilityResult(key, true, a.availabilityString()))
+                .orElseGet(() -> new BatchAvailabilityResult(key, false, null));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.availability.simulator.controller;
+
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.example.availability.simulator.cluster.PeerAvailabilityClient;
+import com.example.availability.simulator.cluster.PeerLookupCodec;
+import com.example.availability.simulator.service.AvailabilityService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Internal endpoint answering other cluster nodes' lookups of the flight-dates this node
+ * owns, in the {@link PeerLookupCodec} format. Served from this node only, never forwarded.
+ */
+@RestController
+@ConditionalOnProperty(name = "availability.cluster.enabled", havingValue = "true")
+public class ClusterPeerController {
+
+    private final AvailabilityService availabilityService;
+
+    public ClusterPeerController(AvailabilityService availabilityService) {
+        this.availabilityService = availabilityService;
+    }
+
+    @PostMapping(path = PeerAvailabilityClient.LOOKUP_PATH, consumes = PeerLookupCodec.MEDIA_TYPE,
+            produces = PeerLookupCodec.MEDIA_TYPE)
+    public byte[] lookup(@RequestBody byte[] body) {
+        long[] keys;
+        try {
+            keys = PeerLookupCodec.decodeRequest(body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        List<Optional<VersionedAvailability>> results = new ArrayList<>(keys.length / 2);
+        for (int i = 0; i < keys.length; i += 2) {
+            results.add(availabilityService.getLocalVersionedAvailability(keys[i], keys[i + 1]));
+        }
+        return PeerLookupCodec.encodeResponse(results);
+    }
+}
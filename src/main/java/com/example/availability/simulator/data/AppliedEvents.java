@@ -0,0 +1,35 @@
+package com.example.availability.simulator.data;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of {@link FlightRepositoryCustom#applyIfNewer}: events written to their row, and
+ * stale events the row already covers with an equal or newer sequence. Events for unknown
+ * flights are in neither list.
+ */
+public record AppliedEvents(List<AvailabilityEvent> applied, List<AvailabilityEvent> stale) {
+
+    public static AppliedEvents none() {
+        return new AppliedEvents(List.of(), List.of());
+    }
+
+    /**
+     * Every event the database now covers, applied or stale.
+     */
+    public List<AvailabilityEvent> covered() {
+        if (stale.isEmpty()) {
+            return applied;
+        }
+        List<AvailabilityEvent> covered = new ArrayList<>(applied.size() + stale.size());
+        covered.addAll(applied);
+        covered.addAll(stale);
+        return covered;
+    }
+
+    public int size() {
+        return applied.size() + stale.size();
+    }
+}
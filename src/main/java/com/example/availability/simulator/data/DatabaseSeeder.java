@@ -1,67 +1,264 @@
 package com.example.availability.simulator.data;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Fills an empty {@code flight} table with mock flights, bypassing JPA: an
+ * {@code IDENTITY} id keeps Hibernate from batching inserts at all.
+ * <p>
+ * Rows are generated in fixed-size chunks that workers claim in turn, each on its own
+ * connection. A chunk's contents depend only on its index and the random seed, so the
+ * same seed and first departure give the same table whatever the thread count. Every
+ * flight number flies one route, and its departures are spread over the configured days
+ * without repeating, so the natural key stays unique at any row count. Chunks are
+ * written as multi-row {@code INSERT}s, or streamed through {@code COPY} on PostgreSQL.
+ */
 @Component
+@Order(0)
 public class DatabaseSeeder implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DatabaseSeeder.class);
+
+    private static final String[] ORIGINS = {"JFK", "LHR", "CDG", "FRA", "DXB", "SIN", "HND", "SYD"};
+    private static final String[] DESTINATIONS = {"LAX", "SFO", "MIA", "ORD", "BOS", "YYZ", "YVR", "MEX"};
+    private static final int FIRST_FLIGHT_NUMBER = 100;
+    private static final int FLIGHT_NUMBERS = 9_900;
+    private static final String COLUMNS =
+            "flight_number, origin, destination, departure_date_time, arrival_date_time, availability, last_sequence";
+
     private final FlightRepository flightRepository;
-    private final Random random = new Random();
+    private final DataSource dataSource;
+    private final long rows;
+    private final long randomSeed;
+    private final int threads;
+    private final int batchSize;
+    private final int days;
+    private final Duration progressInterval;
 
-    public DatabaseSeeder(FlightRepository flightRepository) {
+    public DatabaseSeeder(FlightRepository flightRepository, DataSource dataSource,
+                          @Value("${availability.seed.rows:1000}") long rows,
+                          @Value("${availability.seed.random-seed:42}") long randomSeed,
+                          @Value("${availability.seed.threads:4}") int threads,
+                          @Value("${availability.seed.batch-size:1000}") int batchSize,
+                          @Value("${availability.seed.days:30}") int days,
+                          @Value("${availability.seed.progress-interval:PT5S}") Duration progressInterval) {
+        if (rows < 0 || threads <= 0 || batchSize <= 0 || days <= 0) {
+            throw new IllegalArgumentException("Seed threads, batch size and days must be positive, and rows not negative");
+        }
         this.flightRepository = flightRepository;
+        this.dataSource = dataSource;
+        this.rows = rows;
+        this.randomSeed = randomSeed;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.days = days;
+        this.progressInterval = progressInterval;
     }
 
     @Override
-    public void run(String... args) {
+    public void run(String... args) throws Exception {
         if (flightRepository.count() > 0) {
-            System.out.println("Database already seeded.");
+            log.info("Database already seeded.");
             return;
         }
+        seed(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    /**
+     * Inserts the configured number of flights, departing from {@code firstDeparture}
+     * onwards, and returns how many were written.
+     */
+    public long seed(LocalDateTime firstDeparture) throws InterruptedException, ExecutionException, SQLException {
+        boolean postgres;
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+        long chunks = (rows + batchSize - 1) / batchSize;
+        // Minutes between one flight number's departures, so they never collide
+        long slots = Math.max(1, (rows + FLIGHT_NUMBERS - 1) / FLIGHT_NUMBERS);
+        long spacing = Math.max(1, days * 24L * 60 / slots);
+        AtomicLong nextChunk = new AtomicLong();
+        LongAdder written = new LongAdder();
+        long start = System.nanoTime();
+
+        log.info("Seeding {} flights with {} workers in chunks of {} via {}", rows, threads, batchSize,
+                postgres ? "COPY" : "multi-row INSERT");
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> ProgressLog.flights(log, "Seeding progress", written.sum(), start),
+                progressInterval.toMillis(), progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            List<Future<?>> results = new ArrayList<>(threads);
+            for (int i = 0; i < Math.min(threads, Math.max(1, chunks)); i++) {
+                results.add(workers.submit(() -> {
+                    ChunkWriter writer = new ChunkWriter(firstDeparture, spacing);
+                    try (Connection connection = dataSource.getConnection()) {
+                        if (postgres) {
+                            PostgresCopy.write(connection, writer, nextChunk, chunks, written);
+                        } else {
+                            writer.insert(connection, nextChunk, chunks, written);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            progress.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        ProgressLog.flights(log, "Seeding complete", written.sum(), start);
+        return written.sum();
+    }
 
-        System.out.println("Seeding database with mock flights...");
-        List<Flight> flights = new ArrayList<>();
-        String[] origins = {"JFK", "LHR", "CDG", "FRA", "DXB", "SIN", "HND", "SYD"};
-        String[] destinations = {"LAX", "SFO", "MIA", "ORD", "BOS", "YYZ", "YVR", "MEX"};
+    // One worker's chunk generation; holds a reusable chunk buffer
+    private final class ChunkWriter {
 
-        for (int i = 0; i < 1000; i++) { // Generating 1000 flights for demo
-            String origin = origins[random.nextInt(origins.length)];
-            String destination = destinations[random.nextInt(destinations.length)];
+        private final LocalDateTime firstDeparture;
+        private final long spacing;
+        private final int[] flightNumbers = new int[batchSize];
+        private final Timestamp[] departures = new Timestamp[batchSize];
+        private final Timestamp[] arrivals = new Timestamp[batchSize];
+        private final String[] availabilities = new String[batchSize];
 
-            // Ensure origin != destination
-            while (origin.equals(destination)) {
-                destination = destinations[random.nextInt(destinations.length)];
+        ChunkWriter(LocalDateTime firstDeparture, long spacing) {
+            this.firstDeparture = firstDeparture;
+            this.spacing = spacing;
+        }
+
+        // Fills the buffer with the rows of one chunk and returns their count
+        int generate(long chunk) {
+            long first = chunk * batchSize;
+            int count = (int) Math.min(batchSize, rows - first);
+            SplittableRandom random = new SplittableRandom(randomSeed ^ (chunk * 0x9E3779B97F4A7C15L)).split();
+            for (int i = 0; i < count; i++) {
+                long row = first + i;
+                long slot = row / FLIGHT_NUMBERS;
+                LocalDateTime departure = firstDeparture.plusMinutes(slot * spacing + random.nextLong(spacing));
+                flightNumbers[i] = FIRST_FLIGHT_NUMBER + (int) (row % FLIGHT_NUMBERS);
+                departures[i] = Timestamp.valueOf(departure);
+                arrivals[i] = Timestamp.valueOf(departure.plusMinutes(120 + random.nextInt(600)));
+                availabilities[i] = "F" + random.nextInt(10) + " J" + random.nextInt(10) + " Y" + random.nextInt(10);
             }
+            return count;
+        }
 
-            LocalDateTime departure = LocalDateTime.now().plusDays(random.nextInt(30)).plusHours(random.nextInt(24));
-            LocalDateTime arrival = departure.plusHours(2 + random.nextInt(10));
+        String origin(int i) {
+            return ORIGINS[flightNumbers[i] % ORIGINS.length];
+        }
 
-            Flight flight = new Flight();
-            flight.setFlightNumber(100 + random.nextInt(900)); // 100-999
-            flight.setOrigin(origin);
-            flight.setDestination(destination);
-            flight.setDepartureDateTime(departure);
-            flight.setArrivalDateTime(arrival);
-            flight.setAvailability(generateRandomAvailability());
+        String destination(int i) {
+            return DESTINATIONS[flightNumbers[i] / ORIGINS.length % DESTINATIONS.length];
+        }
 
-            flights.add(flight);
+        void insert(Connection connection, AtomicLong nextChunk, long chunks, LongAdder written) throws SQLException {
+            connection.setAutoCommit(false);
+            PreparedStatement full = null;
+            try {
+                for (long chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                    int count = generate(chunk);
+                    PreparedStatement statement;
+                    if (count == batchSize) {
+                        if (full == null) {
+                            full = connection.prepareStatement(insertSql(batchSize));
+                        }
+                        statement = full;
+                    } else {
+                        statement = connection.prepareStatement(insertSql(count));
+                    }
+                    int p = 1;
+                    for (int i = 0; i < count; i++) {
+                        statement.setInt(p++, flightNumbers[i]);
+                        statement.setString(p++, origin(i));
+                        statement.setString(p++, destination(i));
+                        statement.setTimestamp(p++, departures[i]);
+                        statement.setTimestamp(p++, arrivals[i]);
+                        statement.setString(p++, availabilities[i]);
+                    }
+                    statement.executeUpdate();
+                    if (statement != full) {
+                        statement.close();
+                    }
+                    connection.commit();
+                    written.add(count);
+                }
+            } finally {
+                if (full != null) {
+                    full.close();
+                }
+            }
         }
+    }
 
-        flightRepository.saveAll(flights);
-        System.out.println("Seeding complete. Added " + flights.size() + " flights.");
+    private static String insertSql(int count) {
+        StringBuilder sql = new StringBuilder(64 + count * 20).append("INSERT INTO flight (").append(COLUMNS).append(") VALUES ");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "" : ",").append("(?, ?, ?, ?, ?, ?, 0)");
+        }
+        return sql.toString();
     }
 
-    private String generateRandomAvailability() {
-        // Example: F9 J9 Y9, or F2 J0 Y5
-        return String.format("F%d J%d Y%d",
-                random.nextInt(10),
-                random.nextInt(10),
-                random.nextInt(10));
+    // Kept apart so the PostgreSQL driver is only loaded when seeding PostgreSQL
+    private static final class PostgresCopy {
+
+        static void write(Connection connection, ChunkWriter writer, AtomicLong nextChunk, long chunks, LongAdder written)
+                throws SQLException {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY flight (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)");
+            try {
+                StringBuilder csv = new StringBuilder();
+                for (long chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                    int count = writer.generate(chunk);
+                    csv.setLength(0);
+                    for (int i = 0; i < count; i++) {
+                        csv.append(writer.flightNumbers[i]).append(',')
+                                .append(writer.origin(i)).append(',')
+                                .append(writer.destination(i)).append(',')
+                                .append(writer.departures[i]).append(',')
+                                .append(writer.arrivals[i]).append(',')
+                                .append(writer.availabilities[i]).append(",0\n");
+                    }
+                    byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+                    copy.writeToCopy(bytes, 0, bytes.length);
+                    written.add(count);
+                }
+                copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        }
     }
 }
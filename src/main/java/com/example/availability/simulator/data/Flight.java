@@ -2,15 +2,21 @@ package com.example.availability.simulator.data;
 
 import java.time.LocalDateTime;
 
+import com.example.availability.simulator.availability.FlightDateKey;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,6 +24,13 @@ import lombok.ToString;
 @Setter
 @ToString
 @Entity
+@Table(name = "flight", indexes = {
+        // Natural key: every cache miss and Kafka update looks a flight up by it
+        @Index(name = "idx_flight_natural_key",
+                columnList = "flight_number, origin, destination, departure_date_time, arrival_date_time"),
+        // Route searches scan one route's departures over a day
+        @Index(name = "idx_flight_route_departure", columnList = "origin, destination, departure_date_time")
+})
 public class Flight {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,4 +41,15 @@ public class Flight {
     private LocalDateTime departureDateTime;
     private LocalDateTime arrivalDateTime;
     private String availability;
+    // Sequence of the last availability event written; older events are rejected
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long lastSequence;
+
+    /**
+     * The flight-date this row holds availability for.
+     */
+    public FlightDateKey key() {
+        return new FlightDateKey(flightNumber, origin, destination, departureDateTime, arrivalDateTime);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.availability.simulator.data;
+
+/**
+ * Availability column of a flight together with the sequence of the event that wrote it.
+ */
+public record FlightAvailability(String availability, long lastSequence) {
+}
@@ -1,18 +1,41 @@
 package com.example.availability.simulator.data;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FlightRepository extends JpaRepository<Flight, Integer> {
+public interface FlightRepository extends JpaRepository<Flight, Integer>, FlightRepositoryCustom {
     
-    Optional<Flight> findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(
-            Integer flightNumber,
+    /**
+     * Reads only the availability and its sequence for the flight with this exact natural
+     * key. The projection is never attached to the persistence context, and the lookup is
+     * covered by {@code idx_flight_natural_key}.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+            select new com.example.availability.simulator.data.FlightAvailability(f.availability, f.lastSequence)
+            from Flight f
+            where f.flightNumber = :flightNumber and f.origin = :origin and f.destination = :destination
+              and f.departureDateTime = :departureDateTime and f.arrivalDateTime = :arrivalDateTime""")
+    Optional<FlightAvailability> findAvailability(
+            @Param("flightNumber") Integer flightNumber,
+            @Param("origin") String origin,
+            @Param("destination") String destination,
+            @Param("departureDateTime") LocalDateTime departureDateTime,
+            @Param("arrivalDateTime") LocalDateTime arrivalDateTime
+    );
+
+    List<Flight> findByOriginAndDestinationAndDepartureDateTimeGreaterThanEqualAndDepartureDateTimeLessThan(
             String origin,
             String destination,
-            LocalDateTime departureDateTime
+            LocalDateTime departureFrom,
+            LocalDateTime departureTo
     );
 }
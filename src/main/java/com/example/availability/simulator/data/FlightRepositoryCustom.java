@@ -0,0 +1,29 @@
+package com.example.availability.simulator.data;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based operations on {@link Flight} that bypass the persistence context.
+ */
+public interface FlightRepositoryCustom {
+
+    /**
+     * Loads every flight matching one of the keys on its full natural key, in as few
+     * statements as the driver's parameter limit allows. The returned flights are
+     * detached; keys without a row are simply absent from the result.
+     */
+    List<Flight> findAllByKeys(Collection<FlightDateKey> keys);
+
+    /**
+     * Writes each event to its flight with one conditional UPDATE per event, sent as a
+     * single JDBC batch, that only applies sequences newer than the row's last one; the
+     * same ordering rule the cache applies. Returns the events applied apart from the
+     * stale ones whose row already holds an equal or newer sequence; events for unknown
+     * flights are in neither.
+     */
+    AppliedEvents applyIfNewer(List<AvailabilityEvent> events);
+}
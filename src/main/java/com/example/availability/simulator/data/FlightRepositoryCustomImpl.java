@@ -0,0 +1,111 @@
+package com.example.availability.simulator.data;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class FlightRepositoryCustomImpl implements FlightRepositoryCustom {
+
+    // Five bind parameters per key keeps each statement well under PostgreSQL's 65535 limit
+    private static final int KEYS_PER_STATEMENT = 1_000;
+
+    private static final String FIND_BY_KEYS = """
+            SELECT id, flight_number, origin, destination, departure_date_time, arrival_date_time, availability, last_sequence
+            FROM flight
+            WHERE (flight_number, origin, destination, departure_date_time, arrival_date_time) IN (:keys)""";
+
+    private static final RowMapper<Flight> FLIGHT_ROW_MAPPER = (rs, rowNum) -> new Flight(
+            rs.getInt(1),
+            rs.getInt(2),
+            rs.getString(3),
+            rs.getString(4),
+            rs.getTimestamp(5).toLocalDateTime(),
+            rs.getTimestamp(6).toLocalDateTime(),
+            rs.getString(7),
+            rs.getLong(8));
+
+    private static final String UPDATE_IF_NEWER = """
+            UPDATE flight SET availability = ?, last_sequence = ?
+            WHERE flight_number = ? AND origin = ? AND destination = ? AND departure_date_time = ? AND arrival_date_time = ?
+              AND last_sequence < ?""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    FlightRepositoryCustomImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Flight> findAllByKeys(Collection<FlightDateKey> keys) {
+        List<Flight> flights = new ArrayList<>(keys.size());
+        List<Object[]> chunk = new ArrayList<>(Math.min(keys.size(), KEYS_PER_STATEMENT));
+        for (FlightDateKey key : keys) {
+            chunk.add(new Object[]{key.flightNumber(), key.origin(), key.destination(), Timestamp.valueOf(key.departureDateTime()),
+                    Timestamp.valueOf(key.arrivalDateTime())});
+            if (chunk.size() == KEYS_PER_STATEMENT) {
+                flights.addAll(jdbcTemplate.query(FIND_BY_KEYS, Map.of("keys", chunk), FLIGHT_ROW_MAPPER));
+                chunk = new ArrayList<>(KEYS_PER_STATEMENT);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flights.addAll(jdbcTemplate.query(FIND_BY_KEYS, Map.of("keys", chunk), FLIGHT_ROW_MAPPER));
+        }
+        return flights;
+    }
+
+    @Override
+    public AppliedEvents applyIfNewer(List<AvailabilityEvent> events) {
+        if (events.isEmpty()) {
+            return AppliedEvents.none();
+        }
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (AvailabilityEvent event : events) {
+            FlightDateKey key = event.key();
+            rows.add(new Object[]{event.availabilityString(), event.sequenceNumber(),
+                    key.flightNumber(), key.origin(), key.destination(),
+                    Timestamp.valueOf(key.departureDateTime()), Timestamp.valueOf(key.arrivalDateTime()),
+                    event.sequenceNumber()});
+        }
+        int[] counts = jdbcTemplate.getJdbcTemplate().batchUpdate(UPDATE_IF_NEWER, rows);
+
+        List<AvailabilityEvent> applied = new ArrayList<>(events.size());
+        List<AvailabilityEvent> stale = new ArrayList<>();
+        List<AvailabilityEvent> unresolved = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (counts[i] > 0) {
+                applied.add(events.get(i));
+            } else {
+                // 0: a stale event or an unknown flight; SUCCESS_NO_INFO: the driver did not say
+                unresolved.add(events.get(i));
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            Map<FlightDateKey, Long> sequences = new HashMap<>();
+            findAllByKeys(unresolved.stream().map(AvailabilityEvent::key).toList())
+                    .forEach(flight -> sequences.put(flight.key(), flight.getLastSequence()));
+            for (int i = 0, j = 0; i < events.size(); i++) {
+                if (counts[i] > 0) {
+                    continue;
+                }
+                AvailabilityEvent event = unresolved.get(j++);
+                Long sequence = sequences.get(event.key());
+                if (sequence == null) {
+                    continue;
+                }
+                // Without a count, a row holding exactly this sequence is taken as written by it
+                boolean written = counts[i] == Statement.SUCCESS_NO_INFO && sequence == event.sequenceNumber();
+                (written ? applied : stale).add(event);
+            }
+        }
+        return new AppliedEvents(applied, stale);
+    }
+}
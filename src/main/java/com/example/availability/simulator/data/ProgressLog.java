@@ -0,0 +1,17 @@
+package com.example.availability.simulator.data;
+
+import org.slf4j.Logger;
+
+/**
+ * Progress lines for the bulk passes over the flight table, seeding and preloading alike.
+ */
+public final class ProgressLog {
+
+    private ProgressLog() {
+    }
+
+    public static void flights(Logger log, String message, long rows, long startNanos) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        log.info("{}: {} flights in {} s ({} rows/s)", message, rows, String.format("%.1f", seconds), Math.round(rows / seconds));
+    }
+}
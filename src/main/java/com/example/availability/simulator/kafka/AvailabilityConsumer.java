@@ -2,71 +2,338 @@ package com.example.availability.simulator.kafka;
 
 import com.example.availability.simulator.availability.AvailabilityCache;
 import com.example.availability.simulator.availability.AvailabilityEvent;
-import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.data.AppliedEvents;
 import com.example.availability.simulator.data.FlightRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Applies availability events from the {@code availability-updates} topic in one of four
+ * listener modes, chosen by configuration. Time spent per listener call (one record, or a
+ * whole poll in the batch modes) is published as {@code availability.consumer.processing}
+ * and records handled as {@code availability.consumer.records}, both tagged by mode;
+ * consumer lag comes from the
+ * Kafka client's own {@code kafka.consumer.fetch.manager.records.lag*} metrics.
+ */
 @Component
-public class AvailabilityConsumer {
+public class AvailabilityConsumer implements ConsumerSeekAware, MeterBinder {
 
     private static final Logger log = LoggerFactory.getLogger(AvailabilityConsumer.class);
 
+    private enum Mode { RECORD, BATCH, WRITE_BEHIND, PARALLEL }
+
+    private record EncodedKey(long high, long low) {}
+
     private final FlightRepository flightRepository;
     private final AvailabilityCache availabilityCache;
-    private final ObjectMapper objectMapper;
+    private final ConsumedOffsets consumedOffsets;
+    private final Optional<WriteBehindFlusher> writeBehindFlusher;
+    private final Optional<ShardedEventProcessor> shardedProcessor;
 
-    public AvailabilityConsumer(FlightRepository flightRepository, AvailabilityCache availabilityCache, ObjectMapper objectMapper) {
+    // Indexed by Mode; timers are registered in bindTo, unrecorded until then
+    private final Timer[] processingTimers = new Timer[Mode.values().length];
+    private final LongAdder[] processedRecords = new LongAdder[Mode.values().length];
+
+    public AvailabilityConsumer(FlightRepository flightRepository, AvailabilityCache availabilityCache,
+                                ConsumedOffsets consumedOffsets) {
+        this(flightRepository, availabilityCache, consumedOffsets, Optional.empty(), Optional.empty());
+    }
+
+    @Autowired
+    public AvailabilityConsumer(FlightRepository flightRepository, AvailabilityCache availabilityCache,
+                                ConsumedOffsets consumedOffsets, Optional<WriteBehindFlusher> writeBehindFlusher,
+                                Optional<ShardedEventProcessor> shardedProcessor) {
         this.flightRepository = flightRepository;
         this.availabilityCache = availabilityCache;
-        this.objectMapper = objectMapper;
+        this.consumedOffsets = consumedOffsets;
+        this.writeBehindFlusher = writeBehindFlusher;
+        this.shardedProcessor = shardedProcessor;
+        for (Mode mode : Mode.values()) {
+            processedRecords[mode.ordinal()] = new LongAdder();
+        }
+    }
+
+    /**
+     * Resumes from a restored cache snapshot: replays everything after the offsets it
+     * covers, even if the group has already committed past them.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            consumedOffsets.takeRestored(partition.partition()).ifPresent(offset -> {
+                log.info("Seeking {} to snapshot offset {}", partition, offset);
+                callback.seek(partition.topic(), partition.partition(), offset);
+            });
+        }
     }
 
-    @KafkaListener(topics = "availability-updates", groupId = "availability-simulator-group")
+    @KafkaListener(topics = "availability-updates", groupId = "availability-simulator-group",
+            autoStartup = "#{!${availability.consumer.batch.enabled:false} and !${availability.consumer.write-behind.enabled:false}"
+                    + " and !${availability.consumer.parallel.enabled:false}}")
     @Transactional
-    public void handleAvailabilityEvent(String message) {
+    public void handleAvailabilityEvent(ConsumerRecord<String, AvailabilityEvent> record) {
+        long start = System.nanoTime();
+        AvailabilityEvent event = record.value();
+        if (event == null) {
+            skipUnreadable(record);
+            consumedOffsets.record(record.partition(), record.offset());
+            // In a real system, send to DLQ
+            return;
+        }
         try {
-            log.debug("Received availability update: {}", message);
-            AvailabilityEvent event = objectMapper.readValue(message, AvailabilityEvent.class);
+            log.debug("Received availability update: {}", event);
 
-            // 1. Update Database (System of Record)
-            updateDatabase(event);
+            boolean persisted = apply(event);
+            afterCommit(() -> {
+                if (persisted) {
+                    availabilityCache.markPersisted(event);
+                }
+                consumedOffsets.record(record.partition(), record.offset());
+            });
+            recordProcessing(Mode.RECORD, start, 1);
 
-            // 2. Update Cache (Near Real-Time)
-            availabilityCache.updateAvailability(event);
-
-        } catch (JsonProcessingException e) {
-            log.error("Failed to parse availability event: {}", message, e);
-            // In a real system, send to DLQ
         } catch (Exception e) {
             log.error("Error processing availability event", e);
             throw e; // Trigger retry/DLQ
         }
     }
 
-    private void updateDatabase(AvailabilityEvent event) {
-        Optional<Flight> flightOpt = flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(
-                event.key().flightNumber(),
-                event.key().origin(),
-                event.key().destination(),
-                event.key().departureDateTime()
-        );
-
-        if (flightOpt.isPresent()) {
-            Flight flight = flightOpt.get();
-            flight.setAvailability(event.availabilityString());
-            flightRepository.save(flight);
+    /**
+     * Batch mode: takes a whole poll, keeps only the highest sequence per flight-date
+     * and writes the survivors in one transaction. Only one of the listeners is started:
+     * {@code availability.consumer.parallel.enabled} takes precedence over
+     * {@code availability.consumer.write-behind.enabled}, which takes precedence over
+     * {@code availability.consumer.batch.enabled}.
+     */
+    @KafkaListener(topics = "availability-updates", groupId = "availability-simulator-group",
+            batch = "true",
+            autoStartup = "#{${availability.consumer.batch.enabled:false} and !${availability.consumer.write-behind.enabled:false}"
+                    + " and !${availability.consumer.parallel.enabled:false}}",
+            properties = {
+                    "max.poll.records=${availability.consumer.batch.max-records:500}",
+                    "fetch.min.bytes=${availability.consumer.batch.min-bytes:65536}",
+                    "fetch.max.wait.ms=${availability.consumer.batch.max-linger-ms:100}"
+            })
+    @Transactional
+    public void handleAvailabilityEvents(List<ConsumerRecord<String, AvailabilityEvent>> records) {
+        long start = System.nanoTime();
+        log.debug("Received batch of {} availability updates", records.size());
+        Collection<AvailabilityEvent> events = coalesce(records);
+
+        // 1. Update Database (System of Record), one batch of sequence-conditional UPDATEs
+        AppliedEvents result = flightRepository.applyIfNewer(new ArrayList<>(events));
+        List<AvailabilityEvent> applied = result.applied();
+        if (!result.stale().isEmpty()) {
+            log.debug("Skipped {} stale availability updates", result.stale().size());
+        }
+        if (result.size() < events.size()) {
+            log.warn("{} of {} availability updates matched no flight", events.size() - result.size(), events.size());
+        }
+
+        // 2. Update Cache (Near Real-Time), only with what the database took
+        for (AvailabilityEvent event : applied) {
+            availabilityCache.updateAvailability(event);
+        }
+        afterCommit(() -> {
+            applied.forEach(event -> availabilityCache.markPersisted(event));
+            records.forEach(record -> consumedOffsets.record(record.partition(), record.offset()));
+        });
+        recordProcessing(Mode.BATCH, start, records.size());
+        log.debug("Applied {} of {} availability updates after coalescing", events.size(), records.size());
+    }
+
+    /**
+     * Write-behind mode: applies a whole poll to the cache immediately and leaves the
+     * database write to {@link WriteBehindFlusher}. The poll is acknowledged, and its
+     * offsets committed, only after the flush covering it succeeds.
+     */
+    @KafkaListener(topics = "availability-updates", groupId = "availability-simulator-group",
+            containerFactory = KafkaConsumerConfig.WRITE_BEHIND_CONTAINER_FACTORY,
+            autoStartup = "#{${availability.consumer.write-behind.enabled:false} and !${availability.consumer.parallel.enabled:false}}",
+            properties = {
+                    "max.poll.records=${availability.consumer.batch.max-records:500}",
+                    "fetch.min.bytes=${availability.consumer.batch.min-bytes:65536}",
+                    "fetch.max.wait.ms=${availability.consumer.batch.max-linger-ms:100}"
+            })
+    public void handleAvailabilityEventsWriteBehind(List<ConsumerRecord<String, AvailabilityEvent>> records, Acknowledgment ack) {
+        long start = System.nanoTime();
+        WriteBehindFlusher flusher = writeBehindFlusher.orElseThrow(() ->
+                new IllegalStateException("Write-behind listener started without availability.consumer.write-behind.enabled"));
+        Collection<AvailabilityEvent> events = coalesce(records);
+
+        // 1. Update Cache (Near Real-Time); entries stay pinned until flushed
+        for (AvailabilityEvent event : events) {
+            availabilityCache.updateAvailability(event);
+        }
+
+        // 2. Queue the Database write (System of Record)
+        Map<Integer, Long> offsets = new HashMap<>();
+        records.forEach(record -> offsets.merge(record.partition(), record.offset(), Math::max));
+        flusher.enqueue(events, offsets, ack);
+        recordProcessing(Mode.WRITE_BEHIND, start, records.size());
+    }
+
+    /**
+     * Parallel mode: spreads a poll over {@link ShardedEventProcessor} lanes by flight-date,
+     * each event in its own transaction, then commits whatever the lanes have finished.
+     */
+    @KafkaListener(id = KafkaConsumerConfig.PARALLEL_LISTENER_ID,
+            topics = "availability-updates", groupId = "availability-simulator-group",
+            containerFactory = KafkaConsumerConfig.PARALLEL_CONTAINER_FACTORY,
+            autoStartup = "${availability.consumer.parallel.enabled:false}",
+            properties = {
+                    "max.poll.records=${availability.consumer.batch.max-records:500}",
+                    "fetch.min.bytes=${availability.consumer.batch.min-bytes:65536}",
+                    "fetch.max.wait.ms=${availability.consumer.batch.max-linger-ms:100}"
+            })
+    public void handleAvailabilityEventsInParallel(List<ConsumerRecord<String, AvailabilityEvent>> records, Consumer<?, ?> consumer) {
+        ShardedEventProcessor processor = shardedProcessor.orElseThrow(() ->
+                new IllegalStateException("Parallel listener started without availability.consumer.parallel.enabled"));
+        for (ConsumerRecord<String, AvailabilityEvent> record : records) {
+            AvailabilityEvent event = record.value();
+            if (event == null) {
+                skipUnreadable(record);
+                processor.skip(record);
+                continue;
+            }
+            long keyHash = FlightDateKeyCodec.hash(event.high(), event.low());
+            processor.submit(record, keyHash, () -> {
+                long start = System.nanoTime();
+                boolean persisted = apply(event);
+                afterCommit(() -> {
+                    if (persisted) {
+                        availabilityCache.markPersisted(event);
+                    }
+                });
+                recordProcessing(Mode.PARALLEL, start, 1);
+            });
+        }
+        processor.commitCompleted(consumer);
+    }
+
+    @EventListener(condition = "event.listenerId.startsWith('" + KafkaConsumerConfig.PARALLEL_LISTENER_ID + "')")
+    public void onParallelListenerIdle(ListenerContainerIdleEvent event) {
+        // Published on the consumer thread, so the consumer may be used to commit
+        shardedProcessor.ifPresent(processor -> processor.commitCompleted(event.getConsumer()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Mode mode : Mode.values()) {
+            String tag = mode.name().toLowerCase().replace('_', '-');
+            processingTimers[mode.ordinal()] = Timer.builder("availability.consumer.processing")
+                    .description("Time to apply one listener call: a record, or a whole poll in the batch modes")
+                    .tag("mode", tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            FunctionCounter.builder("availability.consumer.records", processedRecords[mode.ordinal()], LongAdder::sum)
+                    .description("Availability records handled by the listener")
+                    .tag("mode", tag)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Applies one event: database first, then the cache if the database took it. A stale
+     * event never reaches the cache, where it could stand in for the newer row. Returns
+     * whether the cache entry it wrote is now persisted.
+     */
+    private boolean apply(AvailabilityEvent event) {
+        // 1. Update Database (System of Record)
+        if (!updateDatabase(event)) {
+            return false;
+        }
+
+        // 2. Update Cache (Near Real-Time)
+        availabilityCache.updateAvailability(event);
+        return true;
+    }
+
+    private void recordProcessing(Mode mode, long startNanos, int records) {
+        processedRecords[mode.ordinal()].add(records);
+        Timer timer = processingTimers[mode.ordinal()];
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Collection<AvailabilityEvent> coalesce(List<ConsumerRecord<String, AvailabilityEvent>> records) {
+        Map<EncodedKey, AvailabilityEvent> latest = new HashMap<>();
+        for (ConsumerRecord<String, AvailabilityEvent> record : records) {
+            AvailabilityEvent event = record.value();
+            if (event == null) {
+                skipUnreadable(record);
+                continue;
+            }
+            latest.merge(new EncodedKey(event.high(), event.low()), event,
+                    (current, candidate) -> candidate.sequenceNumber() > current.sequenceNumber() ? candidate : current);
+        }
+        return latest.values();
+    }
+
+    // The value deserializer turned the record into null; its exception is already in the headers
+    private static void skipUnreadable(ConsumerRecord<?, ?> record) {
+        log.error("Skipping unreadable availability event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+    }
+
+    private boolean updateDatabase(AvailabilityEvent event) {
+        // One round trip; a late, older event never overwrites newer data
+        AppliedEvents result = flightRepository.applyIfNewer(List.of(event));
+        if (!result.applied().isEmpty()) {
             log.info("Updated flight {} availability to {}", event.key().flightNumber(), event.availabilityString());
+            return true;
+        } else if (!result.stale().isEmpty()) {
+            log.debug("Skipped stale update {} for flight {}: the database holds a newer sequence",
+                    event.sequenceNumber(), event.key().flightNumber());
+            return false;
         } else {
-            log.warn("Flight not found for update: {}", event.key());
             // Optionally create it, or ignore. GDS usually updates existing inventory.
+            log.warn("Flight not found for update: {}", event.key());
+            return false;
+        }
+    }
+
+    /**
+     * Cache entries only become evictable, and offsets only count as consumed, once the
+     * database write is durable, so both wait for the surrounding transaction to commit.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
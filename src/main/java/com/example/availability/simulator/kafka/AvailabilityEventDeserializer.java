@@ -0,0 +1,56 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Kafka value deserializer for the availability topic. Reads {@link AvailabilityEventFormat}
+ * binary when the record says so and JSON otherwise, in both cases straight from the
+ * record bytes rather than through an intermediate String.
+ * <p>
+ * Malformed values raise a {@link SerializationException}, and so do JSON events whose key
+ * or availability the cache cannot encode, before anything reaches the database. The consumer wraps this
+ * deserializer in Spring's {@code ErrorHandlingDeserializer}, so such records reach the
+ * listeners with a {@code null} value instead of stopping the partition.
+ */
+public class AvailabilityEventDeserializer implements Deserializer<AvailabilityEvent> {
+
+    private final ObjectReader reader;
+
+    // Instantiated by the Kafka client from its configuration
+    public AvailabilityEventDeserializer() {
+        this(new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    public AvailabilityEventDeserializer(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(AvailabilityEvent.class);
+    }
+
+    @Override
+    public AvailabilityEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public AvailabilityEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (AvailabilityEventFormat.isBinary(headers)) {
+                return AvailabilityEventFormat.decode(data);
+            }
+            // Building the event encodes the key and parses the availability, once
+            return reader.readValue(data);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializationException("Cannot read availability event from " + topic, e);
+        }
+    }
+}
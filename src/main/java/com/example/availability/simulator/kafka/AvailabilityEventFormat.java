@@ -0,0 +1,80 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.PackedAvailability;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Compact fixed-layout encoding of an {@link AvailabilityEvent} on the availability topic,
+ * an alternative to JSON for producers that set the {@link #HEADER} record header. Records
+ * without it are JSON.
+ * <p>
+ * Layout, 41 bytes, big-endian: version (1) | key high (8) | key low (8) | sequence (8) |
+ * packed seats (8) | timestamp in epoch microseconds (8). The key is in the
+ * {@link FlightDateKeyCodec} encoding and the seats in the {@link PackedAvailability} one,
+ * so times are carried to the minute, as in every other encoded key.
+ */
+public final class AvailabilityEventFormat {
+
+    public static final String HEADER = "availability-format";
+    public static final String BINARY_V1 = "binary-v1";
+    public static final int LENGTH = 41;
+
+    private static final byte VERSION = 1;
+    private static final byte[] BINARY_V1_BYTES = BINARY_V1.getBytes(StandardCharsets.US_ASCII);
+
+    private AvailabilityEventFormat() {
+    }
+
+    /**
+     * The header marking a record value as {@link #encode encoded} binary.
+     */
+    public static Header binaryHeader() {
+        return new RecordHeader(HEADER, BINARY_V1_BYTES);
+    }
+
+    public static boolean isBinary(Headers headers) {
+        Header header = headers != null ? headers.lastHeader(HEADER) : null;
+        return header != null && Arrays.equals(header.value(), BINARY_V1_BYTES);
+    }
+
+    public static byte[] encode(AvailabilityEvent event) {
+        return encode(event.high(), event.low(), event.sequenceNumber(), event.packedSeats(),
+                ChronoUnit.MICROS.between(Instant.EPOCH, event.timestamp()));
+    }
+
+    public static byte[] encode(long high, long low, long sequence, long packedSeats, long timestampMicros) {
+        return ByteBuffer.allocate(LENGTH)
+                .put(VERSION)
+                .putLong(high)
+                .putLong(low)
+                .putLong(sequence)
+                .putLong(packedSeats)
+                .putLong(timestampMicros)
+                .array();
+    }
+
+    public static AvailabilityEvent decode(byte[] data) {
+        if (data.length != LENGTH || data[0] != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " binary availability event: "
+                    + data.length + " bytes, version " + (data.length > 0 ? data[0] : "none"));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, LENGTH - 1);
+        long high = buffer.getLong();
+        long low = buffer.getLong();
+        long sequence = buffer.getLong();
+        long packedSeats = buffer.getLong();
+        long timestampMicros = buffer.getLong();
+        // Kept encoded: no key or availability string is built on the way to the cache
+        return new AvailabilityEvent(high, low, sequence, packedSeats, Instant.EPOCH.plus(timestampMicros, ChronoUnit.MICROS));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.availability.simulator.kafka;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Next offset to consume per partition of the availability topic, counting only records
+ * whose effects are durable in both the database and the cache. Snapshots record these
+ * offsets; on restart the consumer seeks back to the restored ones once per partition.
+ */
+@Component
+public class ConsumedOffsets {
+
+    private final Map<Integer, Long> completed = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> restored = new ConcurrentHashMap<>();
+
+    public void record(int partition, long offset) {
+        completed.merge(partition, offset + 1, Math::max);
+    }
+
+    public Map<Integer, Long> snapshot() {
+        return Map.copyOf(completed);
+    }
+
+    public void restore(Map<Integer, Long> offsets) {
+        restored.putAll(offsets);
+        offsets.forEach((partition, offset) -> completed.merge(partition, offset, Math::max));
+    }
+
+    /**
+     * Returns and forgets the restored offset, so later rebalances keep the group's
+     * committed position.
+     */
+    public Optional<Long> takeRestored(int partition) {
+        return Optional.ofNullable(restored.remove(partition));
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.PackedAvailability;
+import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightRepository;
+import com.example.availability.simulator.load.ZipfDistribution;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes synthetic {@code AvailabilityEvent}s to {@code availability-updates} at a
+ * target rate, standing in for the GDS inventory systems.
+ * <p>
+ * Flights are drawn from a Zipf distribution, so a few hot flights take most of the
+ * traffic. Each event sells or releases one seat in a booking class. A configurable share
+ * of events is sent twice, and another share is held back until the same flight's next,
+ * newer event has been sent. Both exercise the consumer's idempotency checks.
+ * <p>
+ * JSON payloads are assembled from bytes encoded once per flight and per availability
+ * line, so the generator is not the bottleneck at 100k+ events per second. With
+ * {@code availability.simulator.format=binary} events go out in the
+ * {@link AvailabilityEventFormat} layout instead. Runs against any
+ * broker in {@code spring.kafka.bootstrap-servers}, including the embedded one from
+ * {@code spring-kafka-test}.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.simulator.enabled", havingValue = "true")
+public class InventorySimulator implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(InventorySimulator.class);
+
+    private static final String TOPIC = "availability-updates";
+    private static final byte[] SEQUENCE_FIELD = bytes(",\"sequenceNumber\":");
+    private static final byte[] AVAILABILITY_FIELD = bytes(",\"availabilityString\":\"");
+    private static final byte[] TIMESTAMP_FIELD = bytes("\",\"timestamp\":\"");
+    private static final byte[] END = bytes("\"}");
+    private static final char[] BOOKING_CLASSES = {'F', 'J', 'Y'};
+    private static final int MAX_HELD_BACK = 1024;
+
+    // Per-flight state, indexed by position in the flight list
+    private record SimulatedFlight(byte[] recordKey, byte[] payloadPrefix) {}
+
+    private final DefaultKafkaProducerFactory<byte[], byte[]> producerFactory;
+    private final ObjectMapper objectMapper;
+    private final FlightRepository flightRepository;
+    private final int eventsPerSecond;
+    private final int flightCount;
+    private final double zipfExponent;
+    private final double duplicateRate;
+    private final double outOfOrderRate;
+    private final boolean binary;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder reordered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Callback onSent = (metadata, exception) -> {
+        if (exception != null) {
+            failed.increment();
+        }
+    };
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public InventorySimulator(KafkaProperties kafkaProperties, ObjectMapper objectMapper, FlightRepository flightRepository,
+                              @Value("${availability.simulator.events-per-second:100000}") int eventsPerSecond,
+                              @Value("${availability.simulator.flights:10000}") int flightCount,
+                              @Value("${availability.simulator.zipf-exponent:1.1}") double zipfExponent,
+                              @Value("${availability.simulator.duplicate-rate:0.01}") double duplicateRate,
+                              @Value("${availability.simulator.out-of-order-rate:0.01}") double outOfOrderRate,
+                              @Value("${availability.simulator.format:json}") String format) {
+        if (eventsPerSecond <= 0 || flightCount <= 0 || zipfExponent <= 0) {
+            throw new IllegalArgumentException("Simulator rate, flight count and Zipf exponent must be positive");
+        }
+        if (duplicateRate < 0 || outOfOrderRate < 0 || duplicateRate + outOfOrderRate > 1) {
+            throw new IllegalArgumentException("Duplicate and out-of-order rates must be shares between 0 and 1");
+        }
+        if (!"json".equals(format) && !"binary".equals(format)) {
+            throw new IllegalArgumentException("Simulator format must be json or binary, got " + format);
+        }
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties(null);
+        // Favour throughput: large, compressed batches; a lost simulated event is harmless
+        producerProperties.putIfAbsent(ProducerConfig.LINGER_MS_CONFIG, 5);
+        producerProperties.putIfAbsent(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+        producerProperties.putIfAbsent(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        producerProperties.put(ProducerConfig.ACKS_CONFIG, "1");
+        producerProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        this.producerFactory = new DefaultKafkaProducerFactory<>(producerProperties,
+                new ByteArraySerializer(), new ByteArraySerializer());
+        this.objectMapper = objectMapper;
+        this.flightRepository = flightRepository;
+        this.eventsPerSecond = eventsPerSecond;
+        this.flightCount = flightCount;
+        this.zipfExponent = zipfExponent;
+        this.duplicateRate = duplicateRate;
+        this.outOfOrderRate = outOfOrderRate;
+        this.binary = "binary".equals(format);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        List<FlightDateKey> flights = flightRepository.findAll(PageRequest.of(0, flightCount)).stream()
+                .map(Flight::key)
+                .toList();
+        if (flights.isEmpty()) {
+            log.warn("No flights to simulate inventory for");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("inventory-simulator").daemon().start(() -> publish(flights, Long.MAX_VALUE));
+        log.info("Simulating inventory for {} flights at {} events/s", flights.size(), eventsPerSecond);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = worker;
+        }
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        producerFactory.destroy();
+    }
+
+    /**
+     * Publishes {@code events} events over {@code flights} at the target rate, on the
+     * calling thread, and returns the number of records handed to the producer (including
+     * duplicates). Stops early once {@link #stop} is called while running in the background.
+     */
+    public long publish(List<FlightDateKey> flights, long events) {
+        SplittableRandom random = new SplittableRandom();
+        SimulatedFlight[] simulated = new SimulatedFlight[flights.size()];
+        // Continue above anything a previous run published, which the database may already hold
+        long[] sequences = new long[flights.size()];
+        Arrays.fill(sequences, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        long[] seats = new long[flights.size()];
+        for (int i = 0; i < simulated.length; i++) {
+            FlightDateKey key = flights.get(i);
+            simulated[i] = new SimulatedFlight(
+                    bytes(Long.toHexString(FlightDateKeyCodec.high(key)) + ":" + Long.toHexString(FlightDateKeyCodec.low(key))),
+                    payloadPrefix(key));
+            seats[i] = PackedAvailability.parse("F9 J9 Y9");
+        }
+        ZipfDistribution hotness = new ZipfDistribution(flights.size(), zipfExponent, random);
+
+        // At most one held-back record per flight, waiting for that flight's next event
+        @SuppressWarnings("unchecked")
+        ProducerRecord<byte[], byte[]>[] heldBack = new ProducerRecord[flights.size()];
+        int held = 0;
+        long records = 0;
+        long started = System.nanoTime();
+        long timestampMillis = 0;
+        byte[] timestamp = null;
+        List<Header> headers = binary ? List.of(AvailabilityEventFormat.binaryHeader()) : List.of();
+
+        try (Producer<byte[], byte[]> producer = producerFactory.createProducer()) {
+            // Partitioned like ClusterTopology routes, so each key's events reach the node serving it
+            int partitions = producer.partitionsFor(TOPIC).size();
+            int[] partitionOf = new int[flights.size()];
+            for (int i = 0; i < partitionOf.length; i++) {
+                FlightDateKey key = flights.get(i);
+                partitionOf[i] = FlightDateKeyCodec.partition(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key), partitions);
+            }
+            for (long event = 0; event < events; event++) {
+                if (events == Long.MAX_VALUE && !running) {
+                    break;
+                }
+                pace(started, event);
+
+                long now = System.currentTimeMillis();
+                if (now != timestampMillis) {
+                    timestampMillis = now;
+                    timestamp = bytes(Instant.ofEpochMilli(now).truncatedTo(ChronoUnit.MILLIS).toString());
+                }
+
+                int flight = hotness.sample(random);
+                seats[flight] = changeOneSeat(seats[flight], random);
+                FlightDateKey key = flights.get(flight);
+                byte[] payload = binary
+                        ? AvailabilityEventFormat.encode(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key),
+                                ++sequences[flight], seats[flight], TimeUnit.MILLISECONDS.toMicros(now))
+                        : payload(simulated[flight].payloadPrefix(), ++sequences[flight],
+                                PackedAvailability.encode(seats[flight]), timestamp);
+                ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(TOPIC, partitionOf[flight],
+                        simulated[flight].recordKey(), payload, headers);
+
+                double roll = random.nextDouble();
+                boolean holdBack = roll < outOfOrderRate;
+                if (holdBack && heldBack[flight] == null && held < MAX_HELD_BACK) {
+                    heldBack[flight] = record;
+                    held++;
+                    continue;
+                }
+                producer.send(record, onSent);
+                records++;
+                if (!holdBack && roll < outOfOrderRate + duplicateRate) {
+                    producer.send(record, onSent);
+                    duplicates.increment();
+                    records++;
+                }
+                ProducerRecord<byte[], byte[]> overtaken = heldBack[flight];
+                if (overtaken != null) {
+                    // Same partition, so it now lands behind the newer sequence just sent
+                    heldBack[flight] = null;
+                    held--;
+                    producer.send(overtaken, onSent);
+                    reordered.increment();
+                    records++;
+                }
+            }
+            // Nothing newer came for these; send them in order rather than lose them
+            for (ProducerRecord<byte[], byte[]> pending : heldBack) {
+                if (pending != null) {
+                    producer.send(pending, onSent);
+                    records++;
+                }
+            }
+            producer.flush();
+        }
+        sent.add(records);
+        return records;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("availability.simulator.events", sent, LongAdder::sum)
+                .description("Simulated availability events handed to the producer")
+                .register(registry);
+        FunctionCounter.builder("availability.simulator.duplicates", duplicates, LongAdder::sum)
+                .description("Simulated events deliberately published twice")
+                .register(registry);
+        FunctionCounter.builder("availability.simulator.reordered", reordered, LongAdder::sum)
+                .description("Simulated events held back behind a newer sequence")
+                .register(registry);
+        FunctionCounter.builder("availability.simulator.failures", failed, LongAdder::sum)
+                .description("Simulated events the broker did not acknowledge")
+                .register(registry);
+    }
+
+    /** Sleeps until {@code event} is due at the target rate; never sleeps when behind. */
+    private void pace(long started, long event) {
+        long due = started + event * 1_000_000_000L / eventsPerSecond;
+        long wait = due - System.nanoTime();
+        if (wait > 50_000) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private byte[] payloadPrefix(FlightDateKey key) {
+        try {
+            return concat(bytes("{\"key\":"), objectMapper.writeValueAsBytes(key));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode flight " + key, e);
+        }
+    }
+
+    private static byte[] payload(byte[] prefix, long sequence, byte[] availability, byte[] timestamp) {
+        byte[] digits = bytes(Long.toString(sequence));
+        byte[] payload = new byte[prefix.length + SEQUENCE_FIELD.length + digits.length + AVAILABILITY_FIELD.length
+                + availability.length + TIMESTAMP_FIELD.length + timestamp.length + END.length];
+        int at = 0;
+        for (byte[] part : new byte[][]{prefix, SEQUENCE_FIELD, digits, AVAILABILITY_FIELD, availability, TIMESTAMP_FIELD, timestamp, END}) {
+            System.arraycopy(part, 0, payload, at, part.length);
+            at += part.length;
+        }
+        return payload;
+    }
+
+    /** Sells a seat in a random class, or releases some when the class is sold out. */
+    private static long changeOneSeat(long packed, SplittableRandom random) {
+        char bookingClass = BOOKING_CLASSES[random.nextInt(BOOKING_CLASSES.length)];
+        int current = PackedAvailability.seats(packed, bookingClass);
+        int next = current == 0 ? 1 + random.nextInt(PackedAvailability.MAX_SEATS) : current - 1;
+        return PackedAvailability.withSeats(packed, bookingClass, next);
+    }
+
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.availability.simulator.kafka;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    public static final String WRITE_BEHIND_CONTAINER_FACTORY = "writeBehindKafkaListenerContainerFactory";
+    public static final String PARALLEL_CONTAINER_FACTORY = "parallelKafkaListenerContainerFactory";
+    public static final String PARALLEL_LISTENER_ID = "availability-parallel";
+
+    /**
+     * Batch listeners whose offsets are committed only when {@link WriteBehindFlusher}
+     * acknowledges a poll after its database write. Acknowledgments come from the flush
+     * thread in poll order and are committed by the consumer thread on its next poll.
+     */
+    @Bean(WRITE_BEHIND_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> writeBehindKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /**
+     * Batch listeners that hand records to {@link ShardedEventProcessor} and commit offsets
+     * themselves as lanes complete. The container never commits on its own; idle events
+     * give the listener a chance to commit when no new records arrive.
+     */
+    @Bean(PARALLEL_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            ObjectProvider<ShardedEventProcessor> processor,
+            @Value("${availability.consumer.parallel.commit-interval-ms:1000}") long commitIntervalMs) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setIdleEventInterval(commitIntervalMs);
+        processor.ifAvailable(factory.getContainerProperties()::setConsumerRebalanceListener);
+        return factory;
+    }
+}
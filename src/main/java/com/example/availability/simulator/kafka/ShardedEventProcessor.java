@@ -0,0 +1,213 @@
+package com.example.availability.simulator.kafka;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans availability records out onto a fixed number of ordered lanes, each a single
+ * virtual thread. Records are routed by a hash of their flight-date, so all events for
+ * one key are applied in offset order while different keys run in parallel.
+ * <p>
+ * Lanes finish out of offset order, so each partition tracks the offsets still in flight
+ * and only the lowest of them (or, when idle, the next offset to read) is committed. A
+ * record is never committed before every earlier record of its partition is done.
+ * Commits are issued by the consumer thread through {@link #commitCompleted}.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.consumer.parallel.enabled", havingValue = "true")
+public class ShardedEventProcessor implements ConsumerAwareRebalanceListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedEventProcessor.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Offsets dispatched but not yet completed, per partition
+    private static final class PartitionProgress {
+        final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        volatile long nextOffset;
+        // Consumer thread only; starts at the first offset seen, which there is no point committing
+        long committed;
+
+        PartitionProgress(long firstOffset) {
+            this.nextOffset = firstOffset;
+            this.committed = firstOffset;
+        }
+
+        long committable() {
+            Long lowest = inFlight.ceiling(Long.MIN_VALUE);
+            return lowest != null ? lowest : nextOffset;
+        }
+    }
+
+    private final ExecutorService[] lanes;
+    private final Map<TopicPartition, PartitionProgress> progress = new ConcurrentHashMap<>();
+    private final Semaphore inFlight;
+    private final TransactionTemplate transactionTemplate;
+    private final ConsumedOffsets consumedOffsets;
+    private final Duration drainTimeout;
+
+    public ShardedEventProcessor(PlatformTransactionManager transactionManager, ConsumedOffsets consumedOffsets,
+                                 @Value("${availability.consumer.parallel.shards:16}") int shards,
+                                 @Value("${availability.consumer.parallel.max-in-flight:10000}") int maxInFlight,
+                                 @Value("${availability.consumer.parallel.drain-timeout:PT30S}") Duration drainTimeout) {
+        if (shards <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Shard count and max in-flight records must be positive");
+        }
+        this.lanes = new ExecutorService[shards];
+        for (int i = 0; i < shards; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("availability-shard-" + i).factory());
+        }
+        this.inFlight = new Semaphore(maxInFlight);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.consumedOffsets = consumedOffsets;
+        this.drainTimeout = drainTimeout;
+    }
+
+    public int shards() {
+        return lanes.length;
+    }
+
+    /**
+     * Queues {@code work} on the lane owning {@code keyHash}, to run in its own
+     * transaction. Blocks the consumer thread while the in-flight limit is reached.
+     */
+    public void submit(ConsumerRecord<?, ?> record, long keyHash, Runnable work) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        long offset = record.offset();
+        inFlight.acquireUninterruptibly();
+        PartitionProgress partitionProgress = dispatched(partition, offset);
+        partitionProgress.inFlight.add(offset);
+
+        lanes[(int) Math.floorMod(keyHash, (long) lanes.length)].execute(() -> {
+            try {
+                runWithRetry(record, work);
+            } finally {
+                partitionProgress.inFlight.remove(offset);
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Marks a record as done without running anything, e.g. one that cannot be parsed.
+     */
+    public void skip(ConsumerRecord<?, ?> record) {
+        dispatched(new TopicPartition(record.topic(), record.partition()), record.offset());
+    }
+
+    /**
+     * Commits, per partition, everything below the lowest offset still in flight. Must be
+     * called on the consumer thread.
+     */
+    public void commitCompleted(Consumer<?, ?> consumer) {
+        commit(consumer, progress.keySet());
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Finish what is running so the next owner does not apply the same keys concurrently
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (TopicPartition partition : partitions) {
+            PartitionProgress partitionProgress = progress.get(partition);
+            while (partitionProgress != null && !partitionProgress.inFlight.isEmpty() && System.nanoTime() < deadline) {
+                sleep(10);
+            }
+        }
+        commit(consumer, partitions);
+        partitions.forEach(progress::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitions.forEach(progress::remove);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Availability lane did not drain before shutdown; uncommitted records will be replayed");
+            }
+        }
+    }
+
+    private PartitionProgress dispatched(TopicPartition partition, long offset) {
+        PartitionProgress partitionProgress = progress.computeIfAbsent(partition, p -> new PartitionProgress(offset));
+        partitionProgress.nextOffset = Math.max(partitionProgress.nextOffset, offset + 1);
+        return partitionProgress;
+    }
+
+    private void commit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            PartitionProgress partitionProgress = progress.get(partition);
+            if (partitionProgress == null) {
+                continue;
+            }
+            long committable = partitionProgress.committable();
+            if (committable > partitionProgress.committed) {
+                offsets.put(partition, new OffsetAndMetadata(committable));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        consumer.commitSync(offsets);
+        offsets.forEach((partition, offset) -> {
+            progress.get(partition).committed = offset.offset();
+            consumedOffsets.record(partition.partition(), offset.offset() - 1);
+        });
+    }
+
+    private void runWithRetry(ConsumerRecord<?, ?> record, Runnable work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> work.run());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    // In a real system, send to DLQ
+                    log.error("Giving up on availability event at {}-{}@{} after {} attempts",
+                            record.topic(), record.partition(), record.offset(), attempt, e);
+                    return;
+                }
+                log.warn("Retrying availability event at {}-{}@{} (attempt {})",
+                        record.topic(), record.partition(), record.offset(), attempt, e);
+                sleep(100L * attempt);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
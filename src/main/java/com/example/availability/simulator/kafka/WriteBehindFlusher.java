@@ -0,0 +1,190 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.data.AppliedEvents;
+import com.example.availability.simulator.data.FlightRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence for availability events. The consumer applies events to the
+ * cache straight away and hands them here; pending writes are coalesced to the latest
+ * sequence per flight-date and written to the {@code flight} table in JDBC batches by a
+ * background flush.
+ * <p>
+ * Nothing counts as consumed until the flush covering it commits: only then are cache
+ * entries marked persisted, offsets recorded and the Kafka acknowledgments released. A
+ * failed flush keeps everything pending and is retried on the next tick, so a crash
+ * replays unflushed records rather than losing them.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.consumer.write-behind.enabled", havingValue = "true")
+public class WriteBehindFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindFlusher.class);
+
+    private record EncodedKey(long high, long low) {}
+
+    private final AvailabilityCache availabilityCache;
+    private final FlightRepository flightRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConsumedOffsets consumedOffsets;
+    private final int batchSize;
+    private final int maxPending;
+
+    // Guards the pending state; held only to add to it or to swap it out
+    private final Object pendingLock = new Object();
+    private Map<EncodedKey, AvailabilityEvent> pendingEvents = new HashMap<>();
+    private Map<Integer, Long> pendingOffsets = new HashMap<>();
+    private List<Acknowledgment> pendingAcks = new ArrayList<>();
+
+    // Serializes flushes between the scheduler and back-pressured listeners
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public WriteBehindFlusher(AvailabilityCache availabilityCache, FlightRepository flightRepository,
+                              PlatformTransactionManager transactionManager, ConsumedOffsets consumedOffsets,
+                              @Value("${availability.consumer.write-behind.batch-size:1000}") int batchSize,
+                              @Value("${availability.consumer.write-behind.max-pending:50000}") int maxPending) {
+        if (batchSize <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("Write-behind batch size and max pending must be positive");
+        }
+        this.availabilityCache = availabilityCache;
+        this.flightRepository = flightRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.consumedOffsets = consumedOffsets;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Queues events already applied to the cache, together with the partition offsets
+     * they came from and the acknowledgment to release once they are durable. When too
+     * many writes are pending the caller flushes inline, which throttles the consumer to
+     * the database's pace.
+     */
+    public void enqueue(Collection<AvailabilityEvent> events, Map<Integer, Long> offsets, Acknowledgment ack) {
+        int pending;
+        synchronized (pendingLock) {
+            for (AvailabilityEvent event : events) {
+                pendingEvents.merge(new EncodedKey(event.high(), event.low()), event,
+                        (current, candidate) -> candidate.sequenceNumber() > current.sequenceNumber() ? candidate : current);
+            }
+            offsets.forEach((partition, offset) -> pendingOffsets.merge(partition, offset, Math::max));
+            pendingAcks.add(ack);
+            pending = pendingEvents.size();
+        }
+        if (pending >= maxPending) {
+            flush();
+        }
+    }
+
+    public int pending() {
+        synchronized (pendingLock) {
+            return pendingEvents.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${availability.consumer.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed; pending updates will be retried", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduledFlush();
+    }
+
+    /**
+     * Writes everything pending in one transaction and then releases what it covered.
+     * Returns the number of flight-dates written.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            Map<EncodedKey, AvailabilityEvent> events;
+            Map<Integer, Long> offsets;
+            List<Acknowledgment> acks;
+            synchronized (pendingLock) {
+                if (pendingAcks.isEmpty()) {
+                    return 0;
+                }
+                events = pendingEvents;
+                offsets = pendingOffsets;
+                acks = pendingAcks;
+                pendingEvents = new HashMap<>();
+                pendingOffsets = new HashMap<>();
+                pendingAcks = new ArrayList<>();
+            }
+
+            List<AvailabilityEvent> batch = new ArrayList<>(events.values());
+            AppliedEvents result;
+            try {
+                result = transactionTemplate.execute(status -> write(batch));
+            } catch (RuntimeException e) {
+                requeue(events, offsets, acks);
+                throw e;
+            }
+
+            // Release only what the committed flush applied; stale entries would hide the newer row
+            for (AvailabilityEvent event : result.applied()) {
+                availabilityCache.markPersisted(event);
+            }
+            for (AvailabilityEvent event : result.stale()) {
+                availabilityCache.discardSuperseded(event);
+            }
+            offsets.forEach(consumedOffsets::record);
+            acks.forEach(Acknowledgment::acknowledge);
+            log.debug("Flushed {} availability updates covering {} polls", batch.size(), acks.size());
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private AppliedEvents write(List<AvailabilityEvent> batch) {
+        List<AvailabilityEvent> applied = new ArrayList<>(batch.size());
+        List<AvailabilityEvent> stale = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<AvailabilityEvent> chunk = batch.subList(from, Math.min(batch.size(), from + batchSize));
+            AppliedEvents result = flightRepository.applyIfNewer(chunk);
+            applied.addAll(result.applied());
+            stale.addAll(result.stale());
+        }
+        if (applied.size() + stale.size() < batch.size()) {
+            // Unknown flights; their cache entries stay pinned, as the database has no row to reload
+            log.warn("{} of {} availability updates matched no flight",
+                    batch.size() - applied.size() - stale.size(), batch.size());
+        }
+        return new AppliedEvents(applied, stale);
+    }
+
+    private void requeue(Map<EncodedKey, AvailabilityEvent> events, Map<Integer, Long> offsets, List<Acknowledgment> acks) {
+        synchronized (pendingLock) {
+            // Newer events queued during the failed flush win over the ones put back
+            events.forEach((key, event) -> pendingEvents.merge(key, event,
+                    (current, candidate) -> candidate.sequenceNumber() > current.sequenceNumber() ? candidate : current));
+            offsets.forEach((partition, offset) -> pendingOffsets.merge(partition, offset, Math::max));
+            pendingAcks.addAll(0, acks);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.availability.simulator.load;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator for {@code GET /availability}. Requests are issued at a
+ * constant arrival rate per phase, whether or not earlier ones have completed, and each
+ * latency is measured from the request's scheduled start rather than from when it was
+ * actually sent. Stalls on either side therefore show up in the percentiles instead of
+ * silently lowering the offered load (coordinated omission). Requests shed because too
+ * many are in flight are recorded at the request timeout, for the same reason.
+ * <p>
+ * Keys come from the seeded {@code flight} table, drawn with Zipf skew; a configurable
+ * share are turned into unknown flight-dates by moving the arrival time. Each phase is
+ * reported with HDR histogram percentiles and achieved throughput, and the whole run is
+ * written as JSON to {@code availability.traffic.report-path}.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.traffic.enabled", havingValue = "true")
+public class TrafficGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficGenerator.class);
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    /**
+     * One stretch of constant-rate load, written as {@code name:requestsPerSecond:duration},
+     * e.g. {@code steady:2000:PT60S}.
+     */
+    public record Phase(String name, int requestsPerSecond, Duration duration) {
+        public Phase {
+            if (requestsPerSecond <= 0 || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Phase " + name + " needs a positive rate and duration");
+            }
+        }
+
+        public static List<Phase> parse(String phases) {
+            List<Phase> parsed = new ArrayList<>();
+            for (String phase : phases.split(",")) {
+                String[] parts = phase.trim().split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Expected name:requestsPerSecond:duration, got " + phase);
+                }
+                parsed.add(new Phase(parts[0], Integer.parseInt(parts[1]), Duration.parse(parts[2])));
+            }
+            return parsed;
+        }
+    }
+
+    private final FlightRepository flightRepository;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final int flightCount;
+    private final double missRatio;
+    private final double zipfExponent;
+    private final List<Phase> phases;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+    private final Path reportPath;
+
+    public TrafficGenerator(FlightRepository flightRepository, ObjectMapper objectMapper,
+                            @Value("${availability.traffic.base-url:http://localhost:8080}") String baseUrl,
+                            @Value("${availability.traffic.flights:10000}") int flightCount,
+                            @Value("${availability.traffic.miss-ratio:0.05}") double missRatio,
+                            @Value("${availability.traffic.zipf-exponent:1.0}") double zipfExponent,
+                            @Value("${availability.traffic.phases:warmup:500:PT10S,steady:2000:PT60S}") String phases,
+                            @Value("${availability.traffic.max-in-flight:10000}") int maxInFlight,
+                            @Value("${availability.traffic.request-timeout:PT5S}") Duration requestTimeout,
+                            @Value("${availability.traffic.report-path:build/traffic-report.json}") Path reportPath) {
+        if (missRatio < 0 || missRatio > 1) {
+            throw new IllegalArgumentException("Miss ratio must be between 0 and 1");
+        }
+        if (flightCount <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Flight count and max in-flight requests must be positive");
+        }
+        this.flightRepository = flightRepository;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.flightCount = flightCount;
+        this.missRatio = missRatio;
+        this.zipfExponent = zipfExponent;
+        this.phases = Phase.parse(phases);
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = requestTimeout;
+        this.reportPath = reportPath;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<FlightDateKey> flights = flightRepository.findAll(PageRequest.of(0, flightCount)).stream()
+                .map(Flight::key)
+                .toList();
+        if (flights.isEmpty()) {
+            log.warn("No flights to generate traffic for");
+            return;
+        }
+        Thread.ofPlatform().name("traffic-generator").daemon().start(() -> {
+            try {
+                writeReport(run(flights, phases));
+            } catch (IOException | RuntimeException e) {
+                log.error("Traffic generation failed", e);
+            }
+        });
+    }
+
+    /**
+     * Runs the phases in order on the calling thread and returns their results.
+     */
+    public TrafficReport run(List<FlightDateKey> flights, List<Phase> phases) {
+        if (flights.isEmpty()) {
+            throw new IllegalArgumentException("Traffic needs at least one flight");
+        }
+        SplittableRandom random = new SplittableRandom();
+        ZipfDistribution hotness = new ZipfDistribution(flights.size(), zipfExponent, random);
+        List<String> hitUrls = flights.stream().map(this::url).toList();
+        Instant startedAt = Instant.now();
+
+        List<TrafficReport.PhaseResult> results = new ArrayList<>(phases.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(requestTimeout)
+                    .build();
+            for (Phase phase : phases) {
+                TrafficReport.PhaseResult result = runPhase(client, phase, () -> {
+                    int flight = hotness.sample(random);
+                    if (random.nextDouble() < missRatio) {
+                        FlightDateKey key = flights.get(flight);
+                        return url(key, key.arrivalDateTime().plusMinutes(1 + random.nextInt(600)));
+                    }
+                    return hitUrls.get(flight);
+                });
+                log.info("Phase {}: {} req/s offered, {} req/s achieved, p50={} ms p99={} ms p99.9={} ms max={} ms, "
+                                + "{} ok, {} not found, {} errors, {} dropped",
+                        result.name(), result.targetRate(), String.format("%.1f", result.throughput()),
+                        millis(result.p50Micros()), millis(result.p99Micros()), millis(result.p999Micros()),
+                        millis(result.maxMicros()), result.ok(), result.notFound(), result.errors(), result.dropped());
+                results.add(result);
+            }
+        }
+        return new TrafficReport(startedAt, baseUrl, missRatio, zipfExponent, results);
+    }
+
+    public void writeReport(TrafficReport report) throws IOException {
+        Path parent = reportPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Traffic report written to {}", reportPath.toAbsolutePath());
+    }
+
+    private TrafficReport.PhaseResult runPhase(HttpClient client, Phase phase, Supplier<String> nextUrl) {
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        LongAdder ok = new LongAdder();
+        LongAdder notFound = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long dropped = 0;
+        long droppedMicros = Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(requestTimeout.toNanos()));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long started = System.nanoTime();
+        long phaseNanos = phase.duration().toNanos();
+        long requests = 0;
+        for (long i = 0; ; i++) {
+            long scheduled = started + i * 1_000_000_000L / phase.requestsPerSecond();
+            if (scheduled - started >= phaseNanos) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            requests++;
+            if (!inFlight.tryAcquire()) {
+                // Shedding rather than waiting keeps the arrival rate open-loop; the client
+                // would have waited out its timeout, so the request counts as that slow
+                latencies.recordValue(droppedMicros);
+                dropped++;
+                continue;
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(nextUrl.get())).timeout(requestTimeout).GET().build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                latencies.recordValue(Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - scheduled) / 1_000));
+                if (failure != null) {
+                    errors.increment();
+                } else if (response.statusCode() == 200) {
+                    ok.increment();
+                } else if (response.statusCode() == 404) {
+                    notFound.increment();
+                } else {
+                    errors.increment();
+                }
+                inFlight.release();
+            });
+        }
+
+        // Let the phase's stragglers finish so they are counted against it
+        try {
+            if (inFlight.tryAcquire(maxInFlight, requestTimeout.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        return new TrafficReport.PhaseResult(phase.name(), phase.requestsPerSecond(), elapsedSeconds, requests,
+                ok.sum(), notFound.sum(), errors.sum(), dropped, (ok.sum() + notFound.sum()) / elapsedSeconds,
+                latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(90),
+                latencies.getValueAtPercentile(99), latencies.getValueAtPercentile(99.9),
+                latencies.getMaxValue(), latencies.getMean());
+    }
+
+    private String url(FlightDateKey key) {
+        return url(key, key.arrivalDateTime());
+    }
+
+    private String url(FlightDateKey key, LocalDateTime arrival) {
+        return baseUrl + "/availability?flightNumber=" + key.flightNumber()
+                + "&origin=" + key.origin() + "&destination=" + key.destination()
+                + "&departureDateTime=" + key.departureDateTime() + "&arrivalDateTime=" + arrival;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+}
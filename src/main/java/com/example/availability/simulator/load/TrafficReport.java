@@ -0,0 +1,19 @@
+package com.example.availability.simulator.load;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Machine-readable outcome of a {@link TrafficGenerator} run, written as JSON so runs of
+ * different builds can be compared. Latencies are in microseconds, measured from each
+ * request's scheduled start.
+ */
+public record TrafficReport(Instant startedAt, String baseUrl, double missRatio, double zipfExponent,
+                            List<PhaseResult> phases) {
+
+    public record PhaseResult(String name, int targetRate, double durationSeconds, long requests,
+                              long ok, long notFound, long errors, long dropped, double throughput,
+                              long p50Micros, long p90Micros, long p99Micros, long p999Micros, long maxMicros,
+                              double meanMicros) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.availability.simulator.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed draws over {@code n} items, for skewed synthetic load: the item of rank
+ * {@code k} is drawn with probability proportional to {@code 1 / k^exponent}. Ranks are
+ * mapped to items through a random permutation, so the hot items are spread over the
+ * input rather than being its first entries. Sampling is a binary search over the
+ * cumulative distribution.
+ */
+public final class ZipfDistribution {
+
+    private final double[] cdf;
+    private final int[] itemByRank;
+
+    public ZipfDistribution(int n, double exponent, SplittableRandom random) {
+        if (n <= 0 || exponent <= 0) {
+            throw new IllegalArgumentException("Zipf item count and exponent must be positive");
+        }
+        this.cdf = cdf(n, exponent);
+        this.itemByRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            itemByRank[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = itemByRank[i];
+            itemByRank[i] = itemByRank[j];
+            itemByRank[j] = swap;
+        }
+    }
+
+    /**
+     * Index of the next item drawn.
+     */
+    public int sample(SplittableRandom random) {
+        return itemByRank[rank(cdf, random.nextDouble())];
+    }
+
+    /** Cumulative probabilities over ranks 1..n. */
+    static double[] cdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1.0 / Math.pow(rank, exponent);
+            cdf[rank - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= total;
+        }
+        return cdf;
+    }
+
+    /** Zero-based rank whose cumulative probability first reaches {@code uniform}. */
+    static int rank(double[] cdf, double uniform) {
+        int index = Arrays.binarySearch(cdf, uniform);
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.availability.simulator.service;
+
+import com.example.availability.simulator.availability.Availability;
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.cluster.ClusterTopology;
+import com.example.availability.simulator.data.ProgressLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warms {@link AvailabilityCache} with every flight departing inside the preload window
+ * before the application reports ready (runners complete before readiness flips).
+ * <p>
+ * The {@code flight} table is split into id ranges scanned in parallel. Each worker
+ * streams its range through a forward-only cursor with a fetch size, inside a read-only
+ * transaction so PostgreSQL honours the fetch size, and never builds JPA entities.
+ * Departure days wholly inside the window are then marked loaded, so route searches on
+ * them are answered from the cache. In cluster mode only the flights this node owns are
+ * loaded; the rest are counted as skipped.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "availability.preload.enabled", havingValue = "true", matchIfMissing = true)
+public class AvailabilityPreloader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityPreloader.class);
+
+    private static final String RANGE_QUERY = """
+            SELECT flight_number, origin, destination, departure_date_time, arrival_date_time, availability, last_sequence
+            FROM flight
+            WHERE id BETWEEN ? AND ? AND departure_date_time >= ? AND departure_date_time < ?""";
+
+    private final AvailabilityCache availabilityCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int threads;
+    private final Duration window;
+    private final Duration progressInterval;
+    private final ClusterTopology cluster;
+
+    public AvailabilityPreloader(AvailabilityCache availabilityCache, DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 int threads, int fetchSize, Duration window, Duration progressInterval) {
+        this(availabilityCache, dataSource, transactionManager, threads, fetchSize, window, progressInterval, Optional.empty());
+    }
+
+    @Autowired
+    public AvailabilityPreloader(AvailabilityCache availabilityCache, DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${availability.preload.threads:4}") int threads,
+                                 @Value("${availability.preload.fetch-size:5000}") int fetchSize,
+                                 @Value("${availability.preload.window:P30D}") Duration window,
+                                 @Value("${availability.preload.progress-interval:PT5S}") Duration progressInterval,
+                                 Optional<ClusterTopology> cluster) {
+        this.availabilityCache = availabilityCache;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.threads = threads;
+        this.window = window;
+        this.progressInterval = progressInterval;
+        this.cluster = cluster.orElse(null);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        preload(LocalDateTime.now());
+    }
+
+    /**
+     * Loads flights departing in {@code [from, from + window)} and returns how many were
+     * written to the cache.
+     */
+    public long preload(LocalDateTime from) throws InterruptedException, ExecutionException {
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM flight");
+        if (bounds.get("lo") == null) {
+            log.info("Preload skipped: flight table is empty");
+            return 0;
+        }
+        long minId = ((Number) bounds.get("lo")).longValue();
+        long maxId = ((Number) bounds.get("hi")).longValue();
+        Timestamp windowStart = Timestamp.valueOf(from);
+        Timestamp windowEnd = Timestamp.valueOf(from.plus(window));
+
+        long span = maxId - minId + 1;
+        long step = (span + threads - 1) / threads;
+        LongAdder loaded = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        long start = System.nanoTime();
+
+        log.info("Preloading flights departing before {} with {} workers over ids {}..{}", windowEnd, threads, minId, maxId);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> ProgressLog.flights(log, "Preload progress", loaded.sum(), start),
+                progressInterval.toMillis(), progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            List<Future<?>> ranges = new ArrayList<>(threads);
+            for (long lo = minId; lo <= maxId; lo += step) {
+                long rangeStart = lo;
+                long rangeEnd = Math.min(maxId, lo + step - 1);
+                ranges.add(workers.submit(() -> loadRange(rangeStart, rangeEnd, windowStart, windowEnd, loaded, skipped)));
+            }
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } finally {
+            progress.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        ProgressLog.flights(log, "Preload complete", loaded.sum(), start);
+        if (skipped.sum() > 0) {
+            log.info("Preload skipped {} flights owned by other cluster nodes", skipped.sum());
+        }
+
+        // Days wholly inside the window are now complete in the cache for every route
+        LocalDateTime to = from.plus(window);
+        for (LocalDate day = from.toLocalDate(); !day.plusDays(1).atStartOfDay().isAfter(to); day = day.plusDays(1)) {
+            if (!day.atStartOfDay().isBefore(from)) {
+                availabilityCache.markDayLoaded(day);
+            }
+        }
+        if (availabilityCache.size() < loaded.sum()) {
+            log.warn("Cache budget holds {} of {} preloaded flights; raise availability.cache.max-size or shorten the window",
+                    availabilityCache.size(), loaded.sum());
+        }
+        return loaded.sum();
+    }
+
+    private void loadRange(long fromId, long toId, Timestamp windowStart, Timestamp windowEnd, LongAdder loaded, LongAdder skipped) {
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(RANGE_QUERY, rs -> {
+            FlightDateKey key = new FlightDateKey(
+                    rs.getInt(1),
+                    rs.getString(2),
+                    rs.getString(3),
+                    rs.getTimestamp(4).toLocalDateTime(),
+                    rs.getTimestamp(5).toLocalDateTime());
+            if (cluster != null && !cluster.isLocal(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key))) {
+                skipped.increment();
+                return;
+            }
+            availabilityCache.putFromDatabase(new Availability(key, rs.getString(6)), rs.getLong(7));
+            loaded.increment();
+        }, fromId, toId, windowStart, windowEnd));
+    }
+}
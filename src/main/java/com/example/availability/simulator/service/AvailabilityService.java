@@ -3,49 +3,463 @@ package com.example.availability.simulator.service;
 import com.example.availability.simulator.availability.Availability;
 import com.example.availability.simulator.availability.AvailabilityCache;
 import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.example.availability.simulator.cluster.ClusterTopology;
+import com.example.availability.simulator.cluster.PeerAvailabilityClient;
+import com.example.availability.simulator.cluster.PeerUnavailableException;
 import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightAvailability;
 import com.example.availability.simulator.data.FlightRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Read-through lookups of flight-date availability: cache first, then the database, with
+ * the result written back to the cache.
+ * <p>
+ * In cluster mode ({@link ClusterTopology}) each node only serves, caches and consumes
+ * events for the flight-dates it owns. Lookups for other keys go to their owner through
+ * {@link PeerAvailabilityClient}, so the owner's cache stays the only copy.
+ */
 @Service
-public class AvailabilityService {
+public class AvailabilityService implements MeterBinder {
 
     private final AvailabilityCache availabilityCache;
     private final FlightRepository flightRepository;
+    private final ClusterTopology cluster;
+    private final PeerAvailabilityClient peers;
+
+    // Single-flight: concurrent misses on one key share the first caller's database load
+    private final ConcurrentHashMap<FlightDateKey, CompletableFuture<Optional<VersionedAvailability>>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Duration loadWait;
+    private final LongAdder databaseLoads = new LongAdder();
+    private final LongAdder collapsedLoads = new LongAdder();
+    private final LongAdder loadWaitTimeouts = new LongAdder();
+    private final LongAdder knownAbsentHits = new LongAdder();
+
+    // FlightRepository latency by query shape; registered in bindTo, unrecorded until then
+    private volatile Timer pointLookupTimer;
+    private volatile Timer keysLookupTimer;
+    private volatile Timer routeDayLookupTimer;
 
     public AvailabilityService(AvailabilityCache availabilityCache, FlightRepository flightRepository) {
+        this(availabilityCache, flightRepository, Duration.ofSeconds(2));
+    }
+
+    public AvailabilityService(AvailabilityCache availabilityCache, FlightRepository flightRepository, Duration loadWait) {
+        this(availabilityCache, flightRepository, loadWait, Optional.empty(), Optional.empty());
+    }
+
+    @Autowired
+    public AvailabilityService(AvailabilityCache availabilityCache, FlightRepository flightRepository,
+                               @Value("${availability.service.load-wait:PT2S}") Duration loadWait,
+                               Optional<ClusterTopology> cluster, Optional<PeerAvailabilityClient> peers) {
+        if (cluster.isPresent() != peers.isPresent()) {
+            throw new IllegalArgumentException("Cluster mode needs both the topology and the peer client");
+        }
         this.availabilityCache = availabilityCache;
         this.flightRepository = flightRepository;
+        this.loadWait = loadWait;
+        this.cluster = cluster.orElse(null);
+        this.peers = peers.orElse(null);
     }
 
     public Optional<Availability> getAvailability(FlightDateKey key) {
+        if (cluster != null) {
+            return getAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+        }
         // 1. Check Cache
         Optional<Availability> cached = availabilityCache.getAvailability(key);
         if (cached.isPresent()) {
             return cached;
         }
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+        if (availabilityCache.isKnownAbsent(high, low)) {
+            knownAbsentHits.increment();
+            return Optional.empty();
+        }
+
+        return loadFromDatabase(key, high, low).map(VersionedAvailability::availability);
+    }
+
+    /**
+     * Same read-through lookup for a key in the {@link FlightDateKeyCodec} encoding. The
+     * {@link FlightDateKey} is only built on a cache miss.
+     */
+    public Optional<Availability> getAvailability(long high, long low) {
+        String owner = remoteOwner(high, low);
+        if (owner != null) {
+            return peers.lookup(owner, high, low).map(VersionedAvailability::availability);
+        }
+        Optional<Availability> cached = availabilityCache.getAvailability(high, low);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (availabilityCache.isKnownAbsent(high, low)) {
+            knownAbsentHits.increment();
+            return Optional.empty();
+        }
+
+        return loadFromDatabase(FlightDateKeyCodec.decode(high, low), high, low).map(VersionedAvailability::availability);
+    }
+
+    /**
+     * Same read-through lookup, returning the entry's sequence and pre-encoded payload
+     * along with it, e.g. to answer conditional requests.
+     */
+    public Optional<VersionedAvailability> getVersionedAvailability(long high, long low) {
+        String owner = remoteOwner(high, low);
+        if (owner != null) {
+            return peers.lookup(owner, high, low);
+        }
+        return getLocalVersionedAvailability(high, low);
+    }
+
+    /**
+     * The versioned lookup on this node only, never forwarded; serves other nodes' lookups
+     * of the keys this node owns.
+     */
+    public Optional<VersionedAvailability> getLocalVersionedAvailability(long high, long low) {
+        Optional<VersionedAvailability> cached = availabilityCache.getVersionedAvailability(high, low);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (availabilityCache.isKnownAbsent(high, low)) {
+            knownAbsentHits.increment();
+            return Optional.empty();
+        }
+
+        return loadFromDatabase(FlightDateKeyCodec.decode(high, low), high, low);
+    }
+
+    /**
+     * Resolves many keys at once, in request order. Cache hits and known-absent keys are
+     * answered in one pass; all remaining misses are loaded with a single set-based query
+     * instead of one query per key, and each outcome is written back to the cache.
+     */
+    public List<Optional<Availability>> getAvailabilities(List<FlightDateKey> keys) {
+        if (cluster == null) {
+            return getLocalAvailabilities(keys);
+        }
+
+        // Split by owner: one local pass, one request per peer, sent in parallel
+        List<FlightDateKey> localKeys = new ArrayList<>();
+        List<Integer> localPositions = new ArrayList<>();
+        Map<String, List<Integer>> remotePositions = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            FlightDateKey key = keys.get(i);
+            String owner = remoteOwner(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+            if (owner == null) {
+                localKeys.add(key);
+                localPositions.add(i);
+            } else {
+                remotePositions.computeIfAbsent(owner, o -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<Optional<Availability>> results = new ArrayList<>(Collections.nCopies(keys.size(), Optional.empty()));
+        try (ExecutorService lookups = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, Future<List<Optional<VersionedAvailability>>>> remote = new HashMap<>();
+            remotePositions.forEach((owner, positions) -> remote.put(owner, lookups.submit(() -> lookupOnPeer(owner, keys, positions))));
+
+            List<Optional<Availability>> local = localKeys.isEmpty() ? List.of() : getLocalAvailabilities(localKeys);
+            for (int i = 0; i < local.size(); i++) {
+                results.set(localPositions.get(i), local.get(i));
+            }
+            for (Map.Entry<String, List<Integer>> entry : remotePositions.entrySet()) {
+                List<Optional<VersionedAvailability>> found = remote.get(entry.getKey()).get();
+                for (int i = 0; i < found.size(); i++) {
+                    results.set(entry.getValue().get(i), found.get(i).map(VersionedAvailability::availability));
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new PeerUnavailableException("Peer lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PeerUnavailableException("Interrupted while looking up on peers", e);
+        }
+        return results;
+    }
+
+    private List<Optional<Availability>> getLocalAvailabilities(List<FlightDateKey> keys) {
+        List<Optional<Availability>> results = new ArrayList<>(keys.size());
+        Set<FlightDateKey> misses = new LinkedHashSet<>();
+
+        // 1. Check Cache
+        for (FlightDateKey key : keys) {
+            long high = FlightDateKeyCodec.high(key);
+            long low = FlightDateKeyCodec.low(key);
+            Optional<Availability> cached = availabilityCache.getAvailability(high, low);
+            if (cached.isEmpty() && availabilityCache.isKnownAbsent(high, low)) {
+                knownAbsentHits.increment();
+            } else if (cached.isEmpty()) {
+                misses.add(key);
+            }
+            results.add(cached);
+        }
+        if (misses.isEmpty()) {
+            return results;
+        }
+
+        // 2. Check Database, once for every miss
+        databaseLoads.increment();
+        long start = System.nanoTime();
+        List<Flight> flights = flightRepository.findAllByKeys(misses);
+        record(keysLookupTimer, start);
+        Map<FlightDateKey, Flight> found = new HashMap<>();
+        for (Flight flight : flights) {
+            found.put(flight.key(), flight);
+        }
+
+        // 3. Populate Cache, including the keys the database does not know
+        Map<FlightDateKey, Optional<Availability>> loaded = new HashMap<>();
+        for (FlightDateKey key : misses) {
+            Flight flight = found.get(key);
+            if (flight != null) {
+                Availability availability = new Availability(key, flight.getAvailability());
+                availabilityCache.putFromDatabase(availability, flight.getLastSequence());
+                loaded.put(key, Optional.of(availabilityCache.getAvailability(key).orElse(availability)));
+            } else {
+                availabilityCache.markAbsent(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+                loaded.put(key, Optional.empty());
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isEmpty()) {
+                results.set(i, loaded.getOrDefault(keys.get(i), Optional.empty()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * All flights on the route departing on {@code day}, ordered by departure. Days the
+     * cache holds completely are served from memory; otherwise the day is read from the
+     * database once, written to the cache and marked loaded for later searches.
+     */
+    public List<Availability> searchByRouteAndDay(String origin, String destination, LocalDate day) {
+        if (cluster != null) {
+            return searchAcrossCluster(origin, destination, day);
+        }
+
+        // 1. Check Cache
+        Optional<List<Availability>> indexed = availabilityCache.findByRouteAndDay(origin, destination, day);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
 
         // 2. Check Database
-        Optional<Flight> flightOpt = flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(
+        databaseLoads.increment();
+        long start = System.nanoTime();
+        List<Flight> flights = flightRepository.findByOriginAndDestinationAndDepartureDateTimeGreaterThanEqualAndDepartureDateTimeLessThan(
+                origin, destination, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        record(routeDayLookupTimer, start);
+
+        // 3. Populate Cache; an entry already cached may carry newer events than the row
+        List<Availability> results = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            FlightDateKey key = flight.key();
+            Availability availability = new Availability(key, flight.getAvailability());
+            availabilityCache.putFromDatabase(availability, flight.getLastSequence());
+            results.add(availabilityCache.getAvailability(key).orElse(availability));
+        }
+        availabilityCache.markRouteDayLoaded(origin, destination, day);
+
+        results.sort(Comparator.comparing((Availability a) -> a.key().departureDateTime())
+                .thenComparing(a -> a.key().flightNumber()));
+        return results;
+    }
+
+    /**
+     * Cluster mode: the day's flights spread over every node, so the database names them,
+     * this node caches the ones it owns, and their current state comes from their owners.
+     */
+    private List<Availability> searchAcrossCluster(String origin, String destination, LocalDate day) {
+        databaseLoads.increment();
+        long start = System.nanoTime();
+        List<Flight> flights = flightRepository.findByOriginAndDestinationAndDepartureDateTimeGreaterThanEqualAndDepartureDateTimeLessThan(
+                origin, destination, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        record(routeDayLookupTimer, start);
+
+        List<FlightDateKey> keys = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            FlightDateKey key = flight.key();
+            if (cluster.isLocal(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key))) {
+                availabilityCache.putFromDatabase(new Availability(key, flight.getAvailability()), flight.getLastSequence());
+            }
+            keys.add(key);
+        }
+        List<Optional<Availability>> current = getAvailabilities(keys);
+
+        List<Availability> results = new ArrayList<>(flights.size());
+        for (int i = 0; i < flights.size(); i++) {
+            results.add(current.get(i).orElse(new Availability(keys.get(i), flights.get(i).getAvailability())));
+        }
+        results.sort(Comparator.comparing((Availability a) -> a.key().departureDateTime())
+                .thenComparing(a -> a.key().flightNumber()));
+        return results;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("availability.db.loads", databaseLoads, LongAdder::sum)
+                .description("Cache-miss loads issued to the database")
+                .register(registry);
+        FunctionCounter.builder("availability.db.loads.collapsed", collapsedLoads, LongAdder::sum)
+                .description("Cache misses served by another request's in-flight database load")
+                .register(registry);
+        FunctionCounter.builder("availability.db.loads.wait.timeouts", loadWaitTimeouts, LongAdder::sum)
+                .description("Collapsed misses that gave up waiting and loaded on their own")
+                .register(registry);
+        FunctionCounter.builder("availability.cache.negative.hits", knownAbsentHits, LongAdder::sum)
+                .description("Lookups of unknown flight-dates answered from the negative cache")
+                .register(registry);
+        pointLookupTimer = lookupTimer(registry, "point");
+        keysLookupTimer = lookupTimer(registry, "keys");
+        routeDayLookupTimer = lookupTimer(registry, "route-day");
+    }
+
+    private static Timer lookupTimer(MeterRegistry registry, String query) {
+        return Timer.builder("availability.db.lookup")
+                .description("FlightRepository reads issued on cache misses")
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public long databaseLoads() {
+        return databaseLoads.sum();
+    }
+
+    public long collapsedLoads() {
+        return collapsedLoads.sum();
+    }
+
+    // Owner of a key held by another node, or null when this node serves it
+    private String remoteOwner(long high, long low) {
+        if (cluster == null) {
+            return null;
+        }
+        String owner = cluster.owner(high, low);
+        return owner.equals(cluster.self()) ? null : owner;
+    }
+
+    private List<Optional<VersionedAvailability>> lookupOnPeer(String owner, List<FlightDateKey> keys, List<Integer> positions) {
+        long[] highs = new long[positions.size()];
+        long[] lows = new long[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            FlightDateKey key = keys.get(positions.get(i));
+            highs[i] = FlightDateKeyCodec.high(key);
+            lows[i] = FlightDateKeyCodec.low(key);
+        }
+        return peers.lookupAll(owner, highs, lows, positions.size());
+    }
+
+    private Optional<VersionedAvailability> loadFromDatabase(FlightDateKey key, long high, long low) {
+        CompletableFuture<Optional<VersionedAvailability>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<VersionedAvailability>> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            collapsedLoads.increment();
+            return awaitLoad(key, high, low, inFlight);
+        }
+
+        try {
+            Optional<VersionedAvailability> result = queryDatabase(key, high, low);
+            load.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, load);
+        }
+    }
+
+    private Optional<VersionedAvailability> awaitLoad(FlightDateKey key, long high, long low,
+                                                      CompletableFuture<Optional<VersionedAvailability>> inFlight) {
+        try {
+            return inFlight.get(loadWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Bounded wait: a stuck leader must not stall every follower behind it
+            loadWaitTimeouts.increment();
+            return queryDatabase(key, high, low);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Database load failed for " + key, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for database load of " + key, e);
+        }
+    }
+
+    /**
+     * Reads one key from the database and writes the outcome back to the cache: the row
+     * when found, a known-absent mark otherwise.
+     */
+    private Optional<VersionedAvailability> queryDatabase(FlightDateKey key, long high, long low) {
+        databaseLoads.increment();
+
+        // 2. Check Database (indexed scalar read, no managed entity)
+        long start = System.nanoTime();
+        Optional<FlightAvailability> availabilityOpt = flightRepository.findAvailability(
                 key.flightNumber(),
                 key.origin(),
                 key.destination(),
-                key.departureDateTime()
+                key.departureDateTime(),
+                key.arrivalDateTime()
         );
+        record(pointLookupTimer, start);
 
-        if (flightOpt.isPresent()) {
-            Flight flight = flightOpt.get();
-            Availability availability = new Availability(key, flight.getAvailability());
-
-            // 3. Populate Cache
-            availabilityCache.putFromDatabase(availability);
+        if (availabilityOpt.isPresent()) {
+            Availability availability = new Availability(key, availabilityOpt.get().availability());
 
-            return Optional.of(availability);
+            // 3. Populate Cache; an event applied since the read wins over the row
+            availabilityCache.putFromDatabase(availability, availabilityOpt.get().lastSequence());
+            VersionedAvailability loaded = VersionedAvailability.of(availability, availabilityOpt.get().lastSequence());
+            return availabilityCache.getVersionedAvailability(high, low).or(() -> Optional.of(loaded));
         }
 
         // 4. Not found
+        availabilityCache.markAbsent(high, low);
         return Optional.empty();
     }
 }
@@ -0,0 +1,199 @@
+package com.example.availability.simulator.snapshot;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityStore;
+import com.example.availability.simulator.kafka.ConsumedOffsets;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Periodically writes the cache to a memory-mapped snapshot file and restores it on
+ * startup, so a restarted instance serves warm instead of sending every first read to
+ * the database.
+ * <p>
+ * Layout (native byte order):
+ * <pre>
+ * header   magic:long version:int offsetCount:int entryCount:long createdAtMillis:long
+ * offsets  offsetCount x [partition:long nextOffset:long]
+ * entries  entryCount  x [high:long low:long sequence:long packedSeats:long dirty:long]
+ * </pre>
+ * Offsets are read before the entries are captured, so every event below them is
+ * already reflected in the snapshot. On restore the consumer replays from those offsets;
+ * events the snapshot already contains are rejected by the sequence check.
+ */
+@Component
+@ConditionalOnProperty(name = "availability.snapshot.enabled", havingValue = "true")
+public class CacheSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshotService.class);
+
+    static final long MAGIC = 0x41564C534E415031L; // "AVLSNAP1"
+    static final int VERSION = 1;
+    private static final long HEADER_BYTES = 32L;
+    private static final long OFFSET_BYTES = 2L * Long.BYTES;
+    private static final long ENTRY_BYTES = 5L * Long.BYTES;
+
+    private final AvailabilityCache availabilityCache;
+    private final ConsumedOffsets consumedOffsets;
+    private final Path path;
+
+    public CacheSnapshotService(AvailabilityCache availabilityCache, ConsumedOffsets consumedOffsets,
+                                @Value("${availability.snapshot.path:availability-cache.snap}") Path path) {
+        this.availabilityCache = availabilityCache;
+        this.consumedOffsets = consumedOffsets;
+        this.path = path;
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (!Files.exists(path)) {
+            log.info("No cache snapshot at {}, starting cold", path);
+            return;
+        }
+        long start = System.nanoTime();
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (file.byteSize() < HEADER_BYTES
+                    || file.get(ValueLayout.JAVA_LONG_UNALIGNED, 0) != MAGIC
+                    || file.get(ValueLayout.JAVA_INT_UNALIGNED, 8) != VERSION) {
+                log.warn("Ignoring unrecognised cache snapshot at {}", path);
+                return;
+            }
+            int offsetCount = file.get(ValueLayout.JAVA_INT_UNALIGNED, 12);
+            long entryCount = file.get(ValueLayout.JAVA_LONG_UNALIGNED, 16);
+            if (file.byteSize() < HEADER_BYTES + offsetCount * OFFSET_BYTES + entryCount * ENTRY_BYTES) {
+                log.warn("Ignoring truncated cache snapshot at {}", path);
+                return;
+            }
+
+            long position = HEADER_BYTES;
+            Map<Integer, Long> offsets = new HashMap<>();
+            for (int i = 0; i < offsetCount; i++, position += OFFSET_BYTES) {
+                offsets.put((int) file.get(ValueLayout.JAVA_LONG_UNALIGNED, position),
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position + Long.BYTES));
+            }
+            for (long i = 0; i < entryCount; i++, position += ENTRY_BYTES) {
+                availabilityCache.restoreEntry(
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position),
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position + 8),
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position + 16),
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position + 24),
+                        file.get(ValueLayout.JAVA_LONG_UNALIGNED, position + 32) != 0L);
+            }
+            consumedOffsets.restore(offsets);
+            log.info("Restored {} cache entries and offsets {} from {} in {} ms",
+                    entryCount, offsets, path, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Failed to restore cache snapshot from {}, starting cold", path, e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${availability.snapshot.interval-ms:60000}",
+            fixedDelayString = "${availability.snapshot.interval-ms:60000}")
+    public void scheduledSnapshot() {
+        snapshot();
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * Writes a snapshot next to the target file and atomically moves it into place.
+     * Entries are copied to the heap while the store holds writers off, and only written
+     * out once it has released them, so page faults on the mapped file never stall writers.
+     * Returns {@code false} if the file could not be written.
+     */
+    public synchronized boolean snapshot() {
+        long start = System.nanoTime();
+        // Offsets first: the entries captured afterwards are at least as new
+        Map<Integer, Long> offsets = consumedOffsets.snapshot();
+        EntryBuffer entries = new EntryBuffer(availabilityCache.size() + 1024);
+        availabilityCache.forEachEntry(entries);
+        long bytes = HEADER_BYTES + offsets.size() * OFFSET_BYTES + entries.count * ENTRY_BYTES;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena);
+
+            long position = HEADER_BYTES;
+            for (Map.Entry<Integer, Long> offset : offsets.entrySet()) {
+                file.set(ValueLayout.JAVA_LONG_UNALIGNED, position, offset.getKey());
+                file.set(ValueLayout.JAVA_LONG_UNALIGNED, position + Long.BYTES, offset.getValue());
+                position += OFFSET_BYTES;
+            }
+            MemorySegment.copy(entries.fields, 0, file, ValueLayout.JAVA_LONG_UNALIGNED, position,
+                    entries.count * EntryBuffer.FIELDS);
+
+            // Header last, so a torn write is never mistaken for a complete snapshot
+            file.set(ValueLayout.JAVA_INT_UNALIGNED, 8, VERSION);
+            file.set(ValueLayout.JAVA_INT_UNALIGNED, 12, offsets.size());
+            file.set(ValueLayout.JAVA_LONG_UNALIGNED, 16, entries.count);
+            file.set(ValueLayout.JAVA_LONG_UNALIGNED, 24, System.currentTimeMillis());
+            file.set(ValueLayout.JAVA_LONG_UNALIGNED, 0, MAGIC);
+            file.force();
+        } catch (IOException e) {
+            log.error("Failed to write cache snapshot to {}", temp, e);
+            return false;
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to move cache snapshot into place at {}", path, e);
+            return false;
+        }
+        log.info("Wrote {} cache entries to {} in {} ms", entries.count, path, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    // Entries in file order, growing as needed; the visitor only copies, so the store's pass stays short
+    private static final class EntryBuffer implements AvailabilityStore.EntryVisitor {
+
+        static final int FIELDS = (int) (ENTRY_BYTES / Long.BYTES);
+
+        long[] fields;
+        int count;
+
+        EntryBuffer(int expected) {
+            this.fields = new long[expected * FIELDS];
+        }
+
+        @Override
+        public void visit(long high, long low, long sequence, long packedSeats, boolean dirty) {
+            int at = count * FIELDS;
+            if (at == fields.length) {
+                fields = Arrays.copyOf(fields, Math.max(FIELDS, fields.length * 2));
+            }
+            fields[at] = high;
+            fields[at + 1] = low;
+            fields[at + 2] = sequence;
+            fields[at + 3] = packedSeats;
+            fields[at + 4] = dirty ? 1L : 0L;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.availability.simulator.subscription;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+
+/**
+ * One pushed change: the new availability line of a flight-date and the sequence of the
+ * event that set it. Deliveries for a key may repeat a sequence after a reconnect or an
+ * initial snapshot, so clients should ignore any not newer than the last one they applied.
+ */
+public record AvailabilityDelta(FlightDateKey key, long sequence, String availability) {
+}
@@ -0,0 +1,155 @@
+package com.example.availability.simulator.subscription;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityListener;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Open availability event streams, indexed by the flight-dates and routes they follow.
+ * <p>
+ * The cache calls {@link #availabilityUpdated} on the event-applying thread; fan-out is
+ * an index lookup and a buffer insert per matching subscription, and the writes to the
+ * connections run on virtual threads, one drain task per subscription with pending
+ * changes. Streams are async requests, so an idle subscription holds no thread.
+ */
+@Component
+public class AvailabilitySubscriptionRegistry implements AvailabilityListener, MeterBinder {
+
+    private final AvailabilityCache availabilityCache;
+    private final int maxSubscriptions;
+    private final int bufferSize;
+    private final Duration timeout;
+
+    private final ConcurrentHashMap<Subscription.PendingKey, Set<Subscription>> byKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Subscription>> byRoute = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("availability-push-", 0).factory());
+
+    public AvailabilitySubscriptionRegistry(AvailabilityCache availabilityCache,
+                                            @Value("${availability.subscriptions.max:50000}") int maxSubscriptions,
+                                            @Value("${availability.subscriptions.buffer-size:256}") int bufferSize,
+                                            @Value("${availability.subscriptions.timeout:PT30M}") Duration timeout) {
+        if (maxSubscriptions <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Subscription limit and buffer size must be positive");
+        }
+        this.availabilityCache = availabilityCache;
+        this.maxSubscriptions = maxSubscriptions;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        availabilityCache.addListener(this);
+    }
+
+    /**
+     * Streams changes to the given flight-dates, starting with their current state where
+     * the cache holds it.
+     */
+    public SseEmitter subscribe(Collection<FlightDateKey> keys) {
+        // Encode up front, so an unencodable key fails before anything is registered
+        List<Subscription.PendingKey> encoded = keys.stream()
+                .map(key -> new Subscription.PendingKey(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)))
+                .distinct()
+                .toList();
+        Subscription subscription = open(s -> encoded.forEach(key -> unregister(byKey, key, s)));
+        for (Subscription.PendingKey key : encoded) {
+            register(byKey, key, subscription);
+            // Read after registering, so a change racing the snapshot is delivered either way
+            availabilityCache.getVersionedAvailability(key.high(), key.low()).ifPresent(v ->
+                    subscription.offer(key.high(), key.low(), v.sequence(), v.availability().packedSeats()));
+        }
+        return subscription.emitter();
+    }
+
+    /**
+     * Streams changes to every flight-date on the route.
+     */
+    public SseEmitter subscribe(String origin, String destination) {
+        long route = FlightDateKeyCodec.route(origin, destination);
+        Subscription subscription = open(s -> unregister(byRoute, route, s));
+        register(byRoute, route, subscription);
+        return subscription.emitter();
+    }
+
+    @Override
+    public void availabilityUpdated(long high, long low, long sequence, long packedSeats) {
+        if (active.get() == 0) {
+            return;
+        }
+        Set<Subscription> keySubscribers = byKey.get(new Subscription.PendingKey(high, low));
+        if (keySubscribers != null) {
+            keySubscribers.forEach(s -> s.offer(high, low, sequence, packedSeats));
+        }
+        Set<Subscription> routeSubscribers = byRoute.get(FlightDateKeyCodec.route(high));
+        if (routeSubscribers != null) {
+            routeSubscribers.forEach(s -> s.offer(high, low, sequence, packedSeats));
+        }
+    }
+
+    public int activeSubscriptions() {
+        return active.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("availability.subscriptions.active", active, AtomicInteger::get)
+                .description("Open availability event streams")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        availabilityCache.removeListener(this);
+        List.copyOf(byRoute.values()).forEach(set -> set.forEach(s -> s.emitter().complete()));
+        List.copyOf(byKey.values()).forEach(set -> set.forEach(s -> s.emitter().complete()));
+        senders.shutdownNow();
+    }
+
+    private Subscription open(Consumer<Subscription> unindex) {
+        if (active.incrementAndGet() > maxSubscriptions) {
+            active.decrementAndGet();
+            throw new SubscriptionLimitException("Subscription limit of " + maxSubscriptions + " reached");
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(emitter, senders, bufferSize, s -> {
+            unindex.accept(s);
+            active.decrementAndGet();
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return subscription;
+    }
+
+    private static <K> void register(ConcurrentHashMap<K, Set<Subscription>> index, K key, Subscription subscription) {
+        index.compute(key, (k, subscribers) -> {
+            Set<Subscription> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscription);
+            return set;
+        });
+    }
+
+    private static <K> void unregister(ConcurrentHashMap<K, Set<Subscription>> index, K key, Subscription subscription) {
+        index.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(subscription);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.availability.simulator.subscription;
+
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.PackedAvailability;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * One open event stream. Changes are conflated into a bounded buffer holding the latest
+ * state per flight-date; when the buffer is full the oldest pending key is dropped, and
+ * the client is told how many were lost with an {@code overflow} event so it can re-read
+ * them. Writing to the connection happens on a separate drain task, so a slow client only
+ * ever holds up its own stream.
+ */
+final class Subscription {
+
+    record PendingKey(long high, long low) {}
+
+    private record Pending(long sequence, long packedSeats) {}
+
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final int bufferSize;
+    private final Consumer<Subscription> onClose;
+
+    // Guarded by this
+    private final LinkedHashMap<PendingKey, Pending> pending = new LinkedHashMap<>();
+    private long dropped;
+    private boolean draining;
+    private boolean closed;
+
+    Subscription(SseEmitter emitter, Executor executor, int bufferSize, Consumer<Subscription> onClose) {
+        this.emitter = emitter;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.onClose = onClose;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * Buffers a change for delivery. Never blocks.
+     */
+    void offer(long high, long low, long sequence, long packedSeats) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            PendingKey key = new PendingKey(high, low);
+            Pending current = pending.remove(key);
+            if (current != null && current.sequence() >= sequence) {
+                pending.put(key, current);
+                return;
+            }
+            pending.put(key, new Pending(sequence, packedSeats));
+            if (pending.size() > bufferSize) {
+                Iterator<PendingKey> oldest = pending.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+                dropped++;
+            }
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    synchronized int pending() {
+        return pending.size();
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+        }
+        onClose.accept(this);
+    }
+
+    private void drain() {
+        while (true) {
+            List<Map.Entry<PendingKey, Pending>> batch;
+            long lost;
+            synchronized (this) {
+                if (closed || (pending.isEmpty() && dropped == 0)) {
+                    draining = false;
+                    return;
+                }
+                batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+                lost = dropped;
+                dropped = 0;
+            }
+            try {
+                if (lost > 0) {
+                    emitter.send(SseEmitter.event().name("overflow").data(lost));
+                }
+                for (Map.Entry<PendingKey, Pending> entry : batch) {
+                    PendingKey key = entry.getKey();
+                    Pending change = entry.getValue();
+                    AvailabilityDelta delta = new AvailabilityDelta(FlightDateKeyCodec.decode(key.high(), key.low()),
+                            change.sequence(), PackedAvailability.format(change.packedSeats()));
+                    emitter.send(SseEmitter.event().name("availability").data(delta, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                emitter.completeWithError(e);
+                close();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.availability.simulator.subscription;
+
+/**
+ * The node already holds as many open availability streams as it is configured for.
+ */
+public class SubscriptionLimitException extends RuntimeException {
+
+    public SubscriptionLimitException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.availability.simulator.availability;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,7 +23,7 @@ class AvailabilityCacheTest {
     @BeforeEach
     void setUp() {
         cache = new AvailabilityCache();
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         key = new FlightDateKey(100, "JFK", "LHR", dep, arr);
     }
@@ -38,6 +44,22 @@ class AvailabilityCacheTest {
         assertEquals("F9 J9 Y9", result.get().availabilityString());
     }
 
+    @Test
+    void updateAvailability_notifiesListeners_onlyForNewerSequences() {
+        List<Long> notified = new ArrayList<>();
+        AvailabilityListener listener = (high, low, sequence, packedSeats) -> notified.add(sequence);
+        cache.addListener(listener);
+
+        cache.updateAvailability(new AvailabilityEvent(key, 2L, "F9", Instant.now()));
+        cache.updateAvailability(new AvailabilityEvent(key, 1L, "F8", Instant.now()));
+        cache.updateAvailability(new AvailabilityEvent(key, 2L, "F8", Instant.now()));
+        cache.putFromDatabase(new Availability(key, "F7"), 5L);
+        cache.removeListener(listener);
+        cache.updateAvailability(new AvailabilityEvent(key, 3L, "F6", Instant.now()));
+
+        assertEquals(List.of(2L), notified);
+    }
+
     @Test
     void updateAvailability_updatesEntry() {
         // Initial state
@@ -63,4 +85,214 @@ class AvailabilityCacheTest {
 
         assertEquals("F5", cache.getAvailability(key).orElseThrow().availabilityString());
     }
+
+    @Test
+    void getAvailability_byEncodedKey_readsStore() {
+        cache.updateAvailability(new AvailabilityEvent(key, 1L, "F9 J9 Y9", Instant.now()));
+
+        Optional<Availability> result = cache.getAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+        assertTrue(result.isPresent());
+        assertEquals("F9 J9 Y9", result.get().availabilityString());
+        assertTrue(cache.getAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key) + 1).isEmpty());
+    }
+
+    @Test
+    void markAbsent_isClearedByLaterWrites() {
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        cache.markAbsent(high, low);
+        assertTrue(cache.isKnownAbsent(high, low));
+
+        cache.updateAvailability(new AvailabilityEvent(key, 1L, "F9", Instant.now()));
+        assertFalse(cache.isKnownAbsent(high, low));
+
+        cache.markAbsent(high, low);
+        assertFalse(cache.isKnownAbsent(high, low)); // present in the store, so never recorded as absent
+    }
+
+    @Test
+    void markAbsent_isClearedByDatabaseLoad() {
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        cache.markAbsent(high, low);
+        cache.putFromDatabase(new Availability(key, "Y1"));
+
+        assertFalse(cache.isKnownAbsent(high, low));
+    }
+
+    @Test
+    void findByRouteAndDay_answersOnlyLoadedDays() {
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        LocalDateTime morning = day.atTime(8, 0);
+        LocalDateTime evening = day.atTime(19, 30);
+        cache.putFromDatabase(new Availability(new FlightDateKey(2, "JFK", "LAX", evening, evening.plusHours(6)), "Y2"));
+        cache.updateAvailability(new AvailabilityEvent(
+                new FlightDateKey(1, "JFK", "LAX", morning, morning.plusHours(6)), 1L, "Y1", Instant.now()));
+        cache.putFromDatabase(new Availability(new FlightDateKey(3, "JFK", "SFO", morning, morning.plusHours(6)), "Y3"));
+        cache.putFromDatabase(new Availability(new FlightDateKey(4, "JFK", "LAX", morning.plusDays(1), morning.plusDays(1).plusHours(6)), "Y4"));
+
+        assertTrue(cache.findByRouteAndDay("JFK", "LAX", day).isEmpty());
+
+        cache.markRouteDayLoaded("JFK", "LAX", day);
+        List<Availability> flights = cache.findByRouteAndDay("JFK", "LAX", day).orElseThrow();
+
+        assertEquals(List.of("Y1", "Y2"), flights.stream().map(Availability::availabilityString).toList());
+        assertTrue(cache.findByRouteAndDay("JFK", "SFO", day).isEmpty());
+    }
+
+    @Test
+    void findByRouteAndDay_returnsEmptyList_forLoadedDayWithoutFlights() {
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        cache.markDayLoaded(day);
+
+        assertEquals(Optional.of(List.of()), cache.findByRouteAndDay("JFK", "LAX", day));
+    }
+
+    @Test
+    void findByRouteAndDay_fallsBack_afterEviction() {
+        AvailabilityCache small = new AvailabilityCache(
+                new HeapAvailabilityStore(16, 2L * HeapAvailabilityStore.ENTRY_BYTES), 1_000, Duration.ofMinutes(5));
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        for (int flight = 1; flight <= 3; flight++) {
+            LocalDateTime dep = day.atTime(flight, 0);
+            small.putFromDatabase(new Availability(new FlightDateKey(flight, "JFK", "LAX", dep, dep.plusHours(6)), "Y" + flight));
+        }
+        small.markDayLoaded(day);
+
+        assertTrue(small.evictions() > 0);
+        assertTrue(small.findByRouteAndDay("JFK", "LAX", day).isEmpty());
+        // The day stays unloaded until someone reloads it
+        assertTrue(small.findByRouteAndDay("JFK", "LAX", day).isEmpty());
+    }
+
+    @Test
+    void findByRouteAndDay_fallsBack_whenEvictedBeforeTheDayIsMarkedLoaded() {
+        AvailabilityCache small = new AvailabilityCache(
+                new HeapAvailabilityStore(16, 2L * HeapAvailabilityStore.ENTRY_BYTES), 1_000, Duration.ofMinutes(5));
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        for (int flight = 1; flight <= 3; flight++) {
+            LocalDateTime dep = day.atTime(flight, 0);
+            small.putFromDatabase(new Availability(new FlightDateKey(flight, "JFK", "LAX", dep, dep.plusHours(6)), "Y" + flight));
+        }
+        small.markRouteDayLoaded("JFK", "LAX", day);
+
+        assertTrue(small.findByRouteAndDay("JFK", "LAX", day).isEmpty());
+
+        // Reloaded without a further eviction: served from memory again
+        small.markRouteDayLoaded("JFK", "LAX", day);
+        assertEquals(2, small.findByRouteAndDay("JFK", "LAX", day).orElseThrow().size());
+    }
+
+    @Test
+    void evictions_dropKeysFromTheRouteDayIndex() {
+        AvailabilityCache small = new AvailabilityCache(
+                new HeapAvailabilityStore(16, 10L * HeapAvailabilityStore.ENTRY_BYTES), 1_000, Duration.ofMinutes(5));
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        for (int flight = 1; flight <= 1_000; flight++) {
+            LocalDateTime dep = day.plusDays(flight % 30).atTime(flight % 24, 0);
+            small.putFromDatabase(new Availability(new FlightDateKey(flight, "JFK", "LAX", dep, dep.plusHours(6)), "Y9"));
+        }
+
+        assertEquals(990, small.evictions());
+        assertEquals(10, small.indexedKeys());
+    }
+
+    @Test
+    void findByRouteAndDay_rejectsInvalidAirport() {
+        assertThrows(IllegalArgumentException.class, () -> cache.findByRouteAndDay("JFKX", "LAX", LocalDate.now()));
+    }
+
+    @Test
+    void putFromDatabase_withSequence_rejectsOlderEvents() {
+        cache.putFromDatabase(new Availability(key, "Y5"), 5L);
+
+        cache.updateAvailability(new AvailabilityEvent(key, 4L, "Y4", Instant.now()));
+        assertEquals("Y5", cache.getAvailability(key).orElseThrow().availabilityString());
+
+        cache.updateAvailability(new AvailabilityEvent(key, 6L, "Y6", Instant.now()));
+        assertEquals("Y6", cache.getAvailability(key).orElseThrow().availabilityString());
+    }
+
+    @Test
+    void expireDepartedBefore_dropsPastDaysAndKeepsUnpersistedEntries() {
+        // Given
+        LocalDate today = LocalDate.of(2026, 11, 3);
+        FlightDateKey twoDaysAgo = flight(1, today.minusDays(2));
+        FlightDateKey yesterday = flight(2, today.minusDays(1));
+        FlightDateKey pinned = flight(3, today.minusDays(1));
+        FlightDateKey departingToday = flight(4, today);
+        cache.putFromDatabase(new Availability(twoDaysAgo, "Y1"), 1L);
+        cache.putFromDatabase(new Availability(yesterday, "Y2"), 1L);
+        AvailabilityEvent pinnedUpdate = new AvailabilityEvent(pinned, 1L, "Y3", Instant.now());
+        cache.updateAvailability(pinnedUpdate);
+        cache.putFromDatabase(new Availability(departingToday, "Y4"), 1L);
+        cache.markDayLoaded(today.minusDays(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        // When
+        long removed = cache.expireDepartedBefore(today);
+
+        // Then
+        assertEquals(2, removed);
+        assertTrue(cache.getAvailability(twoDaysAgo).isEmpty());
+        assertTrue(cache.getAvailability(yesterday).isEmpty());
+        assertTrue(cache.getAvailability(pinned).isPresent());
+        assertTrue(cache.getAvailability(departingToday).isPresent());
+        assertTrue(cache.findByRouteAndDay("JFK", "LHR", today.minusDays(1)).isEmpty());
+        assertEquals(2, registry.get("availability.cache.expired").functionCounter().count());
+        assertEquals(2.0 * HeapAvailabilityStore.ENTRY_BYTES,
+                registry.get("availability.cache.expired.bytes").functionCounter().count());
+
+        // Once persisted, the next pass takes the pinned entry too
+        assertEquals(0, cache.expireDepartedBefore(today));
+        cache.markPersisted(pinnedUpdate);
+        assertEquals(1, cache.expireDepartedBefore(today));
+        assertTrue(cache.getAvailability(pinned).isEmpty());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void expireDepartedBefore_reindexesDaysWrittenAgain() {
+        // Given
+        LocalDate today = LocalDate.of(2026, 11, 3);
+        FlightDateKey yesterday = flight(1, today.minusDays(1));
+        cache.putFromDatabase(new Availability(yesterday, "Y1"), 1L);
+        cache.expireDepartedBefore(today);
+
+        // When: a late load of the expired day
+        cache.putFromDatabase(new Availability(yesterday, "Y1"), 1L);
+
+        // Then
+        assertEquals(1, cache.expireDepartedBefore(today));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void bindTo_countsLookupsAndEventOutcomes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.getAvailability(key);
+        cache.updateAvailability(new AvailabilityEvent(key, 2L, "F5", Instant.now()));
+        cache.updateAvailability(new AvailabilityEvent(key, 2L, "F5", Instant.now()));
+        cache.updateAvailability(new AvailabilityEvent(key, 1L, "F9", Instant.now()));
+        cache.getAvailability(key);
+        cache.getVersionedAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key));
+
+        assertEquals(2, registry.get("availability.cache.lookups").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("availability.cache.lookups").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("availability.cache.events").tag("outcome", "applied").functionCounter().count());
+        assertEquals(1, registry.get("availability.cache.events").tag("outcome", "duplicate").functionCounter().count());
+        assertEquals(1, registry.get("availability.cache.events").tag("outcome", "stale").functionCounter().count());
+        assertEquals(1, registry.get("availability.cache.entries").gauge().value());
+        assertTrue(registry.get("availability.cache.bytes").gauge().value() > 0);
+    }
+
+    private static FlightDateKey flight(int flightNumber, LocalDate day) {
+        LocalDateTime dep = day.atTime(10, 0);
+        return new FlightDateKey(flightNumber, "JFK", "LHR", dep, dep.plusHours(7));
+    }
 }
@@ -3,6 +3,7 @@ package com.example.availability.simulator.availability;
 import org.junit.jupiter.api.Test;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -10,7 +11,7 @@ class AvailabilityDomainTest {
 
     @Test
     void flightDateKey_validatesInput() {
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(null, "JFK", "LHR", dep, arr));
@@ -19,6 +20,8 @@ class AvailabilityDomainTest {
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFK", null, dep, arr));
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "", "LHR", dep, arr));
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFK", "", dep, arr));
+        assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFKX", "LHR", dep, arr));
+        assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFK", "lhr", dep, arr));
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFK", "LHR", null, arr));
         assertThrows(IllegalArgumentException.class, () -> new FlightDateKey(123, "JFK", "LHR", dep, null));
         
@@ -32,7 +35,7 @@ class AvailabilityDomainTest {
 
     @Test
     void availability_validatesInput() {
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         
@@ -42,11 +45,17 @@ class AvailabilityDomainTest {
         Availability availability = new Availability(key, "F9 J2 Y0");
         assertEquals(key, availability.key());
         assertEquals("F9 J2 Y0", availability.availabilityString());
+        assertEquals(9, availability.seats('F'));
+        assertEquals(0, availability.seats('Y'));
+        assertEquals(11, availability.totalSeats());
+
+        assertThrows(IllegalArgumentException.class, () -> new Availability(key, "F9 J2 Y?"));
+        assertEquals(availability, new Availability(key, availability.packedSeats()));
     }
 
     @Test
     void availabilityEvent_validatesInput() {
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         Instant now = Instant.now();
@@ -60,6 +69,13 @@ class AvailabilityDomainTest {
         assertEquals(100L, event.sequenceNumber());
         assertEquals("F9 J2", event.availabilityString());
         assertEquals(now, event.timestamp());
+
+        // Held encoded, as the cache stores it
+        assertEquals(FlightDateKeyCodec.high(key), event.high());
+        assertEquals(FlightDateKeyCodec.low(key), event.low());
+        assertEquals(PackedAvailability.parse("F9 J2"), event.packedSeats());
+        assertEquals(event, new AvailabilityEvent(event.high(), event.low(), 100L, event.packedSeats(), now));
+        assertThrows(IllegalArgumentException.class, () -> new AvailabilityEvent(key, 1, "F99", now));
     }
     
     @Test
@@ -0,0 +1,224 @@
+package com.example.availability.simulator.availability;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link AvailabilityStore} implementation must share.
+ */
+abstract class AvailabilityStoreContractTest {
+
+    private AvailabilityStore store;
+    private FlightDateKey key;
+    private long high;
+    private long low;
+
+    protected abstract AvailabilityStore createStore(int initialCapacity, long maxBytes);
+
+    protected abstract int entryBytes();
+
+    @BeforeEach
+    void setUp() {
+        store = createStore(16, Long.MAX_VALUE);
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        key = new FlightDateKey(100, "JFK", "LHR", dep, dep.plusHours(7));
+        high = FlightDateKeyCodec.high(key);
+        low = FlightDateKeyCodec.low(key);
+    }
+
+    @Test
+    void get_returnsNull_whenAbsent() {
+        assertNull(store.get(high, low));
+    }
+
+    @Test
+    void update_appliesOnlyNewerSequences() {
+        assertTrue(store.update(high, low, 2L, PackedAvailability.parse("F5")));
+        assertFalse(store.update(high, low, 2L, PackedAvailability.parse("F9")));
+        assertFalse(store.update(high, low, 1L, PackedAvailability.parse("F9")));
+
+        assertEquals(new Availability(key, "F5"), store.get(high, low));
+        assertTrue(store.update(high, low, 3L, PackedAvailability.parse("F1")));
+        assertEquals("F1", store.get(high, low).availabilityString());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void getVersioned_returnsSequenceAndEncodedPayload() {
+        assertNull(store.getVersioned(high, low));
+        store.putIfAbsent(high, low, 3L, new Availability(key, "F9 Y4"));
+        store.update(high, low, 5L, PackedAvailability.parse("F8 Y4"));
+
+        VersionedAvailability versioned = store.getVersioned(high, low);
+        assertEquals(new Availability(key, "F8 Y4"), versioned.availability());
+        assertEquals(5L, versioned.sequence());
+        assertArrayEquals("F8 Y4".getBytes(StandardCharsets.US_ASCII), versioned.payload());
+
+        store.markPersisted(high, low, 5L);
+        assertEquals(5L, store.getVersioned(high, low).sequence());
+    }
+
+    @Test
+    void putIfAbsent_neverOverwrites() {
+        assertTrue(store.update(high, low, 4L, PackedAvailability.parse("F5")));
+
+        assertFalse(store.putIfAbsent(high, low, 0L, new Availability(key, "F9")));
+        assertEquals("F5", store.get(high, low).availabilityString());
+    }
+
+    @Test
+    void putIfAbsent_keepsSequenceForLaterUpdates() {
+        assertTrue(store.putIfAbsent(high, low, 5L, new Availability(key, "F9")));
+
+        assertFalse(store.update(high, low, 5L, PackedAvailability.parse("F1")));
+        assertTrue(store.update(high, low, 6L, PackedAvailability.parse("F1")));
+    }
+
+    @Test
+    void update_growsPastInitialCapacity() {
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= 5_000; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            store.update(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 1L, PackedAvailability.parse("Y" + (i % 10)));
+        }
+
+        assertEquals(5_000, store.size());
+        for (int i = 1; i <= 5_000; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            assertEquals(new Availability(k, "Y" + (i % 10)), store.get(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k)));
+        }
+    }
+
+    @Test
+    void putIfAbsent_evictsCleanEntriesBeyondBudget() {
+        AvailabilityStore bounded = createStore(16, 100L * entryBytes());
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= 1_000; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            bounded.putIfAbsent(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 0L, new Availability(k, "Y9"));
+        }
+
+        assertEquals(100, bounded.size());
+        assertEquals(900, bounded.evictions());
+        assertEquals(100L * entryBytes(), bounded.estimatedBytes());
+    }
+
+    @Test
+    void update_neverEvictsEntriesNewerThanDatabase() {
+        AvailabilityStore bounded = createStore(16, 10L * entryBytes());
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= 50; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            bounded.update(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 1L, PackedAvailability.parse("Y9"));
+        }
+
+        assertEquals(50, bounded.size());
+        for (int i = 1; i <= 50; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            assertNotNull(bounded.get(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k)));
+        }
+        assertEquals(50, bounded.dirtySize());
+        assertEquals(40L * entryBytes(), bounded.overBudgetBytes());
+        assertEquals(0, bounded.evictions());
+    }
+
+    @Test
+    void dirtySize_tracksUpdatesPersistsAndRemovals() {
+        AvailabilityStore bounded = createStore(16, 4L * entryBytes());
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        long[][] keys = new long[6][];
+        for (int i = 0; i < 6; i++) {
+            FlightDateKey k = new FlightDateKey(i + 1, "JFK", "LAX", dep, dep.plusHours(6));
+            keys[i] = new long[]{FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k)};
+            bounded.update(keys[i][0], keys[i][1], 1L, PackedAvailability.parse("Y9"));
+        }
+        assertEquals(6, bounded.dirtySize());
+        assertEquals(2L * entryBytes(), bounded.overBudgetBytes());
+
+        // Re-dirtying an entry counts it once; persisting and removing unpin it
+        bounded.update(keys[0][0], keys[0][1], 2L, PackedAvailability.parse("Y8"));
+        bounded.markPersisted(keys[0][0], keys[0][1], 2L);
+        bounded.markPersisted(keys[0][0], keys[0][1], 2L);
+        bounded.markPersisted(keys[1][0], keys[1][1], 1L);
+        assertEquals(4, bounded.dirtySize());
+        bounded.removeIfPersisted(keys[1][0], keys[1][1]);
+        assertEquals(4, bounded.dirtySize());
+
+        // The next insert evicts the one clean entry left, bringing the store back within budget
+        FlightDateKey k = new FlightDateKey(99, "JFK", "LAX", dep, dep.plusHours(6));
+        bounded.putIfAbsent(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 0L, new Availability(k, "Y9"));
+        assertEquals(1, bounded.evictions());
+        assertEquals(5, bounded.size());
+        assertEquals(4, bounded.dirtySize());
+        assertEquals((long) entryBytes(), bounded.overBudgetBytes());
+    }
+
+    @Test
+    void markPersisted_makesEntriesEvictable() {
+        AvailabilityStore bounded = createStore(16, 10L * entryBytes());
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        for (int i = 1; i <= 10; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            bounded.update(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 1L, PackedAvailability.parse("Y9"));
+            // Persisted at an older sequence: still pinned
+            bounded.markPersisted(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), i <= 5 ? 1L : 0L);
+        }
+
+        for (int i = 11; i <= 20; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            bounded.putIfAbsent(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k), 0L, new Availability(k, "Y9"));
+        }
+
+        for (int i = 6; i <= 10; i++) {
+            FlightDateKey k = new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6));
+            assertNotNull(bounded.get(FlightDateKeyCodec.high(k), FlightDateKeyCodec.low(k)));
+        }
+        assertEquals(10, bounded.size());
+    }
+
+    @Test
+    void removeIfPersisted_removesOnlyCleanEntries() {
+        store.update(high, low, 1L, PackedAvailability.parse("Y9"));
+
+        assertEquals(0L, store.removeIfPersisted(high, low));
+        assertNotNull(store.get(high, low));
+
+        store.markPersisted(high, low, 1L);
+        assertEquals(entryBytes(), store.removeIfPersisted(high, low));
+        assertNull(store.get(high, low));
+        assertEquals(0, store.size());
+        assertEquals(0L, store.removeIfPersisted(high, low));
+        assertEquals(0, store.evictions());
+    }
+
+    @Test
+    void removeUnlessNewer_removesDirtyEntriesUpToTheSequence() {
+        assertFalse(store.removeUnlessNewer(high, low, 1L));
+        store.update(high, low, 3L, PackedAvailability.parse("Y9"));
+
+        assertFalse(store.removeUnlessNewer(high, low, 2L));
+        assertNotNull(store.get(high, low));
+        assertTrue(store.removeUnlessNewer(high, low, 3L));
+        assertNull(store.get(high, low));
+        assertEquals(0, store.size());
+        assertEquals(0, store.dirtySize());
+    }
+
+    @Test
+    void forEachAndRestore_roundTripEntries() {
+        store.update(high, low, 7L, PackedAvailability.parse("F1 Y2"));
+        AvailabilityStore copy = createStore(16, Long.MAX_VALUE);
+
+        store.forEach(copy::restore);
+
+        assertEquals(new Availability(key, "F1 Y2"), copy.get(high, low));
+        assertFalse(copy.update(high, low, 7L, PackedAvailability.parse("F9")));
+        assertFalse(copy.restore(high, low, 6L, PackedAvailability.parse("F9"), false));
+        assertTrue(copy.update(high, low, 8L, PackedAvailability.parse("F9")));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.availability.simulator.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DepartedFlightExpiryTest {
+
+    private final AvailabilityCache cache = mock(AvailabilityCache.class);
+
+    @Test
+    void expire_keepsTheRetainedDaysBeforeToday() {
+        // Given
+        DepartedFlightExpiry expiry = new DepartedFlightExpiry(cache, 1);
+        when(cache.expireDepartedBefore(LocalDate.of(2026, 11, 2))).thenReturn(5L);
+
+        // When
+        long removed = expiry.expire(LocalDate.of(2026, 11, 3));
+
+        // Then
+        assertEquals(5, removed);
+        verify(cache).expireDepartedBefore(LocalDate.of(2026, 11, 2));
+    }
+
+    @Test
+    void constructor_rejectsNegativeRetention() {
+        assertThrows(IllegalArgumentException.class, () -> new DepartedFlightExpiry(cache, -1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.availability.simulator.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightDateKeyCodecTest {
+
+    @Test
+    void encodeAndDecode_roundTrip() {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 23, 45);
+        FlightDateKey key = new FlightDateKey(9999, "JFK", "LAX", dep, dep.plusHours(6).plusMinutes(10));
+
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        assertNotEquals(0L, high);
+        assertEquals(key, FlightDateKeyCodec.decode(high, low));
+    }
+
+    @Test
+    void encode_handlesArrivalBeforeDepartureInLocalTime() {
+        // Westbound across the date line can land "earlier" in local time
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(1, "SYD", "HNL", dep, dep.minusHours(9));
+
+        assertEquals(key, FlightDateKeyCodec.decode(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)));
+    }
+
+    @Test
+    void encode_distinguishesKeyComponents() {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        long base = FlightDateKeyCodec.high(123, "JFK", "LHR");
+
+        assertNotEquals(base, FlightDateKeyCodec.high(124, "JFK", "LHR"));
+        assertNotEquals(base, FlightDateKeyCodec.high(123, "LHR", "JFK"));
+        assertNotEquals(FlightDateKeyCodec.low(dep, dep.plusHours(7)), FlightDateKeyCodec.low(dep, dep.plusHours(8)));
+    }
+
+    @Test
+    void encode_rejectsInvalidInput() {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.high(0, "JFK", "LHR"));
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.high(123, "JF", "LHR"));
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.high(123, "JFK", "lhr"));
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.low(dep, dep.plusYears(20)));
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.low(dep.plusSeconds(30), dep.plusHours(7)));
+        assertThrows(IllegalArgumentException.class, () -> FlightDateKeyCodec.low(dep, dep.plusHours(7).plusNanos(1)));
+    }
+
+    @Test
+    void routeDay_groupsFlightsByRouteAndDepartureDay() {
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        long expected = FlightDateKeyCodec.routeDay("JFK", "LAX", day);
+
+        for (LocalDateTime dep : new LocalDateTime[]{day.atStartOfDay(), day.atTime(23, 59)}) {
+            FlightDateKey key = new FlightDateKey(42, "JFK", "LAX", dep, dep.plusHours(6));
+            assertEquals(expected, FlightDateKeyCodec.routeDay(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)));
+        }
+        assertNotEquals(expected, FlightDateKeyCodec.routeDay("JFK", "LAX", day.plusDays(1)));
+        assertNotEquals(expected, FlightDateKeyCodec.routeDay("LAX", "JFK", day));
+        assertEquals(FlightDateKeyCodec.routeDay("JFK", "LAX", LocalDate.of(1969, 12, 31)),
+                FlightDateKeyCodec.routeDay(FlightDateKeyCodec.high(1, "JFK", "LAX"),
+                        FlightDateKeyCodec.low(LocalDateTime.of(1969, 12, 31, 12, 0), LocalDateTime.of(1969, 12, 31, 18, 0))));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.availability.simulator.availability;
+
+class HeapAvailabilityStoreTest extends AvailabilityStoreContractTest {
+
+    @Override
+    protected AvailabilityStore createStore(int initialCapacity, long maxBytes) {
+        return new HeapAvailabilityStore(initialCapacity, maxBytes);
+    }
+
+    @Override
+    protected int entryBytes() {
+        return HeapAvailabilityStore.ENTRY_BYTES;
+    }
+}
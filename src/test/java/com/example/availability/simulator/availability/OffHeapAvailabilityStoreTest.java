@@ -0,0 +1,14 @@
+package com.example.availability.simulator.availability;
+
+class OffHeapAvailabilityStoreTest extends AvailabilityStoreContractTest {
+
+    @Override
+    protected AvailabilityStore createStore(int initialCapacity, long maxBytes) {
+        return new OffHeapAvailabilityStore(initialCapacity, maxBytes);
+    }
+
+    @Override
+    protected int entryBytes() {
+        return OffHeapAvailabilityStore.ENTRY_BYTES;
+    }
+}
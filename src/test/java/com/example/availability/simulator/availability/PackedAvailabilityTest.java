@@ -0,0 +1,63 @@
+package com.example.availability.simulator.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedAvailabilityTest {
+
+    @Test
+    void parseAndFormat_roundTrip() {
+        assertEquals("F9 J9 Y9", PackedAvailability.format(PackedAvailability.parse("F9 J9 Y9")));
+        assertEquals("F2 J0 Y5", PackedAvailability.format(PackedAvailability.parse("F2 J0 Y5")));
+        assertEquals("F9", PackedAvailability.format(PackedAvailability.parse("F9")));
+        assertEquals("A1 B2 C3 D4 E5 F15 Z0",
+                PackedAvailability.format(PackedAvailability.parse("A1 B2 C3 D4 E5 F15 Z0")));
+        assertEquals("", PackedAvailability.format(PackedAvailability.parse("")));
+    }
+
+    @Test
+    void encode_matchesFormatAsUtf8() {
+        for (String line : new String[]{"F9 J9 Y9", "F2 J0 Y5", "A1 B2 C3 D4 E5 F15 Z0", "J10", ""}) {
+            assertArrayEquals(line.getBytes(StandardCharsets.UTF_8),
+                    PackedAvailability.encode(PackedAvailability.parse(line)));
+        }
+    }
+
+    @Test
+    void withSeats_replacesOnlyThatClass() {
+        long packed = PackedAvailability.parse("F2 J0 Y15");
+
+        assertEquals("F2 J7 Y15", PackedAvailability.format(PackedAvailability.withSeats(packed, 'J', 7)));
+        assertEquals("F2 J0 Y0", PackedAvailability.format(PackedAvailability.withSeats(packed, 'Y', 0)));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.withSeats(packed, 'C', 1));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.withSeats(packed, 'F', 16));
+    }
+
+    @Test
+    void parse_normalizesWhitespace() {
+        assertEquals(PackedAvailability.parse("F9 J2"), PackedAvailability.parse("  F9   J2 "));
+    }
+
+    @Test
+    void parse_rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.parse("f9"));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.parse("F"));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.parse("F16"));
+        assertThrows(IllegalArgumentException.class, () -> PackedAvailability.parse("A1 B1 C1 D1 E1 F1 G1 H1"));
+    }
+
+    @Test
+    void seats_readsSingleClassWithoutFormatting() {
+        long packed = PackedAvailability.parse("F2 J0 Y5");
+
+        assertEquals(2, PackedAvailability.seats(packed, 'F'));
+        assertEquals(0, PackedAvailability.seats(packed, 'J'));
+        assertEquals(5, PackedAvailability.seats(packed, 'Y'));
+        assertEquals(0, PackedAvailability.seats(packed, 'C'));
+        assertEquals(7, PackedAvailability.totalSeats(packed));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.availability.simulator.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedKeyMapTest {
+
+    @Test
+    void compute_insertsAndReplaces() {
+        PackedKeyMap<String> map = new PackedKeyMap<>(16);
+        long high = FlightDateKeyCodec.high(123, "JFK", "LHR");
+
+        assertNull(map.get(high, 1L));
+        map.compute(high, 1L, current -> "a");
+        map.compute(high, 1L, current -> current + "b");
+
+        assertEquals("ab", map.get(high, 1L));
+        assertNull(map.get(high, 2L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void compute_returningNullLeavesKeyAbsent() {
+        PackedKeyMap<String> map = new PackedKeyMap<>(16);
+        long high = FlightDateKeyCodec.high(123, "JFK", "LHR");
+
+        assertNull(map.compute(high, 1L, current -> null));
+        assertNull(map.get(high, 1L));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void compute_growsPastInitialCapacity() {
+        PackedKeyMap<Integer> map = new PackedKeyMap<>(16);
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+        for (int i = 1; i <= 10_000; i++) {
+            int value = i;
+            map.compute(FlightDateKeyCodec.high(i, "JFK", "LAX"), FlightDateKeyCodec.low(dep, dep.plusHours(6)), current -> value);
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 1; i <= 10_000; i++) {
+            assertEquals(i, map.get(FlightDateKeyCodec.high(i, "JFK", "LAX"), FlightDateKeyCodec.low(dep, dep.plusHours(6))));
+        }
+    }
+
+    @Test
+    void remove_keepsCollidingKeysReachable() {
+        PackedKeyMap<Integer> map = new PackedKeyMap<>(16);
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        long low = FlightDateKeyCodec.low(dep, dep.plusHours(6));
+        for (int i = 1; i <= 9; i++) {
+            int value = i;
+            map.compute(FlightDateKeyCodec.high(i, "JFK", "LAX"), low, current -> value);
+        }
+
+        for (int i = 1; i <= 9; i += 2) {
+            assertEquals(i, map.remove(FlightDateKeyCodec.high(i, "JFK", "LAX"), low));
+        }
+
+        assertEquals(4, map.size());
+        for (int i = 1; i <= 9; i++) {
+            Integer expected = i % 2 == 0 ? i : null;
+            assertEquals(expected, map.get(FlightDateKeyCodec.high(i, "JFK", "LAX"), low));
+        }
+    }
+
+    @Test
+    void removeIf_removesOnlyAcceptedValues() {
+        PackedKeyMap<Integer> map = new PackedKeyMap<>(16);
+        long high = FlightDateKeyCodec.high(123, "JFK", "LHR");
+        LocalDateTime dep = LocalDateTime.of(2026, 1, 1, 0, 0);
+        long low = FlightDateKeyCodec.low(dep, dep.plusHours(7));
+        map.compute(high, low, current -> 7);
+
+        assertNull(map.removeIf(high, low, value -> value > 7));
+        assertEquals(7, map.get(high, low));
+        assertEquals(7, map.removeIf(high, low, value -> value == 7));
+        assertNull(map.get(high, low));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void compute_evictsUnreferencedEntriesFirst() {
+        PackedKeyMap<Integer> map = new PackedKeyMap<>(16, 3, value -> true);
+        long high = FlightDateKeyCodec.high(123, "JFK", "LHR");
+        map.compute(high, 1L, current -> 1);
+        map.compute(high, 2L, current -> 2);
+        map.compute(high, 3L, current -> 3);
+        map.get(high, 1L);
+        map.get(high, 3L);
+
+        map.compute(high, 4L, current -> 4);
+
+        assertEquals(3, map.size());
+        assertEquals(1L, map.evictions());
+        assertNull(map.get(high, 2L));
+        assertEquals(1, map.get(high, 1L));
+        assertEquals(4, map.get(high, 4L));
+    }
+}
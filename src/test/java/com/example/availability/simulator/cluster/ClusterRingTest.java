@@ -0,0 +1,127 @@
+package com.example.availability.simulator.cluster;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRingTest {
+
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+    private static final int POINTS = 30_000;
+
+    @Test
+    void owner_spreadsPointsEvenly_andIgnoresNodeOrder() {
+        // Given
+        ClusterRing ring = new ClusterRing(NODES, 128);
+        ClusterRing reordered = new ClusterRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 128);
+        SplittableRandom random = new SplittableRandom(1);
+
+        // When
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < POINTS; i++) {
+            long point = random.nextLong();
+            String owner = ring.owner(point);
+            assertEquals(owner, reordered.owner(point));
+            owned.merge(owner, 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(Set.copyOf(NODES), owned.keySet());
+        owned.forEach((node, points) -> assertTrue(Math.abs(points - POINTS / 3) < POINTS / 3 * 0.2,
+                node + " owns " + points + " of " + POINTS + " points"));
+    }
+
+    @Test
+    void owner_movesOnlyPointsTakenByAnAddedNode() {
+        // Given
+        ClusterRing ring = new ClusterRing(NODES, 128);
+        ClusterRing grown = new ClusterRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), "http://d:8080"), 128);
+        SplittableRandom random = new SplittableRandom(2);
+
+        // When
+        int moved = 0;
+        for (int i = 0; i < POINTS; i++) {
+            long point = random.nextLong();
+            String before = ring.owner(point);
+            String after = grown.owner(point);
+            if (!before.equals(after)) {
+                assertEquals("http://d:8080", after);
+                moved++;
+            }
+        }
+
+        // Then: about a quarter of the space, the new node's share
+        assertTrue(moved > POINTS / 4 * 0.8 && moved < POINTS / 4 * 1.2, moved + " of " + POINTS + " points moved");
+    }
+
+    @Test
+    void ownerAmongLive_isTheOwnerOnARingWithoutTheDownNode() {
+        // Given
+        ClusterRing ring = new ClusterRing(NODES, 128);
+        ClusterRing withoutC = new ClusterRing(NODES.subList(0, 2), 128);
+        SplittableRandom random = new SplittableRandom(3);
+
+        // When / Then
+        for (int i = 0; i < 1_000; i++) {
+            long point = random.nextLong();
+            assertEquals(withoutC.owner(point), ring.owner(point, Set.copyOf(NODES.subList(0, 2))));
+        }
+        assertNull(ring.owner(42L, Set.of("http://elsewhere:8080")));
+    }
+
+    @Test
+    void constructor_rejectsEmptyOrDuplicateNodes() {
+        assertThrows(IllegalArgumentException.class, () -> new ClusterRing(List.of(), 128));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterRing(NODES, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterRing(List.of("http://a:8080", "http://a:8080"), 128));
+    }
+
+    @Test
+    void topology_mapsKeysToTheOwnerOfTheirPartition() {
+        // Given
+        ClusterTopology a = new ClusterTopology(NODES, NODES.get(0), 12, 128);
+        ClusterTopology b = new ClusterTopology(NODES, NODES.get(1), 12, 128);
+        ClusterRing ring = new ClusterRing(NODES, 128);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LAX",
+                LocalDateTime.of(2026, 11, 3, 10, 0), LocalDateTime.of(2026, 11, 3, 16, 0));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        // When
+        String owner = a.owner(high, low);
+
+        // Then
+        assertEquals(ring.owner(ClusterRing.point(FlightDateKeyCodec.partition(high, low, 12))), owner);
+        assertEquals(owner, b.owner(high, low));
+        assertEquals(NODES.get(0).equals(owner), a.isLocal(high, low));
+        assertEquals(NODES.get(1).equals(owner), b.isLocal(high, low));
+        int owned = 0;
+        for (String self : NODES) {
+            owned += new ClusterTopology(NODES, self, 12, 128).ownedPartitions().size();
+        }
+        assertEquals(12, owned);
+    }
+
+    @Test
+    void topology_rejectsSelfOutsideTheCluster() {
+        assertThrows(IllegalArgumentException.class, () -> new ClusterTopology(NODES, "http://d:8080", 12, 128));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterTopology(NODES, NODES.get(0), 0, 128));
+    }
+
+    @Test
+    void topology_rejectsTopicWithAnotherPartitionCount() {
+        ClusterTopology topology = new ClusterTopology(NODES, NODES.get(0), 12, 128);
+
+        topology.checkTopicPartitions("availability-updates", 12);
+        assertThrows(IllegalStateException.class, () -> topology.checkTopicPartitions("availability-updates", 6));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.availability.simulator.cluster;
+
+import com.example.availability.simulator.availability.Availability;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerAvailabilityClientTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+    private HttpServer server;
+    private PeerAvailabilityClient client;
+    private String peer;
+    private final AtomicInteger served = new AtomicInteger();
+
+    @BeforeEach
+    void startPeer() throws IOException {
+        // Knows odd flight numbers only, at sequence = flight number; answers slowly so lookups queue up
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PeerAvailabilityClient.LOOKUP_PATH, exchange -> {
+            served.incrementAndGet();
+            sleep(20);
+            long[] keys = PeerLookupCodec.decodeRequest(exchange.getRequestBody().readAllBytes());
+            List<Optional<VersionedAvailability>> results = new ArrayList<>();
+            for (int i = 0; i < keys.length; i += 2) {
+                FlightDateKey key = FlightDateKeyCodec.decode(keys[i], keys[i + 1]);
+                results.add(key.flightNumber() % 2 == 1
+                        ? Optional.of(VersionedAvailability.of(new Availability(key, "Y" + key.flightNumber() % 10), key.flightNumber()))
+                        : Optional.empty());
+            }
+            byte[] body = PeerLookupCodec.encodeResponse(results);
+            exchange.getResponseHeaders().set("Content-Type", PeerLookupCodec.MEDIA_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        peer = "http://localhost:" + server.getAddress().getPort();
+        ClusterTopology topology = new ClusterTopology(List.of("http://localhost:1", peer), "http://localhost:1", 12, 128);
+        client = new PeerAvailabilityClient(topology, 64, 1, Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void stopPeer() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void lookup_batchesConcurrentCallersIntoFewRequests() throws Exception {
+        // Given
+        int callers = 100;
+        List<Future<Optional<VersionedAvailability>>> results = new ArrayList<>();
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int flight = 1; flight <= callers; flight++) {
+                FlightDateKey key = key(flight);
+                results.add(executor.submit(() -> client.lookup(peer, FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key))));
+            }
+
+            // Then
+            for (int flight = 1; flight <= callers; flight++) {
+                Optional<VersionedAvailability> result = results.get(flight - 1).get();
+                if (flight % 2 == 1) {
+                    assertEquals(key(flight), result.orElseThrow().availability().key());
+                    assertEquals(flight, result.get().sequence());
+                } else {
+                    assertTrue(result.isEmpty());
+                }
+            }
+        }
+        assertTrue(client.requests() < callers / 2, client.requests() + " requests for " + callers + " lookups");
+        assertEquals(client.requests(), served.get());
+    }
+
+    @Test
+    void lookupAll_splitsIntoRequestsOfAtMostMaxBatch() {
+        // Given
+        int count = 150;
+        long[] highs = new long[count];
+        long[] lows = new long[count];
+        for (int i = 0; i < count; i++) {
+            highs[i] = FlightDateKeyCodec.high(key(i + 1));
+            lows[i] = FlightDateKeyCodec.low(key(i + 1));
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        client.bindTo(registry);
+
+        // When
+        List<Optional<VersionedAvailability>> results = client.lookupAll(peer, highs, lows, count);
+
+        // Then
+        assertEquals(count, results.size());
+        assertEquals("Y3", results.get(2).orElseThrow().availability().availabilityString());
+        assertTrue(results.get(3).isEmpty());
+        assertEquals(3, served.get());
+        assertEquals(3.0, registry.get("availability.cluster.peer.requests").functionCounter().count());
+        assertEquals(150.0, registry.get("availability.cluster.peer.keys").functionCounter().count());
+        assertEquals(0.0, registry.get("availability.cluster.peer.failures").functionCounter().count());
+    }
+
+    @Test
+    void lookup_failsWithPeerUnavailable_whenPeerIsDown() {
+        // Given
+        server.stop(0);
+        FlightDateKey key = key(1);
+
+        // When / Then
+        assertThrows(PeerUnavailableException.class,
+                () -> client.lookup(peer, FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)));
+        assertThrows(IllegalArgumentException.class, () -> client.lookup("http://localhost:1", 0L, 0L));
+    }
+
+    private static FlightDateKey key(int flightNumber) {
+        return new FlightDateKey(flightNumber, "JFK", "LAX", DEP, DEP.plusHours(6));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
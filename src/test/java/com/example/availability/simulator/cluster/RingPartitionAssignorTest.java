@@ -0,0 +1,108 @@
+package com.example.availability.simulator.cluster;
+
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.Assignment;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.GroupSubscription;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.Subscription;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingPartitionAssignorTest {
+
+    private static final String TOPIC = "availability-updates";
+    private static final int PARTITIONS = 12;
+    private static final List<String> NODES = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void assign_givesEachNodeThePartitionsItOwnsOnTheRing() {
+        // Given: two consumers on node a, one each on b and c
+        Map<String, Subscription> members = new HashMap<>();
+        members.put("a-1", subscription(NODES.get(0)));
+        members.put("a-2", subscription(NODES.get(0)));
+        members.put("b-1", subscription(NODES.get(1)));
+        members.put("c-1", subscription(NODES.get(2)));
+
+        // When
+        Map<String, Assignment> assignments = assignor(NODES.get(0))
+                .assign(metadata(), new GroupSubscription(members)).groupAssignment();
+
+        // Then
+        for (String self : NODES) {
+            List<Integer> expected = new ClusterTopology(NODES, self, PARTITIONS, 128).ownedPartitions();
+            List<Integer> actual = new ArrayList<>();
+            assignments.forEach((member, assignment) -> {
+                if (self.endsWith(member.substring(0, 1) + ":8080")) {
+                    assignment.partitions().forEach(partition -> actual.add(partition.partition()));
+                }
+            });
+            assertEquals(Set.copyOf(expected), Set.copyOf(actual), self);
+            assertEquals(expected.size(), actual.size(), self);
+        }
+        int perMember = assignments.get("a-1").partitions().size() - assignments.get("a-2").partitions().size();
+        assertTrue(Math.abs(perMember) <= 1, "consumers on one node share its partitions");
+    }
+
+    @Test
+    void assign_movesADownNodesPartitionsToItsRingSuccessor() {
+        // Given
+        Map<String, Subscription> members = Map.of(
+                "a-1", subscription(NODES.get(0)),
+                "b-1", subscription(NODES.get(1)));
+        ClusterRing ring = new ClusterRing(NODES, 128);
+
+        // When
+        Map<String, Assignment> assignments = assignor(NODES.get(1))
+                .assign(metadata(), new GroupSubscription(members)).groupAssignment();
+
+        // Then
+        int assigned = 0;
+        for (Map.Entry<String, Assignment> entry : assignments.entrySet()) {
+            String node = entry.getKey().startsWith("a") ? NODES.get(0) : NODES.get(1);
+            for (TopicPartition partition : entry.getValue().partitions()) {
+                assertEquals(node, ring.owner(ClusterRing.point(partition.partition()), Set.copyOf(NODES.subList(0, 2))));
+                assigned++;
+            }
+        }
+        assertEquals(PARTITIONS, assigned);
+    }
+
+    @Test
+    void subscriptionUserData_announcesThisNode() {
+        ByteBuffer userData = assignor(NODES.get(2)).subscriptionUserData(Set.of(TOPIC));
+
+        assertEquals(ByteBuffer.wrap(NODES.get(2).getBytes()), userData);
+    }
+
+    private static RingPartitionAssignor assignor(String self) {
+        RingPartitionAssignor assignor = new RingPartitionAssignor();
+        assignor.configure(Map.of(
+                RingPartitionAssignor.NODES_CONFIG, String.join(",", NODES),
+                RingPartitionAssignor.SELF_CONFIG, self,
+                RingPartitionAssignor.VIRTUAL_NODES_CONFIG, 128));
+        return assignor;
+    }
+
+    private static Subscription subscription(String node) {
+        return new Subscription(List.of(TOPIC), assignor(node).subscriptionUserData(Set.of(TOPIC)));
+    }
+
+    private static Cluster metadata() {
+        Node broker = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            partitions.add(new PartitionInfo(TOPIC, partition, broker, new Node[]{broker}, new Node[]{broker}));
+        }
+        return new Cluster("test", List.of(broker), partitions, Set.of(), Set.of());
+    }
+}
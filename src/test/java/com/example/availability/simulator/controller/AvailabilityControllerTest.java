@@ -2,23 +2,39 @@ package com.example.availability.simulator.controller;
 
 import com.example.availability.simulator.availability.Availability;
 import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.example.availability.simulator.cluster.PeerUnavailableException;
 import com.example.availability.simulator.service.AvailabilityService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AvailabilityController.class)
+@TestPropertySource(properties = "availability.batch.max-keys=2")
 class AvailabilityControllerTest {
 
     @Autowired
@@ -34,7 +50,8 @@ class AvailabilityControllerTest {
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         Availability availability = new Availability(key, "F9 J9 Y9");
 
-        when(availabilityService.getAvailability(any(FlightDateKey.class))).thenReturn(Optional.of(availability));
+        when(availabilityService.getVersionedAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)))
+                .thenReturn(Optional.of(VersionedAvailability.of(availability, 7L)));
 
         mockMvc.perform(get("/availability")
                         .param("flightNumber", "123")
@@ -43,12 +60,52 @@ class AvailabilityControllerTest {
                         .param("departureDateTime", "2023-10-27T10:00:00")
                         .param("arrivalDateTime", "2023-10-27T12:00:00"))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType("text/plain;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.ETAG, etag(7L, availability)))
                 .andExpect(content().string("F9 J9 Y9"));
     }
 
+    @Test
+    void getAvailability_returnsNotModified_whenETagMatches() throws Exception {
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        Availability availability = new Availability(new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2)), "F9 J9 Y9");
+        when(availabilityService.getVersionedAvailability(anyLong(), anyLong()))
+                .thenReturn(Optional.of(VersionedAvailability.of(availability, 7L)));
+
+        mockMvc.perform(get("/availability")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"6-1\", " + etag(7L, availability))
+                        .param("flightNumber", "123")
+                        .param("origin", "JFK")
+                        .param("destination", "LHR")
+                        .param("departureDateTime", "2023-10-27T10:00:00")
+                        .param("arrivalDateTime", "2023-10-27T12:00:00"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag(7L, availability)))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getAvailability_returnsBody_whenETagIsStale() throws Exception {
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        Availability availability = new Availability(new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2)), "F8 J9 Y9");
+        when(availabilityService.getVersionedAvailability(anyLong(), anyLong()))
+                .thenReturn(Optional.of(VersionedAvailability.of(availability, 8L)));
+
+        mockMvc.perform(get("/availability")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag(7L, new Availability(availability.key(), "F9 J9 Y9")))
+                        .param("flightNumber", "123")
+                        .param("origin", "JFK")
+                        .param("destination", "LHR")
+                        .param("departureDateTime", "2023-10-27T10:00:00")
+                        .param("arrivalDateTime", "2023-10-27T12:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag(8L, availability)))
+                .andExpect(content().string("F8 J9 Y9"));
+    }
+
     @Test
     void getAvailability_returnsNotFound_whenMissing() throws Exception {
-        when(availabilityService.getAvailability(any(FlightDateKey.class))).thenReturn(Optional.empty());
+        when(availabilityService.getVersionedAvailability(anyLong(), anyLong())).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/availability")
                         .param("flightNumber", "999")
@@ -58,4 +115,115 @@ class AvailabilityControllerTest {
                         .param("arrivalDateTime", "2023-10-27T12:00:00"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void getAvailability_returnsBadRequest_whenAirportIsNotIata() throws Exception {
+        mockMvc.perform(get("/availability")
+                        .param("flightNumber", "123")
+                        .param("origin", "JFKX")
+                        .param("destination", "LHR")
+                        .param("departureDateTime", "2023-10-27T10:00:00")
+                        .param("arrivalDateTime", "2023-10-27T12:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAvailability_returnsBadRequest_whenTimeIsNotAWholeMinute() throws Exception {
+        mockMvc.perform(get("/availability")
+                        .param("flightNumber", "123")
+                        .param("origin", "JFK")
+                        .param("destination", "LHR")
+                        .param("departureDateTime", "2023-10-27T10:15:30")
+                        .param("arrivalDateTime", "2023-10-27T12:15:00"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(availabilityService);
+    }
+
+    @Test
+    void getAvailabilities_streamsResultsInRequestOrder() throws Exception {
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey found = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        FlightDateKey missing = new FlightDateKey(999, "JFK", "LHR", dep, dep.plusHours(2));
+        when(availabilityService.getAvailabilities(List.of(found, missing)))
+                .thenReturn(List.of(Optional.of(new Availability(found, "F9 J9 Y9")), Optional.empty()));
+
+        MvcResult result = mockMvc.perform(post("/availability/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"flightNumber":123,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2023-10-27T10:00:00","arrivalDateTime":"2023-10-27T12:00:00"},
+                                 {"flightNumber":999,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2023-10-27T10:00:00","arrivalDateTime":"2023-10-27T12:00:00"}]"""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].key.flightNumber").value(123))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].availability").value("F9 J9 Y9"))
+                .andExpect(jsonPath("$[1].key.flightNumber").value(999))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].availability").doesNotExist());
+    }
+
+    @Test
+    void getAvailabilities_returnsBadRequest_whenBatchIsTooLarge() throws Exception {
+        String key = """
+                {"flightNumber":1,"origin":"JFK","destination":"LHR",
+                 "departureDateTime":"2023-10-27T10:00:00","arrivalDateTime":"2023-10-27T12:00:00"}""";
+
+        mockMvc.perform(post("/availability/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + key + "," + key + "," + key + "]"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(availabilityService);
+    }
+
+    @Test
+    void getAvailability_returnsServiceUnavailable_whenOwningPeerDoesNotAnswer() throws Exception {
+        when(availabilityService.getVersionedAvailability(anyLong(), anyLong()))
+                .thenThrow(new PeerUnavailableException("Lookup on http://b:8080 timed out", null));
+
+        mockMvc.perform(get("/availability")
+                        .param("flightNumber", "123")
+                        .param("origin", "JFK")
+                        .param("destination", "LHR")
+                        .param("departureDateTime", "2023-10-27T10:00:00")
+                        .param("arrivalDateTime", "2023-10-27T12:00:00"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void searchAvailability_returnsBadRequest_whenAirportIsNotIata() throws Exception {
+        mockMvc.perform(get("/availability/search")
+                        .param("origin", "JFKX")
+                        .param("destination", "LAX")
+                        .param("date", "2026-11-03"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(availabilityService);
+    }
+
+    @Test
+    void searchAvailability_returnsFlightsForRouteAndDay() throws Exception {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 8, 0);
+        FlightDateKey key = new FlightDateKey(7, "JFK", "LAX", dep, dep.plusHours(6));
+        when(availabilityService.searchByRouteAndDay("JFK", "LAX", LocalDate.of(2026, 11, 3)))
+                .thenReturn(List.of(new Availability(key, "J2 Y9")));
+
+        mockMvc.perform(get("/availability/search")
+                        .param("origin", "JFK")
+                        .param("destination", "LAX")
+                        .param("date", "2026-11-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].key.flightNumber").value(7))
+                .andExpect(jsonPath("$[0].key.departureDateTime").value("2026-11-03T08:00:00"))
+                .andExpect(jsonPath("$[0].availability").value("J2 Y9"));
+    }
+
+    private static String etag(long sequence, Availability availability) {
+        return "\"" + sequence + "-" + Long.toHexString(availability.packedSeats()) + "\"";
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.availability.simulator.controller;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.subscription.AvailabilitySubscriptionRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AvailabilityStreamController.class)
+@Import(AvailabilityStreamControllerTest.StreamConfig.class)
+@TestPropertySource(properties = "availability.batch.max-keys=2")
+class AvailabilityStreamControllerTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+    @TestConfiguration
+    static class StreamConfig {
+        @Bean
+        AvailabilityCache availabilityCache() {
+            return new AvailabilityCache();
+        }
+
+        @Bean
+        AvailabilitySubscriptionRegistry availabilitySubscriptionRegistry(AvailabilityCache availabilityCache) {
+            return new AvailabilitySubscriptionRegistry(availabilityCache, 10, 16, Duration.ofMinutes(1));
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @Test
+    void streamRoute_pushesChangesOnTheRouteOnly() throws Exception {
+        MvcResult result = mockMvc.perform(get("/availability/stream").param("origin", "JFK").param("destination", "LAX"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        availabilityCache.updateAvailability(event(new FlightDateKey(7, "JFK", "SFO", DEP, DEP.plusHours(6)), 1, "F1"));
+        availabilityCache.updateAvailability(event(new FlightDateKey(7, "JFK", "LAX", DEP, DEP.plusHours(6)), 1, "F2 Y9"));
+
+        String body = awaitBody(result.getResponse(), "F2 Y9");
+        assertTrue(body.contains("event:availability"));
+        assertTrue(body.contains("\"sequence\":1"));
+        assertTrue(body.contains("\"destination\":\"LAX\""));
+        assertFalse(body.contains("SFO"));
+    }
+
+    @Test
+    void streamKeys_startsWithCachedStateThenPushesNewerSequences() throws Exception {
+        FlightDateKey key = new FlightDateKey(9, "JFK", "LHR", DEP, DEP.plusHours(7));
+        availabilityCache.updateAvailability(event(key, 3, "J4"));
+
+        MvcResult result = mockMvc.perform(post("/availability/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"flightNumber":9,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"2026-11-03T17:00:00"}]"""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitBody(result.getResponse(), "J4");
+
+        availabilityCache.updateAvailability(event(key, 2, "J1"));
+        availabilityCache.updateAvailability(event(key, 4, "J3"));
+
+        String body = awaitBody(result.getResponse(), "J3");
+        assertFalse(body.contains("J1"), "stale sequences are not pushed");
+    }
+
+    @Test
+    void streamKeys_rejectsTooManyKeys() throws Exception {
+        mockMvc.perform(post("/availability/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"flightNumber":1,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"2026-11-03T17:00:00"},
+                                 {"flightNumber":2,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"2026-11-03T17:00:00"},
+                                 {"flightNumber":3,"origin":"JFK","destination":"LHR",
+                                  "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"2026-11-03T17:00:00"}]"""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamRoute_rejectsInvalidAirport() throws Exception {
+        mockMvc.perform(get("/availability/stream").param("origin", "JFKX").param("destination", "LAX"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String awaitBody(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String body = response.getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = response.getContentAsString();
+        }
+        assertTrue(body.contains(expected), "expected " + expected + " in " + body);
+        return body;
+    }
+
+    private static AvailabilityEvent event(FlightDateKey key, long sequence, String availability) {
+        return new AvailabilityEvent(key, sequence, availability, Instant.now());
+    }
+}
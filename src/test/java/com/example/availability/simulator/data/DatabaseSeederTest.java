@@ -1,63 +1,119 @@
 package com.example.availability.simulator.data;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
-@ExtendWith(MockitoExtension.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the seeder commits on its own connections
 class DatabaseSeederTest {
 
-    @Mock
+    private static final LocalDateTime FIRST_DEPARTURE = LocalDateTime.of(2026, 11, 1, 0, 0);
+    private static final String ALL_ROWS = """
+            SELECT flight_number, origin, destination, departure_date_time, arrival_date_time, availability, last_sequence
+            FROM flight ORDER BY flight_number, departure_date_time""";
+
+    @Autowired
     private FlightRepository flightRepository;
 
-    @InjectMocks
-    private DatabaseSeeder databaseSeeder;
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        flightRepository.deleteAll();
+    }
 
     @Test
-    void run_seedsDatabase_whenEmpty() {
+    void run_seedsDatabase_whenEmpty() throws Exception {
         // Given
-        when(flightRepository.count()).thenReturn(0L);
+        DatabaseSeeder databaseSeeder = seeder(1000, 42, 4, 300);
 
         // When
         databaseSeeder.run();
 
         // Then
-        @SuppressWarnings("unchecked")
-        ArgumentCaptor<List<Flight>> captor = ArgumentCaptor.forClass(List.class);
-        verify(flightRepository).saveAll(captor.capture());
-
-        List<Flight> savedFlights = captor.getValue();
-        assertEquals(1000, savedFlights.size());
-
-        Flight firstFlight = savedFlights.getFirst();
-        assertNotNull(firstFlight.getFlightNumber());
-        assertNotNull(firstFlight.getOrigin());
-        assertNotNull(firstFlight.getDestination());
-        assertNotNull(firstFlight.getDepartureDateTime());
-        assertNotNull(firstFlight.getArrivalDateTime());
-        assertNotNull(firstFlight.getAvailability());
-
-        // Verify availability format matches "F%d J%d Y%d"
-        assertTrue(firstFlight.getAvailability().matches("F\\d+ J\\d+ Y\\d+"));
+        List<Flight> flights = flightRepository.findAll();
+        assertEquals(1000, flights.size());
+        LocalDateTime earliest = LocalDateTime.now().minusHours(1);
+        for (Flight flight : flights) {
+            assertNotEquals(flight.getOrigin(), flight.getDestination());
+            assertTrue(flight.getDepartureDateTime().isAfter(earliest));
+            assertTrue(flight.getArrivalDateTime().isAfter(flight.getDepartureDateTime()));
+            assertTrue(flight.getAvailability().matches("F\\d J\\d Y\\d"), flight.getAvailability());
+            assertEquals(0L, flight.getLastSequence());
+        }
     }
 
     @Test
-    void run_doesNotSeed_whenNotEmpty() {
+    void run_doesNotSeed_whenNotEmpty() throws Exception {
         // Given
-        when(flightRepository.count()).thenReturn(5L);
+        flightRepository.save(new Flight(null, 1, "JFK", "LAX", FIRST_DEPARTURE, FIRST_DEPARTURE.plusHours(6), "Y9", 0L));
 
         // When
-        databaseSeeder.run();
+        seeder(1000, 42, 4, 300).run();
+
+        // Then
+        assertEquals(1, flightRepository.count());
+    }
+
+    @Test
+    void seed_writesTheSameUniqueFlights_whateverTheThreadCount() throws Exception {
+        // Given: enough rows for every flight number to fly several times
+        long rows = 25_000;
+
+        // When
+        long written = seeder(rows, 7, 4, 1000).seed(FIRST_DEPARTURE);
+        List<Map<String, Object>> parallel = jdbcTemplate.queryForList(ALL_ROWS);
+        flightRepository.deleteAllInBatch();
+        seeder(rows, 7, 1, 1000).seed(FIRST_DEPARTURE);
+        List<Map<String, Object>> sequential = jdbcTemplate.queryForList(ALL_ROWS);
 
         // Then
-        verify(flightRepository, never()).saveAll(any());
+        assertEquals(rows, written);
+        assertEquals(rows, parallel.size());
+        assertEquals(sequential, parallel);
+        assertEquals(rows, jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM (SELECT DISTINCT flight_number, origin, destination, departure_date_time, arrival_date_time
+                FROM flight) natural_keys""", Long.class));
+    }
+
+    @Test
+    void seed_differsByRandomSeed() throws Exception {
+        // When
+        seeder(500, 1, 2, 100).seed(FIRST_DEPARTURE);
+        List<Map<String, Object>> first = jdbcTemplate.queryForList(ALL_ROWS);
+        flightRepository.deleteAllInBatch();
+        seeder(500, 2, 2, 100).seed(FIRST_DEPARTURE);
+        List<Map<String, Object>> second = jdbcTemplate.queryForList(ALL_ROWS);
+
+        // Then
+        assertEquals(500, second.size());
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> seeder(1000, 42, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> seeder(1000, 42, 4, 0));
+    }
+
+    private DatabaseSeeder seeder(long rows, long randomSeed, int threads, int batchSize) {
+        return new DatabaseSeeder(flightRepository, dataSource, rows, randomSeed, threads, batchSize, 30, Duration.ofSeconds(5));
     }
 }
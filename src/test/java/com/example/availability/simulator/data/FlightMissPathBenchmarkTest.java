@@ -0,0 +1,135 @@
+package com.example.availability.simulator.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency of the cache-miss database read at a realistic table size. Opt-in, as seeding
+ * takes minutes:
+ * <pre>
+ * ./gradlew test --tests '*FlightMissPathBenchmarkTest' -Dbenchmark.rows=10000000
+ * </pre>
+ * Runs against the embedded database unless {@code -Dspring.datasource.url=...} (and
+ * credentials) point it at PostgreSQL.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // seed in committed batches
+@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+class FlightMissPathBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightMissPathBenchmarkTest.class);
+
+    private static final String[] AIRPORTS = {"JFK", "LAX", "LHR", "CDG", "FRA", "AMS", "DXB", "SIN", "HND", "SYD"};
+    private static final LocalDateTime FIRST_DEPARTURE = LocalDateTime.of(2026, 11, 1, 0, 0);
+    private static final int SEED_BATCH = 10_000;
+    private static final int LOOKUPS = 20_000;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findAvailability_missPathLatency() {
+        long rows = Long.getLong("benchmark.rows");
+        double maxP99Millis = Double.parseDouble(System.getProperty("benchmark.max-p99-ms", "10"));
+
+        seed(rows);
+
+        // Warm up the plan cache and connection pool before measuring
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 1_000; i++) {
+            lookup(random.nextLong(rows));
+        }
+
+        // Half of the lookups hit an existing row, half miss it by one minute of arrival
+        long[] nanos = new long[LOOKUPS];
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            long row = random.nextLong(rows);
+            boolean hit = (i & 1) == 0;
+            long start = System.nanoTime();
+            boolean present = hit ? lookup(row) : lookupMissing(row);
+            nanos[i] = System.nanoTime() - start;
+            if (present) {
+                found++;
+            }
+        }
+
+        Arrays.sort(nanos);
+        double p50 = nanos[LOOKUPS / 2] / 1e6;
+        double p99 = nanos[(int) (LOOKUPS * 0.99)] / 1e6;
+        double max = nanos[LOOKUPS - 1] / 1e6;
+        log.info("Miss path over {} rows: p50={} ms, p99={} ms, max={} ms", rows,
+                String.format("%.3f", p50), String.format("%.3f", p99), String.format("%.3f", max));
+
+        assertEquals(LOOKUPS / 2, found);
+        assertTrue(p99 <= maxP99Millis, "p99 " + p99 + " ms exceeds " + maxP99Millis + " ms");
+    }
+
+    private void seed(long rows) {
+        long start = System.nanoTime();
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (long row = 0; row < rows; row++) {
+            batch.add(columns(row));
+            if (batch.size() == SEED_BATCH) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+        log.info("Seeded {} flights in {} s", rows, (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO flight (flight_number, origin, destination, departure_date_time, arrival_date_time, availability)
+                VALUES (?, ?, ?, ?, ?, 'F4 J9 Y9')""", batch);
+    }
+
+    private boolean lookup(long row) {
+        Object[] c = columns(row);
+        return flightRepository.findAvailability((Integer) c[0], (String) c[1], (String) c[2],
+                ((Timestamp) c[3]).toLocalDateTime(), ((Timestamp) c[4]).toLocalDateTime()).isPresent();
+    }
+
+    private boolean lookupMissing(long row) {
+        Object[] c = columns(row);
+        return flightRepository.findAvailability((Integer) c[0], (String) c[1], (String) c[2],
+                ((Timestamp) c[3]).toLocalDateTime(), ((Timestamp) c[4]).toLocalDateTime().plusMinutes(1)).isPresent();
+    }
+
+    // Deterministic row contents, so lookups can be generated without reading the table back
+    private static Object[] columns(long row) {
+        int flightNumber = (int) (row % 9_000) + 1;
+        String origin = AIRPORTS[(int) (row % AIRPORTS.length)];
+        String destination = AIRPORTS[(int) ((row / AIRPORTS.length + 1 + row) % AIRPORTS.length)];
+        if (destination.equals(origin)) {
+            destination = AIRPORTS[(int) ((row + 1) % AIRPORTS.length)];
+        }
+        LocalDateTime departure = FIRST_DEPARTURE.plusMinutes(row / 9_000 * 5);
+        return new Object[]{flightNumber, origin, destination,
+                Timestamp.valueOf(departure), Timestamp.valueOf(departure.plusMinutes(60 + row % 600))};
+    }
+}
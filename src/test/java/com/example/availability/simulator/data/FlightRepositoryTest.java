@@ -0,0 +1,113 @@
+package com.example.availability.simulator.data;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class FlightRepositoryTest {
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void findAllByKeys_returnsOnlyMatchingFlights() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        flightRepository.saveAll(List.of(
+                new Flight(null, 100, "JFK", "LAX", dep, dep.plusHours(6), "F1 Y9", 0L),
+                new Flight(null, 100, "JFK", "LAX", dep.plusDays(1), dep.plusDays(1).plusHours(6), "F2 Y8", 0L),
+                new Flight(null, 200, "LHR", "CDG", dep, dep.plusHours(1), "J4", 0L)));
+        flightRepository.flush();
+
+        List<FlightDateKey> keys = List.of(
+                new FlightDateKey(100, "JFK", "LAX", dep, dep.plusHours(6)),
+                new FlightDateKey(200, "LHR", "CDG", dep, dep.plusHours(1)),
+                new FlightDateKey(300, "LHR", "CDG", dep, dep.plusHours(1)));
+
+        // When
+        List<Flight> flights = flightRepository.findAllByKeys(keys);
+
+        // Then
+        assertEquals(2, flights.size());
+        assertTrue(flights.stream().anyMatch(f -> f.getFlightNumber() == 100 && f.getAvailability().equals("F1 Y9")));
+        assertTrue(flights.stream().anyMatch(f -> f.getFlightNumber() == 200 && f.getAvailability().equals("J4")));
+    }
+
+    @Test
+    void findAllByKeys_splitsLargeKeySetsAcrossStatements() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 0, 0);
+        List<Flight> flights = new ArrayList<>();
+        List<FlightDateKey> keys = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            LocalDateTime departure = dep.plusMinutes(i);
+            flights.add(new Flight(null, 1, "JFK", "LAX", departure, departure.plusHours(6), "Y9", 0L));
+            keys.add(new FlightDateKey(1, "JFK", "LAX", departure, departure.plusHours(6)));
+        }
+        flightRepository.saveAll(flights);
+        flightRepository.flush();
+
+        // When / Then
+        assertEquals(2_500, flightRepository.findAllByKeys(keys).size());
+    }
+
+    @Test
+    void findAvailability_matchesFullNaturalKey() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        flightRepository.saveAndFlush(new Flight(null, 100, "JFK", "LAX", dep, dep.plusHours(6), "F1 Y9", 0L));
+
+        // When / Then
+        assertEquals("F1 Y9", flightRepository.findAvailability(100, "JFK", "LAX", dep, dep.plusHours(6)).orElseThrow().availability());
+        assertTrue(flightRepository.findAvailability(100, "JFK", "LAX", dep, dep.plusHours(7)).isEmpty());
+        assertTrue(flightRepository.findAvailability(101, "JFK", "LAX", dep, dep.plusHours(6)).isEmpty());
+    }
+
+    @Test
+    void naturalKeyLookup_usesCompositeIndex() {
+        String plan = String.join("\n", jdbcTemplate.queryForList("""
+                EXPLAIN SELECT availability FROM flight
+                WHERE flight_number = 1 AND origin = 'JFK' AND destination = 'LAX'
+                  AND departure_date_time = TIMESTAMP '2026-11-01 08:00:00'
+                  AND arrival_date_time = TIMESTAMP '2026-11-01 14:00:00'""", String.class));
+
+        assertTrue(plan.toLowerCase().contains("idx_flight_natural_key"), plan);
+    }
+
+    @Test
+    void applyIfNewer_neverOverwritesNewerSequence() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        flightRepository.saveAndFlush(new Flight(null, 100, "JFK", "LAX", dep, dep.plusHours(6), "Y9", 5L));
+        FlightDateKey key = new FlightDateKey(100, "JFK", "LAX", dep, dep.plusHours(6));
+        FlightDateKey unknown = new FlightDateKey(101, "JFK", "LAX", dep, dep.plusHours(6));
+        AvailabilityEvent stale = new AvailabilityEvent(key, 4L, "Y4", Instant.now());
+        AvailabilityEvent missing = new AvailabilityEvent(unknown, 9L, "Y1", Instant.now());
+
+        // When
+        AppliedEvents result = flightRepository.applyIfNewer(List.of(stale, missing));
+
+        // Then: the row keeps the newer state, and still covers the stale event
+        assertEquals(List.of(), result.applied());
+        assertEquals(List.of(stale), result.stale());
+        assertEquals(new FlightAvailability("Y9", 5L), flightRepository.findAvailability(100, "JFK", "LAX", dep, dep.plusHours(6)).orElseThrow());
+
+        AvailabilityEvent newer = new AvailabilityEvent(key, 6L, "Y6", Instant.now());
+        assertEquals(new AppliedEvents(List.of(newer), List.of()), flightRepository.applyIfNewer(List.of(newer)));
+        assertEquals(new FlightAvailability("Y6", 6L), flightRepository.findAvailability(100, "JFK", "LAX", dep, dep.plusHours(6)).orElseThrow());
+    }
+}
@@ -3,21 +3,34 @@ package com.example.availability.simulator.kafka;
 import com.example.availability.simulator.availability.AvailabilityCache;
 import com.example.availability.simulator.availability.AvailabilityEvent;
 import com.example.availability.simulator.availability.FlightDateKey;
-import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.AppliedEvents;
 import com.example.availability.simulator.data.FlightRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,13 +43,12 @@ class AvailabilityConsumerTest {
     private AvailabilityCache availabilityCache;
 
     private AvailabilityConsumer consumer;
-    private ObjectMapper objectMapper;
+    private ConsumedOffsets consumedOffsets;
 
     @BeforeEach
     void setUp() {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        consumer = new AvailabilityConsumer(flightRepository, availabilityCache, objectMapper);
+        consumedOffsets = new ConsumedOffsets();
+        consumer = new AvailabilityConsumer(flightRepository, availabilityCache, consumedOffsets);
     }
 
     @Test
@@ -46,20 +58,35 @@ class AvailabilityConsumerTest {
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         AvailabilityEvent event = new AvailabilityEvent(key, 1L, "F5 J5 Y5", Instant.now());
-        String json = objectMapper.writeValueAsString(event);
 
-        Flight flight = new Flight();
-        flight.setFlightNumber(123);
-
-        when(flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(123, "JFK", "LHR", dep))
-                .thenReturn(Optional.of(flight));
+        when(flightRepository.applyIfNewer(anyList())).thenAnswer(invocation -> new AppliedEvents(invocation.getArgument(0), List.of()));
 
         // When
-        consumer.handleAvailabilityEvent(json);
+        consumer.handleAvailabilityEvent(new ConsumerRecord<>("availability-updates", 0, 41L, null, event));
 
         // Then
-        verify(flightRepository).save(flight);
+        assertEquals(Map.of(0, 42L), consumedOffsets.snapshot());
+        verify(flightRepository).applyIfNewer(argThat(events -> events.size() == 1 && events.getFirst().sequenceNumber() == 1L));
         verify(availabilityCache).updateAvailability(any(AvailabilityEvent.class));
+        verify(availabilityCache).markPersisted(event);
+    }
+
+    @Test
+    void handleAvailabilityEvent_leavesCacheAlone_whenDatabaseHoldsANewerSequence() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        AvailabilityEvent event = new AvailabilityEvent(key, 1L, "F5 J5 Y5", Instant.now());
+
+        when(flightRepository.applyIfNewer(anyList())).thenReturn(new AppliedEvents(List.of(), List.of(event)));
+
+        // When
+        consumer.handleAvailabilityEvent(new ConsumerRecord<>("availability-updates", 0, 0L, null, event));
+
+        // Then: the stale event must not stand in for the newer row, but its offset is done
+        verify(availabilityCache, never()).updateAvailability(any(AvailabilityEvent.class));
+        verify(availabilityCache, never()).markPersisted(any());
+        assertEquals(Map.of(0, 1L), consumedOffsets.snapshot());
     }
 
     @Test
@@ -69,17 +96,155 @@ class AvailabilityConsumerTest {
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         AvailabilityEvent event = new AvailabilityEvent(key, 1L, "F5 J5 Y5", Instant.now());
-        String json = objectMapper.writeValueAsString(event);
 
-        when(flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(123, "JFK", "LHR", dep))
-                .thenReturn(Optional.empty());
+        when(flightRepository.applyIfNewer(anyList())).thenReturn(AppliedEvents.none());
+
+        // When
+        consumer.handleAvailabilityEvent(new ConsumerRecord<>("availability-updates", 0, 0L, null, event));
+
+        // Then
+        verify(availabilityCache, never()).updateAvailability(any(AvailabilityEvent.class));
+        verify(availabilityCache, never()).markPersisted(any());
+    }
+
+    @Test
+    void handleAvailabilityEvents_coalescesToHighestSequencePerKey() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        List<ConsumerRecord<String, AvailabilityEvent>> records = List.of(
+                record(0, new AvailabilityEvent(key, 2L, "F4 J4 Y4", Instant.now())),
+                record(1, new AvailabilityEvent(key, 3L, "F3 J3 Y3", Instant.now())),
+                record(2, new AvailabilityEvent(key, 1L, "F9 J9 Y9", Instant.now())));
+
+        when(flightRepository.applyIfNewer(anyList())).thenAnswer(invocation -> new AppliedEvents(invocation.getArgument(0), List.of()));
+
+        // When
+        consumer.handleAvailabilityEvents(records);
+
+        // Then
+        verify(flightRepository, times(1)).applyIfNewer(argThat(events -> events.size() == 1
+                && events.getFirst().sequenceNumber() == 3L && events.getFirst().availabilityString().equals("F3 J3 Y3")));
+
+        ArgumentCaptor<AvailabilityEvent> captor = ArgumentCaptor.forClass(AvailabilityEvent.class);
+        verify(availabilityCache, times(1)).updateAvailability(captor.capture());
+        assertEquals(3L, captor.getValue().sequenceNumber());
+        verify(availabilityCache).markPersisted(argThat(event -> event.sequenceNumber() == 3L));
+        assertEquals(Map.of(0, 3L), consumedOffsets.snapshot());
+    }
+
+    @Test
+    void bindTo_timesEachPollOnceAndCountsItsRecords() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        when(flightRepository.applyIfNewer(anyList())).thenAnswer(invocation -> new AppliedEvents(invocation.getArgument(0), List.of()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        consumer.bindTo(registry);
+
+        // When
+        consumer.handleAvailabilityEvents(List.of(
+                record(0, new AvailabilityEvent(key, 1L, "F4 J4 Y4", Instant.now())),
+                record(1, new AvailabilityEvent(key, 2L, "F3 J3 Y3", Instant.now()))));
+
+        // Then
+        assertEquals(1, registry.get("availability.consumer.processing").tag("mode", "batch").timer().count());
+        assertEquals(2, registry.get("availability.consumer.records").tag("mode", "batch").functionCounter().count());
+        assertEquals(0, registry.get("availability.consumer.records").tag("mode", "record").functionCounter().count());
+        assertEquals(0, registry.get("availability.consumer.processing").tag("mode", "record").timer().count());
+        assertEquals(0, registry.get("availability.consumer.processing").tag("mode", "write-behind").timer().count());
+        assertEquals(0, registry.get("availability.consumer.processing").tag("mode", "parallel").timer().count());
+    }
+
+    @Test
+    void handleAvailabilityEvents_skipsUnreadableRecords() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        List<ConsumerRecord<String, AvailabilityEvent>> records = List.of(
+                new ConsumerRecord<>("availability-updates", 0, 0L, null, null),
+                record(1, new AvailabilityEvent(key, 1L, "F5 J5 Y5", Instant.now())));
+
+        when(flightRepository.applyIfNewer(anyList())).thenAnswer(invocation -> new AppliedEvents(invocation.getArgument(0), List.of()));
+
+        // When
+        consumer.handleAvailabilityEvents(records);
+
+        // Then
+        verify(flightRepository).applyIfNewer(argThat(events -> events.size() == 1));
+        verify(availabilityCache).updateAvailability(any(AvailabilityEvent.class));
+    }
+
+    @Test
+    void handleAvailabilityEventsWriteBehind_updatesCacheAndDefersDatabaseWrite() throws Exception {
+        // Given
+        WriteBehindFlusher flusher = mock(WriteBehindFlusher.class);
+        Acknowledgment ack = mock(Acknowledgment.class);
+        AvailabilityConsumer writeBehind = new AvailabilityConsumer(flightRepository, availabilityCache,
+                consumedOffsets, Optional.of(flusher), Optional.empty());
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        List<ConsumerRecord<String, AvailabilityEvent>> records = List.of(
+                record(4, new AvailabilityEvent(key, 1L, "F9 J9 Y9", Instant.now())),
+                record(5, new AvailabilityEvent(key, 2L, "F8 J9 Y9", Instant.now())));
 
         // When
-        consumer.handleAvailabilityEvent(json);
+        writeBehind.handleAvailabilityEventsWriteBehind(records, ack);
 
         // Then
-        verify(flightRepository, never()).save(any());
-        verify(availabilityCache).updateAvailability(any(AvailabilityEvent.class)); // Cache might still be updated or not? 
-        // The code updates cache regardless of DB presence (Write-Through/Behind logic might differ, but here we update cache to reflect latest event).
+        verify(availabilityCache).updateAvailability(argThat(event -> event.sequenceNumber() == 2L));
+        verify(flusher).enqueue(argThat(events -> events.size() == 1), eq(Map.of(0, 5L)), same(ack));
+        verifyNoInteractions(flightRepository, ack);
+        verify(availabilityCache, never()).markPersisted(any());
+        assertEquals(Map.of(), consumedOffsets.snapshot());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void handleAvailabilityEventsInParallel_appliesEachEventAndCommitsCompletedOffsets() throws Exception {
+        // Given
+        ShardedEventProcessor processor = new ShardedEventProcessor(mock(PlatformTransactionManager.class), consumedOffsets,
+                4, 100, Duration.ofSeconds(5));
+        AvailabilityConsumer parallel = new AvailabilityConsumer(flightRepository, availabilityCache,
+                consumedOffsets, Optional.empty(), Optional.of(processor));
+        Consumer<String, String> kafkaConsumer = mock(Consumer.class);
+        when(flightRepository.applyIfNewer(anyList())).thenAnswer(invocation -> new AppliedEvents(invocation.getArgument(0), List.of()));
+        LocalDateTime dep = LocalDateTime.of(2023, 10, 27, 10, 0);
+        FlightDateKey first = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(2));
+        FlightDateKey second = new FlightDateKey(456, "JFK", "LHR", dep, dep.plusHours(2));
+        List<ConsumerRecord<String, AvailabilityEvent>> records = List.of(
+                record(7, new AvailabilityEvent(first, 1L, "F9 J9 Y9", Instant.now())),
+                new ConsumerRecord<>("availability-updates", 0, 8L, null, null),
+                record(9, new AvailabilityEvent(second, 1L, "F8 J9 Y9", Instant.now())));
+
+        // When
+        parallel.handleAvailabilityEventsInParallel(records, kafkaConsumer);
+        processor.shutdown();
+        processor.commitCompleted(kafkaConsumer);
+
+        // Then
+        verify(flightRepository, times(2)).applyIfNewer(anyList());
+        verify(availabilityCache, times(2)).updateAvailability(any(AvailabilityEvent.class));
+        verify(kafkaConsumer, atLeastOnce()).commitSync(
+                Map.of(new TopicPartition("availability-updates", 0), new OffsetAndMetadata(10L)));
+        assertEquals(Map.of(0, 10L), consumedOffsets.snapshot());
+    }
+
+    @Test
+    void onPartitionsAssigned_seeksToRestoredOffsetsOnce() {
+        consumedOffsets.restore(Map.of(0, 100L));
+        TopicPartition partition0 = new TopicPartition("availability-updates", 0);
+        TopicPartition partition1 = new TopicPartition("availability-updates", 1);
+        ConsumerSeekAware.ConsumerSeekCallback callback = mock(ConsumerSeekAware.ConsumerSeekCallback.class);
+
+        consumer.onPartitionsAssigned(Map.of(partition0, 5L, partition1, 7L), callback);
+        consumer.onPartitionsAssigned(Map.of(partition0, 5L), callback);
+
+        verify(callback, times(1)).seek("availability-updates", 0, 100L);
+        verifyNoMoreInteractions(callback);
+    }
+
+    private static ConsumerRecord<String, AvailabilityEvent> record(long offset, AvailabilityEvent event) {
+        return new ConsumerRecord<>("availability-updates", 0, offset, null, event);
     }
 }
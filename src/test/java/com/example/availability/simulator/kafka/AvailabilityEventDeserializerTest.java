@@ -0,0 +1,79 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityEventDeserializerTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+    private static final AvailabilityEvent EVENT = new AvailabilityEvent(new FlightDateKey(123, "JFK", "LHR", DEP, DEP.plusHours(7)),
+            1_761_000_000_000_042L, "F8 J9 Y0", Instant.parse("2026-10-18T09:30:00.123456Z"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final AvailabilityEventDeserializer deserializer = new AvailabilityEventDeserializer();
+
+    @Test
+    void deserialize_readsJson_whenNoFormatHeader() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(EVENT);
+
+        assertEquals(EVENT, deserializer.deserialize("availability-updates", json));
+        assertEquals(EVENT, deserializer.deserialize("availability-updates", new RecordHeaders(), json));
+    }
+
+    @Test
+    void deserialize_readsBinary_whenHeaderSaysSo() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(AvailabilityEventFormat.binaryHeader());
+        byte[] binary = AvailabilityEventFormat.encode(EVENT);
+
+        assertEquals(AvailabilityEventFormat.LENGTH, binary.length);
+        assertEquals(EVENT, deserializer.deserialize("availability-updates", headers, binary));
+    }
+
+    @Test
+    void deserialize_rejectsMalformedValues() {
+        RecordHeaders binary = new RecordHeaders();
+        binary.add(AvailabilityEventFormat.binaryHeader());
+        byte[] json = "{\"sequenceNumber\":1}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("availability-updates", json));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("availability-updates", binary, json));
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("availability-updates", binary, new byte[AvailabilityEventFormat.LENGTH]));
+        assertNull(deserializer.deserialize("availability-updates", binary, (byte[]) null));
+    }
+
+    @Test
+    void deserialize_rejectsJsonTheCacheCannotEncode() {
+        for (String availability : new String[]{"F8 J9 Y16", "F8 j9 Y0", "A1 B1 C1 D1 E1 F1 G1 H1"}) {
+            byte[] json = json("2026-11-03T17:00:00", availability);
+
+            assertThrows(SerializationException.class, () -> deserializer.deserialize("availability-updates", json), availability);
+        }
+        byte[] farArrival = json("2126-11-03T10:00:00", "Y9");
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("availability-updates", farArrival));
+    }
+
+    private static byte[] json(String arrival, String availability) {
+        return ("""
+                {"key":{"flightNumber":123,"origin":"JFK","destination":"LHR",
+                        "departureDateTime":"2026-11-03T10:00:00","arrivalDateTime":"%s"},
+                 "sequenceNumber":1,"availabilityString":"%s","timestamp":"2026-10-18T09:30:00Z"}"""
+                .formatted(arrival, availability)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.data.FlightRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@EmbeddedKafka(partitions = 2, topics = "availability-updates")
+class InventorySimulatorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void publish_sendsParseableSkewedEventsWithDuplicatesAndDisorder(EmbeddedKafkaBroker broker) throws Exception {
+        // Given
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of(broker.getBrokersAsString()));
+        InventorySimulator simulator = new InventorySimulator(kafkaProperties, objectMapper, mock(FlightRepository.class),
+                200_000, 100, 1.1, 0.05, 0.05, "json");
+
+        // When
+        List<ConsumerRecord<String, AvailabilityEvent>> consumed = publishAndConsume(broker, simulator, flights(100), 5_000);
+
+        // Then
+        long records = consumed.size();
+        assertTrue(records > 5_000, "duplicates add records on top of the events");
+        Map<FlightDateKey, Integer> perFlight = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        Map<Integer, Map<FlightDateKey, Long>> newestPerPartition = new HashMap<>();
+        int duplicates = 0;
+        int outOfOrder = 0;
+        for (ConsumerRecord<String, AvailabilityEvent> record : consumed) {
+            assertFalse(AvailabilityEventFormat.isBinary(record.headers()));
+            AvailabilityEvent event = record.value();
+            perFlight.merge(event.key(), 1, Integer::sum);
+            if (!seen.add(event.key() + "@" + event.sequenceNumber())) {
+                duplicates++;
+            }
+            Map<FlightDateKey, Long> newest = newestPerPartition.computeIfAbsent(record.partition(), p -> new HashMap<>());
+            Long previous = newest.put(event.key(), Math.max(event.sequenceNumber(), newest.getOrDefault(event.key(), 0L)));
+            if (previous != null && event.sequenceNumber() < previous) {
+                outOfOrder++;
+            }
+        }
+        assertTrue(duplicates > 0);
+        assertTrue(outOfOrder > 0);
+        // Uniform traffic would give each flight about 1%
+        assertTrue(perFlight.values().stream().mapToInt(Integer::intValue).max().orElseThrow() > records / 10);
+    }
+
+    @Test
+    void publish_releasesHeldEventsOnlyBehindANewerSequence(EmbeddedKafkaBroker broker) throws Exception {
+        // Given: no duplicates, and most events asking to be held back
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of(broker.getBrokersAsString()));
+        InventorySimulator simulator = new InventorySimulator(kafkaProperties, objectMapper, mock(FlightRepository.class),
+                200_000, 20, 1.1, 0, 0.8, "json");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        simulator.bindTo(registry);
+
+        // When
+        List<ConsumerRecord<String, AvailabilityEvent>> consumed = publishAndConsume(broker, simulator, flights(20), 2_000);
+
+        // Then: every event exactly once, and each one counted as reordered really was overtaken
+        assertEquals(2_000, consumed.size());
+        Set<String> seen = new HashSet<>();
+        Map<FlightDateKey, Long> newest = new HashMap<>();
+        int outOfOrder = 0;
+        for (ConsumerRecord<String, AvailabilityEvent> record : consumed) {
+            AvailabilityEvent event = record.value();
+            assertTrue(seen.add(event.key() + "@" + event.sequenceNumber()));
+            long highest = newest.merge(event.key(), event.sequenceNumber(), Math::max);
+            if (event.sequenceNumber() < highest) {
+                outOfOrder++;
+            }
+        }
+        assertTrue(outOfOrder > 0);
+        assertEquals(outOfOrder, registry.get("availability.simulator.reordered").functionCounter().count());
+        assertEquals(0, registry.get("availability.simulator.duplicates").functionCounter().count());
+    }
+
+    @Test
+    void publish_sendsBinaryEvents_whenConfigured(EmbeddedKafkaBroker broker) throws Exception {
+        // Given
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of(broker.getBrokersAsString()));
+        InventorySimulator simulator = new InventorySimulator(kafkaProperties, objectMapper, mock(FlightRepository.class),
+                200_000, 10, 1.1, 0, 0, "binary");
+        List<FlightDateKey> flights = flights(10);
+
+        // When
+        List<ConsumerRecord<String, AvailabilityEvent>> consumed = publishAndConsume(broker, simulator, flights, 500);
+
+        // Then
+        assertEquals(500, consumed.size());
+        for (ConsumerRecord<String, AvailabilityEvent> record : consumed) {
+            assertTrue(AvailabilityEventFormat.isBinary(record.headers()));
+            assertEquals(AvailabilityEventFormat.LENGTH, record.serializedValueSize());
+            assertTrue(flights.contains(record.value().key()));
+        }
+    }
+
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        FlightRepository repository = mock(FlightRepository.class);
+        assertThrows(IllegalArgumentException.class,
+                () -> new InventorySimulator(kafkaProperties, objectMapper, repository, 0, 100, 1.1, 0, 0, "json"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new InventorySimulator(kafkaProperties, objectMapper, repository, 1_000, 100, 1.1, 0.6, 0.6, "json"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new InventorySimulator(kafkaProperties, objectMapper, repository, 1_000, 100, 1.1, 0, 0, "avro"));
+    }
+
+    private static List<FlightDateKey> flights(int count) {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        List<FlightDateKey> flights = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            flights.add(new FlightDateKey(i, "JFK", "LAX", dep, dep.plusHours(6)));
+        }
+        return flights;
+    }
+
+    // Reads back exactly what this publish sent, skipping records left by other tests
+    private static List<ConsumerRecord<String, AvailabilityEvent>> publishAndConsume(EmbeddedKafkaBroker broker,
+            InventorySimulator simulator, List<FlightDateKey> flights, long events) throws InterruptedException {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("inventory-simulator-test", "false", broker);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5_000);
+        try (Consumer<String, AvailabilityEvent> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new AvailabilityEventDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, true, "availability-updates");
+            long expected = simulator.publish(flights, events);
+            simulator.stop();
+
+            List<ConsumerRecord<String, AvailabilityEvent>> records = new ArrayList<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (records.size() < expected && System.nanoTime() < deadline) {
+                ConsumerRecords<String, AvailabilityEvent> polled = consumer.poll(Duration.ofMillis(200));
+                polled.forEach(records::add);
+            }
+            assertEquals(expected, records.size());
+            return records;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.availability.simulator.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShardedEventProcessorTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("availability-updates", 0);
+
+    private final ConsumedOffsets consumedOffsets = new ConsumedOffsets();
+    private final ShardedEventProcessor processor = new ShardedEventProcessor(mock(PlatformTransactionManager.class),
+            consumedOffsets, 4, 100, Duration.ofSeconds(5));
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, String> consumer = mock(Consumer.class);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.shutdown();
+    }
+
+    @Test
+    void submit_appliesEventsForOneKeyInOffsetOrder() throws InterruptedException {
+        List<Long> applied = new CopyOnWriteArrayList<>();
+
+        for (long offset = 0; offset < 50; offset++) {
+            long recorded = offset;
+            processor.submit(record(offset), 42L, () -> applied.add(recorded));
+        }
+        processor.shutdown();
+
+        assertEquals(50, applied.size());
+        for (int i = 0; i < applied.size(); i++) {
+            assertEquals(i, applied.get(i));
+        }
+    }
+
+    @Test
+    void commitCompleted_stopsBelowLowestOffsetStillInFlight() throws InterruptedException {
+        // Given: offset 0 is stuck on one lane while 1 and 2 complete on another
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        processor.submit(record(0), 0L, () -> await(release));
+        processor.submit(record(1), 1L, done::countDown);
+        processor.submit(record(2), 1L, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // When
+        processor.commitCompleted(consumer);
+
+        // Then: nothing beyond offset 0 can be committed yet
+        verify(consumer, never()).commitSync(anyMap());
+
+        release.countDown();
+        processor.shutdown();
+        processor.commitCompleted(consumer);
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(3L)));
+        assertEquals(Map.of(0, 3L), consumedOffsets.snapshot());
+    }
+
+    @Test
+    void commitCompleted_commitsSkippedRecordsAndDoesNotRecommit() {
+        processor.skip(record(5));
+
+        processor.commitCompleted(consumer);
+        processor.commitCompleted(consumer);
+
+        verify(consumer, times(1)).commitSync(Map.of(PARTITION, new OffsetAndMetadata(6L)));
+    }
+
+    @Test
+    void submit_retriesFailedWorkBeforeGivingUp() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        processor.submit(record(0), 7L, () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("database unavailable");
+        });
+        processor.shutdown();
+        processor.commitCompleted(consumer);
+
+        assertEquals(3, attempts.get());
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(1L)));
+    }
+
+    @Test
+    void onPartitionsRevokedBeforeCommit_drainsInFlightWorkThenCommits() {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+        processor.submit(record(0), 3L, () -> {
+            started.countDown();
+            sleep(200);
+            applied.incrementAndGet();
+        });
+        await(started);
+
+        // When
+        processor.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        // Then
+        assertEquals(1, applied.get());
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(1L)));
+
+        // The partition is no longer tracked
+        processor.commitCompleted(consumer);
+        verifyNoMoreInteractions(consumer);
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveLimits() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedEventProcessor(transactionManager, consumedOffsets, 0, 100, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedEventProcessor(transactionManager, consumedOffsets, 4, 0, Duration.ofSeconds(1)));
+    }
+
+    private static ConsumerRecord<String, String> record(long offset) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, null, "{}");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.availability.simulator.kafka;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the flusher commits its own transactions
+class WriteBehindFlusherTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AvailabilityCache cache = spy(new AvailabilityCache());
+    private final ConsumedOffsets consumedOffsets = new ConsumedOffsets();
+
+    @AfterEach
+    void tearDown() {
+        flightRepository.deleteAll();
+    }
+
+    @Test
+    void flush_writesLatestStatePerKeyThenAcknowledges() {
+        // Given
+        flightRepository.save(new Flight(null, 1, "JFK", "LAX", DEP, DEP.plusHours(6), "Y9", 0L));
+        FlightDateKey known = new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6));
+        FlightDateKey unknown = new FlightDateKey(2, "JFK", "LAX", DEP, DEP.plusHours(6));
+        WriteBehindFlusher flusher = new WriteBehindFlusher(cache, flightRepository, transactionManager, consumedOffsets, 2, 100);
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+
+        flusher.enqueue(List.of(event(known, 3, "Y3"), event(unknown, 1, "Y1")), Map.of(0, 10L), first);
+        flusher.enqueue(List.of(event(known, 2, "Y2")), Map.of(0, 11L, 1, 4L), second);
+        verifyNoInteractions(first, second);
+        assertEquals(2, flusher.pending());
+
+        // When
+        int written = flusher.flush();
+
+        // Then
+        assertEquals(2, written);
+        assertEquals("Y3", flightRepository.findAvailability(1, "JFK", "LAX", DEP, DEP.plusHours(6)).orElseThrow().availability());
+        verify(cache).markPersisted(argThat(event -> event.key().equals(known) && event.sequenceNumber() == 3));
+        verify(cache, never()).markPersisted(argThat(event -> event.key().equals(unknown)));
+        assertEquals(Map.of(0, 12L, 1, 5L), consumedOffsets.snapshot());
+        verify(first).acknowledge();
+        verify(second).acknowledge();
+        assertEquals(0, flusher.pending());
+        assertEquals(0, flusher.flush());
+    }
+
+    @Test
+    void flush_dropsStaleCacheEntry_whenDatabaseHoldsANewerSequence() {
+        // Given: an empty cache and a row already past the event
+        flightRepository.save(new Flight(null, 1, "JFK", "LAX", DEP, DEP.plusHours(6), "Y9", 5L));
+        FlightDateKey key = new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6));
+        WriteBehindFlusher flusher = new WriteBehindFlusher(cache, flightRepository, transactionManager, consumedOffsets, 100, 100);
+        Acknowledgment ack = mock(Acknowledgment.class);
+        AvailabilityEvent stale = event(key, 3, "Y3");
+        cache.updateAvailability(stale);
+        flusher.enqueue(List.of(stale), Map.of(0, 7L), ack);
+
+        // When
+        flusher.flush();
+
+        // Then: the next read reloads the newer row instead of serving the stale entry
+        assertTrue(cache.getAvailability(key).isEmpty());
+        assertEquals("Y9", flightRepository.findAvailability(1, "JFK", "LAX", DEP, DEP.plusHours(6)).orElseThrow().availability());
+        verify(cache, never()).markPersisted(any());
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    void flush_keepsNewerCacheEntry_whenFlushedEventIsStale() {
+        // Given: a newer event reached the cache after the stale one was queued
+        flightRepository.save(new Flight(null, 1, "JFK", "LAX", DEP, DEP.plusHours(6), "Y9", 5L));
+        FlightDateKey key = new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6));
+        WriteBehindFlusher flusher = new WriteBehindFlusher(cache, flightRepository, transactionManager, consumedOffsets, 100, 100);
+        flusher.enqueue(List.of(event(key, 3, "Y3")), Map.of(0, 7L), mock(Acknowledgment.class));
+        cache.updateAvailability(event(key, 6, "Y6"));
+
+        // When
+        flusher.flush();
+
+        // Then
+        assertEquals("Y6", cache.getAvailability(key).orElseThrow().availabilityString());
+    }
+
+    @Test
+    void flush_keepsEverythingPending_whenWriteFails() {
+        // Given
+        FlightRepository failing = mock(FlightRepository.class, delegatesTo(flightRepository));
+        doThrow(new QueryTimeoutException("database unavailable"))
+                .doAnswer(delegatesTo(flightRepository))
+                .when(failing).applyIfNewer(anyList());
+        flightRepository.save(new Flight(null, 1, "JFK", "LAX", DEP, DEP.plusHours(6), "Y9", 0L));
+        FlightDateKey key = new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6));
+        WriteBehindFlusher flusher = new WriteBehindFlusher(cache, failing, transactionManager, consumedOffsets, 100, 100);
+        Acknowledgment ack = mock(Acknowledgment.class);
+        flusher.enqueue(List.of(event(key, 1, "Y1")), Map.of(0, 7L), ack);
+
+        // When
+        flusher.scheduledFlush();
+
+        // Then
+        verifyNoInteractions(ack);
+        assertEquals(Map.of(), consumedOffsets.snapshot());
+        assertEquals(1, flusher.pending());
+
+        // A newer event queued before the retry wins over the one put back
+        flusher.enqueue(List.of(event(key, 2, "Y2")), Map.of(0, 8L), ack);
+        assertEquals(1, flusher.flush());
+        assertEquals("Y2", flightRepository.findAvailability(1, "JFK", "LAX", DEP, DEP.plusHours(6)).orElseThrow().availability());
+        verify(ack, times(2)).acknowledge();
+        assertEquals(Map.of(0, 9L), consumedOffsets.snapshot());
+    }
+
+    @Test
+    void enqueue_flushesInline_whenTooManyWritesArePending() {
+        // Given
+        WriteBehindFlusher flusher = new WriteBehindFlusher(cache, flightRepository, transactionManager, consumedOffsets, 100, 2);
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        // When
+        flusher.enqueue(List.of(
+                event(new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6)), 1, "Y1"),
+                event(new FlightDateKey(2, "JFK", "LAX", DEP, DEP.plusHours(6)), 1, "Y1")), Map.of(0, 1L), ack);
+
+        // Then
+        verify(ack).acknowledge();
+        assertEquals(0, flusher.pending());
+    }
+
+    private static AvailabilityEvent event(FlightDateKey key, long sequence, String availability) {
+        return new AvailabilityEvent(key, sequence, availability, Instant.now());
+    }
+}
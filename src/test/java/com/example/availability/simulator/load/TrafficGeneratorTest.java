@@ -0,0 +1,151 @@
+package com.example.availability.simulator.load;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.data.FlightRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TrafficGeneratorTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+    private static final long SERVER_DELAY_MILLIS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    private Path tempDir;
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        // Knows only the scheduled arrival of each flight; moved arrivals are unknown flight-dates
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/availability", exchange -> {
+            sleep(SERVER_DELAY_MILLIS);
+            boolean known = exchange.getRequestURI().getQuery().endsWith("arrivalDateTime=2026-11-03T16:00");
+            byte[] body = known ? "F9 J9 Y9".getBytes(StandardCharsets.UTF_8) : new byte[0];
+            exchange.sendResponseHeaders(known ? 200 : 404, known ? body.length : -1);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void run_offersConstantRatePerPhaseAndReportsPercentiles() throws Exception {
+        // Given
+        Path reportPath = tempDir.resolve("reports/traffic.json");
+        TrafficGenerator generator = generator(0.25, "unused:1:PT1S", reportPath);
+        List<FlightDateKey> flights = List.of(
+                new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6)),
+                new FlightDateKey(2, "JFK", "LAX", DEP, DEP.plusHours(6)),
+                new FlightDateKey(3, "JFK", "LAX", DEP, DEP.plusHours(6)));
+
+        // When
+        TrafficReport report = generator.run(flights, List.of(
+                new TrafficGenerator.Phase("warmup", 100, Duration.ofMillis(500)),
+                new TrafficGenerator.Phase("steady", 200, Duration.ofSeconds(1))));
+        generator.writeReport(report);
+
+        // Then
+        assertEquals(2, report.phases().size());
+        TrafficReport.PhaseResult warmup = report.phases().get(0);
+        TrafficReport.PhaseResult steady = report.phases().get(1);
+        assertEquals(50, warmup.requests());
+        assertEquals(200, steady.requests());
+        assertEquals(steady.requests(), steady.ok() + steady.notFound());
+        assertTrue(steady.ok() > 0 && steady.notFound() > 0);
+        assertEquals(0, steady.errors());
+        assertTrue(steady.p50Micros() >= TimeUnit.MILLISECONDS.toMicros(SERVER_DELAY_MILLIS));
+        assertTrue(steady.p50Micros() <= steady.p99Micros() && steady.p99Micros() <= steady.maxMicros());
+
+        JsonNode written = objectMapper.readTree(reportPath.toFile());
+        assertEquals("steady", written.get("phases").get(1).get("name").asText());
+        assertEquals(200, written.get("phases").get(1).get("requests").asLong());
+    }
+
+    @Test
+    void run_countsFailuresAsErrors() {
+        TrafficGenerator generator = generator(0, "unused:1:PT1S", tempDir.resolve("traffic.json"));
+        server.stop(0);
+
+        TrafficReport report = generator.run(List.of(new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6))),
+                List.of(new TrafficGenerator.Phase("down", 50, Duration.ofMillis(200))));
+
+        TrafficReport.PhaseResult down = report.phases().getFirst();
+        assertEquals(10, down.requests());
+        assertEquals(10, down.errors());
+    }
+
+    @Test
+    void run_recordsDroppedRequestsAtTheTimeout() {
+        // Given: one request in flight at a time against a 20 ms server, so most are shed
+        TrafficGenerator generator = generator(0, "unused:1:PT1S", tempDir.resolve("traffic.json"), 1);
+
+        // When
+        TrafficReport report = generator.run(List.of(new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6))),
+                List.of(new TrafficGenerator.Phase("saturated", 200, Duration.ofMillis(500))));
+
+        // Then: the shed requests dominate the tail instead of vanishing from it
+        TrafficReport.PhaseResult saturated = report.phases().getFirst();
+        assertTrue(saturated.dropped() > saturated.requests() / 2);
+        assertEquals(saturated.requests(), saturated.ok() + saturated.dropped());
+        assertTrue(saturated.p99Micros() >= TimeUnit.MILLISECONDS.toMicros(1_990));
+    }
+
+    @Test
+    void phase_parsesSpecAndRejectsMalformedOnes() {
+        assertEquals(List.of(new TrafficGenerator.Phase("warmup", 500, Duration.ofSeconds(10)),
+                        new TrafficGenerator.Phase("steady", 2000, Duration.ofMinutes(1))),
+                TrafficGenerator.Phase.parse("warmup:500:PT10S, steady:2000:PT1M"));
+        assertThrows(IllegalArgumentException.class, () -> TrafficGenerator.Phase.parse("steady:2000"));
+        assertThrows(IllegalArgumentException.class, () -> TrafficGenerator.Phase.parse("steady:0:PT1S"));
+    }
+
+    private TrafficGenerator generator(double missRatio, String phases, Path reportPath) {
+        return generator(missRatio, phases, reportPath, 1_000);
+    }
+
+    private TrafficGenerator generator(double missRatio, String phases, Path reportPath, int maxInFlight) {
+        return new TrafficGenerator(mock(FlightRepository.class), objectMapper,
+                "http://localhost:" + server.getAddress().getPort(), 100, missRatio, 1.0, phases, maxInFlight,
+                Duration.ofSeconds(2), reportPath);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.availability.simulator.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfDistributionTest {
+
+    @Test
+    void cdf_favoursLowRanks() {
+        double[] cdf = ZipfDistribution.cdf(1_000, 1.1);
+
+        assertEquals(1.0, cdf[cdf.length - 1], 1e-9);
+        assertEquals(0, ZipfDistribution.rank(cdf, 0.0));
+        assertEquals(cdf.length - 1, ZipfDistribution.rank(cdf, 1.0));
+        assertTrue(cdf[9] > 0.3, "the top 1% of items draws a large share");
+    }
+
+    @Test
+    void sample_staysInRangeAndConcentratesOnFewItems() {
+        SplittableRandom random = new SplittableRandom(42);
+        ZipfDistribution zipf = new ZipfDistribution(100, 1.1, random);
+        int[] counts = new int[100];
+
+        for (int i = 0; i < 100_000; i++) {
+            counts[zipf.sample(random)]++;
+        }
+
+        int hottest = 0;
+        for (int count : counts) {
+            hottest = Math.max(hottest, count);
+        }
+        assertTrue(hottest > 10_000, "uniform draws would give each item about 1%");
+    }
+
+    @Test
+    void constructor_rejectsInvalidSettings() {
+        SplittableRandom random = new SplittableRandom();
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(0, 1.0, random));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(10, 0, random));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.availability.simulator.service;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // workers read on their own connections
+class AvailabilityPreloaderTest {
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        flightRepository.deleteAll();
+    }
+
+    @Test
+    void preload_loadsFlightsInsideWindowAcrossWorkers() throws Exception {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2026, 11, 1, 0, 0);
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            LocalDateTime dep = now.plusHours(i);
+            flights.add(new Flight(null, i, "JFK", "LAX", dep, dep.plusHours(6), "F1 Y" + (i % 10), 0L));
+        }
+        LocalDateTime late = now.plusDays(40);
+        flights.add(new Flight(null, 999, "JFK", "LAX", late, late.plusHours(6), "F9", 0L));
+        flightRepository.saveAll(flights);
+
+        AvailabilityCache cache = new AvailabilityCache();
+        AvailabilityPreloader preloader = new AvailabilityPreloader(cache, dataSource, transactionManager,
+                3, 7, Duration.ofDays(30), Duration.ofSeconds(5));
+
+        // When
+        long loaded = preloader.preload(now);
+
+        // Then
+        assertEquals(50, loaded);
+        assertEquals(50, cache.size());
+        LocalDateTime dep = now.plusHours(7);
+        assertEquals("F1 Y7", cache.getAvailability(new FlightDateKey(7, "JFK", "LAX", dep, dep.plusHours(6)))
+                .orElseThrow().availabilityString());
+        assertTrue(cache.getAvailability(new FlightDateKey(999, "JFK", "LAX", late, late.plusHours(6))).isEmpty());
+        // Whole days inside the window are searchable from the cache, the rest are not
+        assertEquals(23, cache.findByRouteAndDay("JFK", "LAX", now.toLocalDate()).orElseThrow().size());
+        assertEquals(List.of(), cache.findByRouteAndDay("LHR", "CDG", now.toLocalDate().plusDays(29)).orElseThrow());
+        assertTrue(cache.findByRouteAndDay("JFK", "LAX", late.toLocalDate()).isEmpty());
+    }
+
+    @Test
+    void preload_isNoOpOnEmptyTable() throws Exception {
+        AvailabilityCache cache = new AvailabilityCache();
+        AvailabilityPreloader preloader = new AvailabilityPreloader(cache, dataSource, transactionManager,
+                2, 100, Duration.ofDays(30), Duration.ofSeconds(5));
+
+        assertEquals(0, preloader.preload(LocalDateTime.now()));
+        assertEquals(0, cache.size());
+    }
+}
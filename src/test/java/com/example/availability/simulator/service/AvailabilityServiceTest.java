@@ -3,18 +3,36 @@ package com.example.availability.simulator.service;
 import com.example.availability.simulator.availability.Availability;
 import com.example.availability.simulator.availability.AvailabilityCache;
 import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.VersionedAvailability;
+import com.example.availability.simulator.cluster.ClusterTopology;
+import com.example.availability.simulator.cluster.PeerAvailabilityClient;
 import com.example.availability.simulator.data.Flight;
+import com.example.availability.simulator.data.FlightAvailability;
 import com.example.availability.simulator.data.FlightRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -27,13 +45,17 @@ class AvailabilityServiceTest {
     @Mock
     private FlightRepository flightRepository;
 
-    @InjectMocks
     private AvailabilityService availabilityService;
 
+    @BeforeEach
+    void setUp() {
+        availabilityService = new AvailabilityService(availabilityCache, flightRepository);
+    }
+
     @Test
     void getAvailability_returnsCachedValue_whenPresentInCache() {
         // Given
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
         Availability cachedAvailability = new Availability(key, "F9 J9 Y9");
@@ -46,28 +68,20 @@ class AvailabilityServiceTest {
         // Then
         assertTrue(result.isPresent());
         assertEquals(cachedAvailability, result.get());
-        verify(flightRepository, never()).findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(any(), any(), any(), any());
+        verify(flightRepository, never()).findAvailability(any(), any(), any(), any(), any());
     }
 
     @Test
     void getAvailability_fetchesFromDbAndPopulatesCache_whenMissingInCache() {
         // Given
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
 
         when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
 
-        Flight flight = new Flight();
-        flight.setFlightNumber(123);
-        flight.setOrigin("JFK");
-        flight.setDestination("LHR");
-        flight.setDepartureDateTime(dep);
-        flight.setArrivalDateTime(arr);
-        flight.setAvailability("F5 J5 Y5");
-
-        when(flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(123, "JFK", "LHR", dep))
-                .thenReturn(Optional.of(flight));
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, arr))
+                .thenReturn(Optional.of(new FlightAvailability("F5 J5 Y5", 0)));
 
         // When
         Optional<Availability> result = availabilityService.getAvailability(key);
@@ -75,24 +89,423 @@ class AvailabilityServiceTest {
         // Then
         assertTrue(result.isPresent());
         assertEquals("F5 J5 Y5", result.get().availabilityString());
-        verify(availabilityCache).putFromDatabase(any(Availability.class));
+        verify(availabilityCache).putFromDatabase(any(Availability.class), eq(0L));
     }
 
     @Test
     void getAvailability_returnsEmpty_whenMissingInCacheAndDb() {
         // Given
-        LocalDateTime dep = LocalDateTime.now();
+        LocalDateTime dep = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
         LocalDateTime arr = dep.plusHours(2);
         FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, arr);
 
         when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
-        when(flightRepository.findByFlightNumberAndOriginAndDestinationAndDepartureDateTime(123, "JFK", "LHR", dep))
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, arr))
+                .thenReturn(Optional.empty());
+
+        // When
+        Optional<Availability> result = availabilityService.getAvailability(key);
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void getAvailability_byEncodedKey_decodesKeyOnlyOnMiss() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        when(availabilityCache.getAvailability(high, low)).thenReturn(Optional.empty());
+
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenReturn(Optional.of(new FlightAvailability("F1 J2 Y3", 0)));
+
+        // When
+        Optional<Availability> result = availabilityService.getAvailability(high, low);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(key, result.get().key());
+        assertEquals("F1 J2 Y3", result.get().availabilityString());
+        verify(availabilityCache).putFromDatabase(result.get(), 0L);
+    }
+
+    @Test
+    void getVersionedAvailability_carriesDatabaseSequenceOnMiss() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        when(availabilityCache.getVersionedAvailability(high, low)).thenReturn(Optional.empty());
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenReturn(Optional.of(new FlightAvailability("F1 J2 Y3", 12)));
+
+        // When
+        Optional<VersionedAvailability> result = availabilityService.getVersionedAvailability(high, low);
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(12L, result.get().sequence());
+        assertEquals("F1 J2 Y3", new String(result.get().payload(), StandardCharsets.UTF_8));
+        verify(availabilityCache).putFromDatabase(result.get().availability(), 12L);
+    }
+
+    @Test
+    void getVersionedAvailability_returnsNewerCachedEntry_whenEventWonTheLoad() {
+        // Given: an event lands between the cache miss and the database load
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+        VersionedAvailability newer = VersionedAvailability.of(new Availability(key, "F0 J0 Y0"), 13L);
+
+        when(availabilityCache.getVersionedAvailability(high, low))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(newer));
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenReturn(Optional.of(new FlightAvailability("F1 J2 Y3", 12)));
+
+        // When
+        Optional<VersionedAvailability> result = availabilityService.getVersionedAvailability(high, low);
+
+        // Then
+        assertEquals(Optional.of(newer), result);
+        verify(availabilityCache).putFromDatabase(new Availability(key, "F1 J2 Y3"), 12L);
+    }
+
+    @Test
+    void getVersionedAvailability_servesCacheHitWithoutDatabase() {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        VersionedAvailability cached = VersionedAvailability.of(new Availability(key, "F4"), 3L);
+        when(availabilityCache.getVersionedAvailability(anyLong(), anyLong())).thenReturn(Optional.of(cached));
+
+        assertEquals(Optional.of(cached), availabilityService.getVersionedAvailability(1L, 2L));
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void getAvailability_collapsesConcurrentMissesIntoOneLoad() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
+
+        int callers = 8;
+        CountDownLatch allWaiting = new CountDownLatch(callers - 1);
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenAnswer(invocation -> {
+                    allWaiting.await(5, TimeUnit.SECONDS);
+                    Thread.sleep(50); // let followers reach the in-flight future
+                    return Optional.of(new FlightAvailability("F5 J5 Y5", 0));
+                });
+        AvailabilityService service = new AvailabilityService(availabilityCache, flightRepository, Duration.ofSeconds(5)) {
+            @Override
+            public Optional<Availability> getAvailability(FlightDateKey k) {
+                allWaiting.countDown();
+                return super.getAvailability(k);
+            }
+        };
+
+        // When
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<Optional<Availability>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> service.getAvailability(key)));
+        }
+
+        // Then
+        for (Future<Optional<Availability>> result : results) {
+            assertEquals("F5 J5 Y5", result.get(5, TimeUnit.SECONDS).orElseThrow().availabilityString());
+        }
+        pool.shutdown();
+        verify(flightRepository, times(1)).findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7));
+        assertEquals(1, service.databaseLoads());
+        assertEquals(callers - 1, service.collapsedLoads());
+    }
+
+    @Test
+    void bindTo_timesRepositoryLookupsByQuery() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7))).thenReturn(Optional.empty());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        availabilityService.bindTo(registry);
+
+        // When
+        availabilityService.getAvailability(key);
+
+        // Then
+        assertEquals(1, registry.get("availability.db.lookup").tag("query", "point").timer().count());
+        assertEquals(0, registry.get("availability.db.lookup").tag("query", "keys").timer().count());
+        assertEquals(0, registry.get("availability.db.lookup").tag("query", "route-day").timer().count());
+        assertEquals(1, registry.get("availability.db.loads").functionCounter().count());
+    }
+
+    @Test
+    void getAvailability_loadsOnItsOwn_whenInFlightLoadExceedsWait() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
+
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLeader = new CountDownLatch(1);
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenAnswer(invocation -> {
+                    if (leaderStarted.getCount() > 0) {
+                        leaderStarted.countDown();
+                        releaseLeader.await(5, TimeUnit.SECONDS);
+                    }
+                    return Optional.of(new FlightAvailability("F1", 0));
+                });
+        AvailabilityService service = new AvailabilityService(availabilityCache, flightRepository, Duration.ofMillis(50));
+
+        // When
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Optional<Availability>> leader = pool.submit(() -> service.getAvailability(key));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        Optional<Availability> follower = service.getAvailability(key);
+        releaseLeader.countDown();
+
+        // Then
+        assertEquals("F1", follower.orElseThrow().availabilityString());
+        assertEquals("F1", leader.get(5, TimeUnit.SECONDS).orElseThrow().availabilityString());
+        pool.shutdown();
+        assertEquals(2, service.databaseLoads());
+        assertEquals(1, service.collapsedLoads());
+    }
+
+    @Test
+    void getAvailability_remembersUnknownKey_whenLoadingOnItsOwnAfterTheWait() throws Exception {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+        when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
+
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLeader = new CountDownLatch(1);
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
+                .thenAnswer(invocation -> {
+                    if (leaderStarted.getCount() > 0) {
+                        leaderStarted.countDown();
+                        releaseLeader.await(5, TimeUnit.SECONDS);
+                    }
+                    return Optional.empty();
+                });
+        AvailabilityService service = new AvailabilityService(availabilityCache, flightRepository, Duration.ofMillis(50));
+
+        // When
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Optional<Availability>> leader = pool.submit(() -> service.getAvailability(key));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        Optional<Availability> follower = service.getAvailability(key);
+
+        // Then: the follower's own miss is remembered before the leader finishes
+        assertTrue(follower.isEmpty());
+        verify(availabilityCache).markAbsent(high, low);
+        releaseLeader.countDown();
+        assertTrue(leader.get(5, TimeUnit.SECONDS).isEmpty());
+        pool.shutdown();
+        verify(availabilityCache, times(2)).markAbsent(high, low);
+    }
+
+    @Test
+    void getAvailability_remembersUnknownKeys() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        when(availabilityCache.getAvailability(high, low)).thenReturn(Optional.empty());
+        when(flightRepository.findAvailability(123, "JFK", "LHR", dep, dep.plusHours(7)))
                 .thenReturn(Optional.empty());
 
+        // When
+        Optional<Availability> result = availabilityService.getAvailability(high, low);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(availabilityCache).markAbsent(high, low);
+    }
+
+    @Test
+    void getAvailability_skipsDatabase_whenKeyKnownAbsent() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+
+        when(availabilityCache.getAvailability(key)).thenReturn(Optional.empty());
+        when(availabilityCache.isKnownAbsent(high, low)).thenReturn(true);
+
         // When
         Optional<Availability> result = availabilityService.getAvailability(key);
 
         // Then
         assertTrue(result.isEmpty());
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void getAvailabilities_loadsAllMissesWithOneQuery() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        FlightDateKey hit = new FlightDateKey(1, "JFK", "LHR", dep, dep.plusHours(7));
+        FlightDateKey absent = new FlightDateKey(2, "JFK", "LHR", dep, dep.plusHours(7));
+        FlightDateKey miss = new FlightDateKey(3, "JFK", "LHR", dep, dep.plusHours(7));
+        FlightDateKey unknown = new FlightDateKey(4, "JFK", "LHR", dep, dep.plusHours(7));
+        Availability cached = new Availability(hit, "F9");
+
+        when(availabilityCache.getAvailability(anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(availabilityCache.getAvailability(FlightDateKeyCodec.high(hit), FlightDateKeyCodec.low(hit)))
+                .thenReturn(Optional.of(cached));
+        when(availabilityCache.isKnownAbsent(anyLong(), anyLong())).thenReturn(false);
+        when(availabilityCache.isKnownAbsent(FlightDateKeyCodec.high(absent), FlightDateKeyCodec.low(absent)))
+                .thenReturn(true);
+        when(flightRepository.findAllByKeys(argThat(misses -> misses.size() == 2 && misses.containsAll(List.of(miss, unknown)))))
+                .thenReturn(List.of(new Flight(7, 3, "JFK", "LHR", dep, dep.plusHours(7), "Y5", 0L)));
+
+        // When
+        List<Optional<Availability>> results = availabilityService.getAvailabilities(List.of(hit, absent, miss, unknown, miss));
+
+        // Then
+        assertEquals(Optional.of(cached), results.get(0));
+        assertTrue(results.get(1).isEmpty());
+        assertEquals("Y5", results.get(2).orElseThrow().availabilityString());
+        assertTrue(results.get(3).isEmpty());
+        assertEquals(results.get(2), results.get(4));
+        verify(flightRepository, times(1)).findAllByKeys(any());
+        verify(availabilityCache).putFromDatabase(new Availability(miss, "Y5"), 0L);
+        verify(availabilityCache).markAbsent(FlightDateKeyCodec.high(unknown), FlightDateKeyCodec.low(unknown));
+        assertEquals(1, availabilityService.databaseLoads());
+    }
+
+    @Test
+    void getAvailabilities_skipsDatabase_whenEverythingIsCached() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        FlightDateKey key = new FlightDateKey(1, "JFK", "LHR", dep, dep.plusHours(7));
+        when(availabilityCache.getAvailability(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key)))
+                .thenReturn(Optional.of(new Availability(key, "F9")));
+
+        // When
+        List<Optional<Availability>> results = availabilityService.getAvailabilities(List.of(key));
+
+        // Then
+        assertTrue(results.getFirst().isPresent());
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void searchByRouteAndDay_servesLoadedDaysFromCache() {
+        // Given
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        LocalDateTime dep = day.atTime(8, 0);
+        List<Availability> cached = List.of(new Availability(new FlightDateKey(1, "JFK", "LAX", dep, dep.plusHours(6)), "Y1"));
+        when(availabilityCache.findByRouteAndDay("JFK", "LAX", day)).thenReturn(Optional.of(cached));
+
+        // When / Then
+        assertEquals(cached, availabilityService.searchByRouteAndDay("JFK", "LAX", day));
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void searchByRouteAndDay_loadsDayFromDatabaseAndMarksItLoaded() {
+        // Given
+        LocalDate day = LocalDate.of(2026, 11, 3);
+        LocalDateTime early = day.atTime(6, 0);
+        LocalDateTime late = day.atTime(18, 0);
+        FlightDateKey earlyKey = new FlightDateKey(1, "JFK", "LAX", early, early.plusHours(6));
+        FlightDateKey lateKey = new FlightDateKey(2, "JFK", "LAX", late, late.plusHours(6));
+        when(availabilityCache.findByRouteAndDay("JFK", "LAX", day)).thenReturn(Optional.empty());
+        when(flightRepository.findByOriginAndDestinationAndDepartureDateTimeGreaterThanEqualAndDepartureDateTimeLessThan(
+                "JFK", "LAX", day.atStartOfDay(), day.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(
+                        new Flight(2, 2, "JFK", "LAX", late, late.plusHours(6), "Y2", 0L),
+                        new Flight(1, 1, "JFK", "LAX", early, early.plusHours(6), "Y1", 0L)));
+        // A newer event for the early flight is already cached
+        when(availabilityCache.getAvailability(earlyKey)).thenReturn(Optional.of(new Availability(earlyKey, "Y0")));
+        when(availabilityCache.getAvailability(lateKey)).thenReturn(Optional.empty());
+
+        // When
+        List<Availability> results = availabilityService.searchByRouteAndDay("JFK", "LAX", day);
+
+        // Then
+        assertEquals(List.of("Y0", "Y2"), results.stream().map(Availability::availabilityString).toList());
+        verify(availabilityCache).putFromDatabase(new Availability(lateKey, "Y2"), 0L);
+        verify(availabilityCache).markRouteDayLoaded("JFK", "LAX", day);
+    }
+
+    @Test
+    void getVersionedAvailability_forwardsKeysOwnedByAnotherNode() {
+        // Given
+        ClusterTopology topology = mock(ClusterTopology.class);
+        PeerAvailabilityClient peers = mock(PeerAvailabilityClient.class);
+        AvailabilityService clustered = new AvailabilityService(availabilityCache, flightRepository, Duration.ofSeconds(2),
+                Optional.of(topology), Optional.of(peers));
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        FlightDateKey key = new FlightDateKey(1, "JFK", "LHR", dep, dep.plusHours(7));
+        long high = FlightDateKeyCodec.high(key);
+        long low = FlightDateKeyCodec.low(key);
+        VersionedAvailability remote = VersionedAvailability.of(new Availability(key, "Y4"), 9L);
+        when(topology.self()).thenReturn("http://a:8080");
+        when(topology.owner(high, low)).thenReturn("http://b:8080");
+        when(peers.lookup("http://b:8080", high, low)).thenReturn(Optional.of(remote));
+
+        // When
+        Optional<VersionedAvailability> result = clustered.getVersionedAvailability(high, low);
+
+        // Then
+        assertEquals(Optional.of(remote), result);
+        verifyNoInteractions(availabilityCache, flightRepository);
+    }
+
+    @Test
+    void getAvailabilities_resolvesLocalKeysHereAndSendsOneBatchPerPeer() {
+        // Given
+        ClusterTopology topology = mock(ClusterTopology.class);
+        PeerAvailabilityClient peers = mock(PeerAvailabilityClient.class);
+        AvailabilityService clustered = new AvailabilityService(availabilityCache, flightRepository, Duration.ofSeconds(2),
+                Optional.of(topology), Optional.of(peers));
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 1, 8, 0);
+        FlightDateKey local = new FlightDateKey(1, "JFK", "LHR", dep, dep.plusHours(7));
+        FlightDateKey remoteA = new FlightDateKey(2, "JFK", "LHR", dep, dep.plusHours(7));
+        FlightDateKey remoteB = new FlightDateKey(3, "JFK", "LHR", dep, dep.plusHours(7));
+        when(topology.self()).thenReturn("http://a:8080");
+        when(topology.owner(anyLong(), anyLong())).thenReturn("http://b:8080");
+        when(topology.owner(FlightDateKeyCodec.high(local), FlightDateKeyCodec.low(local))).thenReturn("http://a:8080");
+        when(availabilityCache.getAvailability(FlightDateKeyCodec.high(local), FlightDateKeyCodec.low(local)))
+                .thenReturn(Optional.of(new Availability(local, "Y1")));
+        when(peers.lookupAll(eq("http://b:8080"), any(), any(), eq(2))).thenReturn(List.of(
+                Optional.of(VersionedAvailability.of(new Availability(remoteA, "Y2"), 1L)),
+                Optional.empty()));
+
+        // When
+        List<Optional<Availability>> results = clustered.getAvailabilities(List.of(remoteA, local, remoteB));
+
+        // Then
+        assertEquals("Y2", results.get(0).orElseThrow().availabilityString());
+        assertEquals("Y1", results.get(1).orElseThrow().availabilityString());
+        assertTrue(results.get(2).isEmpty());
+        verify(peers, times(1)).lookupAll(any(), any(), any(), anyInt());
+        verifyNoInteractions(flightRepository);
+    }
+
+    @Test
+    void constructor_rejectsTopologyWithoutPeerClient() {
+        assertThrows(IllegalArgumentException.class, () -> new AvailabilityService(availabilityCache, flightRepository,
+                Duration.ofSeconds(2), Optional.of(mock(ClusterTopology.class)), Optional.empty()));
     }
 }
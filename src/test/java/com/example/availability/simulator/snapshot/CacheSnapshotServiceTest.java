@@ -0,0 +1,68 @@
+package com.example.availability.simulator.snapshot;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.AvailabilityEvent;
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.kafka.ConsumedOffsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshotServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotAndRestore_roundTripsEntriesAndOffsets() {
+        // Given
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LAX", dep, dep.plusHours(6));
+        AvailabilityCache cache = new AvailabilityCache();
+        cache.updateAvailability(new AvailabilityEvent(key, 5L, "F1 J2 Y3", Instant.now()));
+        ConsumedOffsets offsets = new ConsumedOffsets();
+        offsets.record(0, 41L);
+        offsets.record(3, 9L);
+        Path file = dir.resolve("cache.snap");
+
+        // When
+        assertTrue(new CacheSnapshotService(cache, offsets, file).snapshot());
+        AvailabilityCache restoredCache = new AvailabilityCache();
+        ConsumedOffsets restoredOffsets = new ConsumedOffsets();
+        new CacheSnapshotService(restoredCache, restoredOffsets, file).restore();
+
+        // Then
+        assertEquals("F1 J2 Y3", restoredCache.getAvailability(key).orElseThrow().availabilityString());
+        assertEquals(Map.of(0, 42L, 3, 10L), restoredOffsets.snapshot());
+        assertEquals(42L, restoredOffsets.takeRestored(0).orElseThrow());
+        assertTrue(restoredOffsets.takeRestored(0).isEmpty());
+        assertFalse(Files.exists(dir.resolve("cache.snap.tmp")));
+    }
+
+    @Test
+    void restore_keepsNewerStateAndIgnoresGarbage() throws Exception {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        FlightDateKey key = new FlightDateKey(123, "JFK", "LAX", dep, dep.plusHours(6));
+        Path file = dir.resolve("cache.snap");
+        AvailabilityCache cache = new AvailabilityCache();
+        cache.updateAvailability(new AvailabilityEvent(key, 5L, "F1", Instant.now()));
+        new CacheSnapshotService(cache, new ConsumedOffsets(), file).snapshot();
+
+        AvailabilityCache newer = new AvailabilityCache();
+        newer.updateAvailability(new AvailabilityEvent(key, 6L, "F2", Instant.now()));
+        new CacheSnapshotService(newer, new ConsumedOffsets(), file).restore();
+        assertEquals("F2", newer.getAvailability(key).orElseThrow().availabilityString());
+
+        Files.write(file, new byte[]{1, 2, 3});
+        AvailabilityCache empty = new AvailabilityCache();
+        new CacheSnapshotService(empty, new ConsumedOffsets(), file).restore();
+        assertEquals(0, empty.size());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.availability.simulator.subscription;
+
+import com.example.availability.simulator.availability.AvailabilityCache;
+import com.example.availability.simulator.availability.FlightDateKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilitySubscriptionRegistryTest {
+
+    private static final LocalDateTime DEP = LocalDateTime.of(2026, 11, 3, 10, 0);
+
+    private final AvailabilityCache cache = new AvailabilityCache();
+    private final AvailabilitySubscriptionRegistry registry = new AvailabilitySubscriptionRegistry(cache, 2, 16, Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void subscribe_rejectsSubscriptionsBeyondTheLimit() {
+        registry.subscribe("JFK", "LAX");
+        registry.subscribe(List.of(new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusHours(6))));
+
+        assertThrows(SubscriptionLimitException.class, () -> registry.subscribe("JFK", "SFO"));
+        assertEquals(2, registry.activeSubscriptions());
+    }
+
+    @Test
+    void subscribe_rejectsUnencodableKeysWithoutOpeningAStream() {
+        FlightDateKey farArrival = new FlightDateKey(1, "JFK", "LAX", DEP, DEP.plusYears(100));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.subscribe(List.of(farArrival)));
+        assertThrows(IllegalArgumentException.class, () -> registry.subscribe("JFKX", "LAX"));
+        assertEquals(0, registry.activeSubscriptions());
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AvailabilitySubscriptionRegistry(cache, 0, 16, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new AvailabilitySubscriptionRegistry(cache, 1, 0, Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.availability.simulator.subscription;
+
+import com.example.availability.simulator.availability.FlightDateKey;
+import com.example.availability.simulator.availability.FlightDateKeyCodec;
+import com.example.availability.simulator.availability.PackedAvailability;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionTest {
+
+    private final Queue<Runnable> drains = new ArrayDeque<>();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final Subscription subscription = new Subscription(new SseEmitter(), drains::add, 2, s -> closed.incrementAndGet());
+
+    @Test
+    void offer_conflatesToLatestSequencePerKey() {
+        subscription.offer(1L, 1L, 5L, 100L);
+        subscription.offer(1L, 1L, 4L, 200L);
+        subscription.offer(1L, 1L, 6L, 300L);
+
+        assertEquals(1, subscription.pending());
+        assertEquals(0, subscription.dropped());
+        assertEquals(1, drains.size(), "one drain is scheduled until it runs");
+    }
+
+    @Test
+    void offer_dropsOldestKey_whenBufferIsFull() {
+        subscription.offer(1L, 1L, 1L, 100L);
+        subscription.offer(2L, 2L, 1L, 100L);
+        subscription.offer(3L, 3L, 1L, 100L);
+
+        assertEquals(2, subscription.pending());
+        assertEquals(1, subscription.dropped());
+    }
+
+    @Test
+    void drain_sendsEverythingPendingAndAllowsTheNextDrain() {
+        LocalDateTime dep = LocalDateTime.of(2026, 11, 3, 10, 0);
+        for (int flightNumber = 1; flightNumber <= 3; flightNumber++) {
+            FlightDateKey key = new FlightDateKey(flightNumber, "JFK", "LAX", dep, dep.plusHours(6));
+            subscription.offer(FlightDateKeyCodec.high(key), FlightDateKeyCodec.low(key), 1L, PackedAvailability.parse("Y9"));
+        }
+
+        drains.poll().run();
+
+        assertEquals(0, subscription.pending());
+        assertEquals(0, subscription.dropped());
+        subscription.offer(1L, 1L, 2L, 100L);
+        assertEquals(1, drains.size());
+    }
+
+    @Test
+    void close_discardsPendingAndNotifiesOnce() {
+        subscription.offer(1L, 1L, 1L, 100L);
+
+        subscription.close();
+        subscription.close();
+        subscription.offer(2L, 2L, 1L, 100L);
+
+        assertEquals(1, closed.get());
+        assertEquals(0, subscription.pending());
+    }
+}